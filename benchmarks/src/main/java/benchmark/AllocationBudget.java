@@ -0,0 +1,183 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import controller.DataWriter;
+import javafx.beans.property.SimpleIntegerProperty;
+import model.ControlType;
+import model.DotsPair;
+import model.DotsPairGenerator;
+import model.DotsPairPool;
+import model.GameLogic;
+import model.Player;
+
+/**
+ * Runs the trial loop without a GUI (generate, score, encode) for thousands of
+ * rounds and checks the bytes each phase allocates per round against a budget,
+ * so that the hot path stays as allocation free as it has been made.
+ *
+ * Allocation is read from com.sun.management.ThreadMXBean around every call,
+ * after a warm-up so that the JIT has compiled the loop. Prints a table of
+ * bytes per round and exits with status 1 if any phase goes over its budget.
+ *
+ * Budgets are in bytes per round and can be set with system properties, e.g.
+ * -Dbudget.generate=4096. Pairs come from a DotsPairPool, as in the game;
+ * -Dbudget.pooled=false makes a new pair every round instead.
+ * Run with: mvn -B -P alloc-budget verify
+ */
+public final class AllocationBudget {
+
+    /** The phases that are measured. */
+    enum Phase {
+        /** DotsPairGenerator.getNewDifficultyPair(), which picks and makes a pair. */
+        GENERATE("budget.generate", 256),
+        /** Making a DotsPair directly, or taking one from a pool and releasing it. */
+        PAIR_CONSTRUCTION("budget.pair", 256),
+        /** GameLogic scoring and DotsPairGenerator.recordResponse(). */
+        SCORE("budget.score", 16),
+        /** DataWriter.generateTrialText(). */
+        ENCODE("budget.encode", 2048);
+
+        private final String property;
+        private final long defaultBudget;
+
+        private Phase(String property, long defaultBudget) {
+            this.property = property;
+            this.defaultBudget = defaultBudget;
+        }
+
+        long getBudget() {
+            return Long.getLong(this.property, this.defaultBudget);
+        }
+    }
+
+    static final int WARM_UP_ROUNDS = 20000;
+    static final int MEASURED_ROUNDS = Integer.getInteger("budget.rounds", 5000);
+    static final boolean POOLED = Boolean.parseBoolean(System.getProperty("budget.pooled", "true"));
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final long threadId = Thread.currentThread().getId();
+
+    private final long[] allocated = new long[Phase.values().length];
+
+    /** Bytes reading the allocation counter twice allocates, taken off every reading. */
+    private long overhead;
+
+    private final DotsPairGenerator generator = new DotsPairGenerator();
+    private final DotsPairPool pool = POOLED ? new DotsPairPool(DotsPairPool.DEFAULT_SIZE) : null;
+    private final Player player = new Player(new SimpleIntegerProperty(1234),
+            Player.Gender.FEMALE, new SimpleIntegerProperty(7));
+    private final DataWriter dataWriter = new DataWriter(this.player, null);
+
+    /** Keeps the results alive so the JIT can't drop the work. */
+    private long sink;
+
+    private AllocationBudget() {
+        this.generator.setPooled(POOLED);
+    }
+
+    /**
+     * Run the harness.
+     * @param args Not used.
+     */
+    public static void main(String[] args) {
+        BenchmarkRunner.silenceGameLog();
+        AllocationBudget harness = new AllocationBudget();
+        if (!harness.threads.isThreadAllocatedMemorySupported()) {
+            System.err.println("Thread allocation counting is not supported by this JVM");
+            System.exit(2);
+        }
+        harness.threads.setThreadAllocatedMemoryEnabled(true);
+        harness.calibrate();
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            harness.runRound(false);
+        }
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            harness.runRound(true);
+        }
+        System.exit(harness.report() ? 0 : 1);
+    }
+
+    private void calibrate() {
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < 10000; i++) {
+            long before = this.allocatedBytes();
+            long after = this.allocatedBytes();
+            least = Math.min(least, after - before);
+        }
+        this.overhead = least;
+    }
+
+    private long allocatedBytes() {
+        return this.threads.getThreadAllocatedBytes(this.threadId);
+    }
+
+    /**
+     * One round of the loop: generate, score and encode.
+     * @param measure Whether to count what the phases allocate.
+     */
+    private void runRound(boolean measure) {
+        long start = this.allocatedBytes();
+        this.generator.getNewDifficultyPair();
+        long generated = this.allocatedBytes();
+        DotsPair pair = this.generator.getDotsPair();
+
+        int numDotsOne = pair.getDotSetOne().getTotalNumDots();
+        int numDotsTwo = pair.getDotSetTwo().getTotalNumDots();
+        long pairStart = this.allocatedBytes();
+        DotsPair constructed = this.pool != null
+                ? this.pool.acquire(numDotsOne, numDotsTwo, pair.getControlType())
+                : new DotsPair(numDotsOne, numDotsTwo, pair.getControlType());
+        this.sink += constructed.getDotSetOne().getTotalNumDots();
+        constructed.release();
+        long madePair = this.allocatedBytes();
+
+        boolean leftPicked = (this.sink & 1) == 0;
+        long scoreStart = this.allocatedBytes();
+        boolean correct = GameLogic.checkAnswerCorrect(leftPicked, pair);
+        this.generator.recordResponse(correct);
+        long scored = this.allocatedBytes();
+
+        this.player.setRight(correct);
+        this.player.setResponseTime(600000000 + (this.sink & 0xFFFF));
+        this.player.incrementNumRounds();
+        this.dataWriter.setDotsPair(pair);
+        long encodeStart = this.allocatedBytes();
+        String row = this.dataWriter.generateTrialText();
+        long encoded = this.allocatedBytes();
+        this.sink += row.length();
+
+        if (measure) {
+            this.allocated[Phase.GENERATE.ordinal()] += generated - start - this.overhead;
+            this.allocated[Phase.PAIR_CONSTRUCTION.ordinal()] += madePair - pairStart - this.overhead;
+            this.allocated[Phase.SCORE.ordinal()] += scored - scoreStart - this.overhead;
+            this.allocated[Phase.ENCODE.ordinal()] += encoded - encodeStart - this.overhead;
+        }
+    }
+
+    /**
+     * Print bytes per round of every phase.
+     * @return True if every phase is within its budget.
+     */
+    private boolean report() {
+        boolean withinBudget = true;
+        System.out.println(String.format(Locale.ROOT, "%-18s %14s %10s  %s",
+                "Phase", "Bytes/round", "Budget", "Result"));
+        for (Phase phase : Phase.values()) {
+            double perRound = (double) this.allocated[phase.ordinal()] / MEASURED_ROUNDS;
+            boolean ok = perRound <= phase.getBudget();
+            withinBudget &= ok;
+            System.out.println(String.format(Locale.ROOT, "%-18s %14.1f %10d  %s",
+                    phase, perRound, phase.getBudget(), ok ? "ok" : "OVER BUDGET"));
+        }
+        System.out.println(MEASURED_ROUNDS + " rounds measured after " + WARM_UP_ROUNDS
+                + " warm-up rounds (checksum " + this.sink + ")");
+        if (POOLED) {
+            System.out.println("Pool misses: generator " + this.generator.getPool().getMisses()
+                    + ", construction " + this.pool.getMisses());
+        }
+        return withinBudget;
+    }
+}
@@ -0,0 +1,44 @@
+package benchmark;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Runs the benchmarks like the JMH main class,
+ * but always with the GC profiler so allocation rates are reported next to
+ * throughput and average time.
+ */
+public final class BenchmarkRunner {
+    
+    private BenchmarkRunner() {
+        
+    }
+    
+    /**
+     * Run the benchmarks.
+     * @param args JMH command line options, e.g. a benchmark name pattern.
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+    
+    /**
+     * Keep the game's log quiet while benchmarking.
+     */
+    static void silenceGameLog() {
+        Logger.getLogger("mylog").setLevel(Level.WARNING);
+    }
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.DataWriter;
+import javafx.beans.property.SimpleIntegerProperty;
+import model.ControlType;
+import model.DotsPair;
+import model.Player;
+
+/**
+ * Formatting a round as CSV text, and appending it to a subject's CSV file
+ * in a temporary results folder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataWriterBenchmark {
+    
+    private DataWriter dataWriter;
+    private Path resultsRoot;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkRunner.silenceGameLog();
+        Player player = new Player(new SimpleIntegerProperty(1234), 
+                Player.Gender.FEMALE, new SimpleIntegerProperty(7));
+        player.setResponseTime(650000000);
+        player.setRight(true);
+        player.incrementNumRounds();
+        this.resultsRoot = Files.createTempDirectory("dots-benchmark");
+        this.dataWriter = new DataWriter(player, new DotsPair(10, 18, ControlType.EQUAL_AREAS));
+        this.dataWriter.setResultsRoot(this.resultsRoot.toFile());
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(this.resultsRoot)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+    
+    @Benchmark
+    public String generateTrialText() {
+        return this.dataWriter.generateTrialText();
+    }
+    
+    @Benchmark
+    public void writeToCSV() {
+        this.dataWriter.writeToCSV();
+    }
+}
@@ -0,0 +1,55 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.DotSet;
+
+/**
+ * Construction of a single DotSet (random placement without overlap).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DotSetBenchmark {
+    
+    /** Average diameter and variance used by the average radius control, as in defaultconfig.properties. */
+    static final int AVERAGE_DIAMETER = 40;
+    static final int MAX_DIAMETER_VARIANCE = 12;
+    
+    @Param({"1", "8", "16", "26"})
+    public int numDots;
+    
+    /** RANDOM: each diameter between min.diameter and max.diameter. 
+     * AVERAGE_RADIUS: diameters spread around an average. */
+    @Param({"RANDOM", "AVERAGE_RADIUS"})
+    public String diameters;
+    
+    @Setup
+    public void setUp() {
+        /** Loads the configuration into DotSet. */
+        new DotSet(1);
+    }
+    
+    @Benchmark
+    public DotSet construct() {
+        if (this.diameters.equals("RANDOM")) {
+            return new DotSet(this.numDots);
+        }
+        return new DotSet(this.numDots, AVERAGE_DIAMETER, MAX_DIAMETER_VARIANCE);
+    }
+}
@@ -0,0 +1,47 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.ControlType;
+import model.DotsPair;
+
+/**
+ * Construction of a DotsPair, including area scaling, for every ControlType.
+ * 
+ * Note that with the default configuration (total area control on)
+ * RADIUS_AVERAGE_EQUAL and NONE fall back to a random area control.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DotsPairBenchmark {
+    
+    @Param
+    public ControlType controlType;
+    
+    /** Numbers of dots in the two sets, as "one:two". */
+    @Param({"2:4", "10:18", "8:26"})
+    public String numDots;
+    
+    @Benchmark
+    public DotsPair construct() {
+        int separator = this.numDots.indexOf(':');
+        int numDotsOne = Integer.parseInt(this.numDots.substring(0, separator));
+        int numDotsTwo = Integer.parseInt(this.numDots.substring(separator + 1));
+        return new DotsPair(numDotsOne, numDotsTwo, this.controlType);
+    }
+}
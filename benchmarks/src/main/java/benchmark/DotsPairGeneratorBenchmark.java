@@ -0,0 +1,48 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import controller.GameController;
+import model.DotsPairGenerator;
+
+/**
+ * A session's worth (NUM_ROUNDS) of DotsPairGenerator.getNewDifficultyPair calls,
+ * reported per pair.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DotsPairGeneratorBenchmark {
+    
+    private DotsPairGenerator dpg;
+    
+    @Setup
+    public void setUp() {
+        this.dpg = new DotsPairGenerator();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(GameController.NUM_ROUNDS)
+    public void session(Blackhole blackhole) {
+        for (int i = 0; i < GameController.NUM_ROUNDS; i++) {
+            this.dpg.getNewDifficultyPair();
+            blackhole.consume(this.dpg.getDotsPair());
+        }
+    }
+}
@@ -43,14 +43,25 @@ public class Config {
         }
     }
     
+    /**
+     * Grab the property as it is written. A system property of the same name,
+     * e.g. -Dwarm.up.on=False, takes the place of the default config file's value.
+     * @param key The key desired
+     * @return The value, or null if the property is not set.
+     */
+    private static String getProperty(String key) {
+        return System.getProperty(key, defaultProperties.getProperty(key));
+    }
+    
     /**
      * Grab the property and convert the value to a boolean.
      * @param key The key desired
      * @return The value as a boolean
      */
     public static Boolean getPropertyBoolean(String key) {
-        if (defaultProperties.containsKey(key)) {
-            return Boolean.valueOf(defaultProperties.getProperty(key));
+        String value = getProperty(key);
+        if (value != null) {
+            return Boolean.valueOf(value);
         } else {
             System.err.println("Property \""  + key + "\" not found.");
             return null;
@@ -63,11 +74,27 @@ public class Config {
      * @return The value as an int.
      */
     public static int getPropertyInt(String key) {
-        if (defaultProperties.containsKey(key)) {
-            return Integer.parseInt(defaultProperties.getProperty(key));
+        String value = getProperty(key);
+        if (value != null) {
+            return Integer.parseInt(value);
         } else {
             System.err.println("Property \""  + key + "\" not found.");
             return 0;
         }
     }
+    
+    /**
+     * Grab the property as a String, trimmed of surrounding whitespace.
+     * @param key The key desired
+     * @return The value as a String.
+     */
+    public static String getPropertyString(String key) {
+        String value = getProperty(key);
+        if (value != null) {
+            return value.trim();
+        } else {
+            System.err.println("Property \""  + key + "\" not found.");
+            return null;
+        }
+    }
 }
\ No newline at end of file
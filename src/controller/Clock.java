@@ -0,0 +1,30 @@
+package controller;
+
+/**
+ * Source of time and delayed actions for the timing-dependent parts of the game
+ * (flash time, time between rounds, get ready time and response time).
+ * 
+ * Classes Related to:
+ *  -DotsGameController.java
+ *      -All waiting and response time measurement in the controller goes through a Clock.
+ *  -SystemClock.java
+ *      -The real implementation used during sessions.
+ *  -VirtualClock.java
+ *      -Manually advanced implementation used to drive sessions without waiting.
+ */
+public interface Clock {
+    
+    /**
+     * Current time of this clock.
+     * @return time in nanoseconds, only meaningful relative to other readings of the same clock.
+     */
+    long nanoTime();
+    
+    /**
+     * Run an action once a delay has passed. Actions scheduled with the same
+     * due time run in the order they were scheduled.
+     * @param delayMillis delay in milliseconds.
+     * @param action the action to run.
+     */
+    void schedule(long delayMillis, Runnable action);
+}
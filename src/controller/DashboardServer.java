@@ -0,0 +1,225 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Small web server on localhost for watching a session live from another window:
+ * a dashboard page, the SessionMonitor as JSON, and a stream of every round
+ * written by the DataWriter as server-sent events.
+ *
+ * Everything runs on the server's own threads. Rounds are handed over through
+ * one bounded queue per client; publish() only offers to those queues, so it never
+ * blocks, and a client too slow to keep up loses rounds instead of holding up the game.
+ *
+ * Classes Related to:
+ *  -DotsGameController.java
+ *      -Starts the server and stops it at the end of the session.
+ *  -DataWriter.java
+ *      -Hands every row it writes to publish().
+ *  -SessionMonitor.java
+ *      -Source of the status.
+ */
+public class DashboardServer {
+
+    private static Logger logger = Logger.getLogger("mylog");
+
+    /** Most clients of the event stream at once; each takes one server thread. */
+    static final int MAX_STREAM_CLIENTS = 4;
+
+    /** Rounds waiting for each client before new ones are dropped. */
+    static final int CLIENT_QUEUE_SIZE = 256;
+
+    /** Time in seconds between keep alive comments on an idle event stream. */
+    static final int KEEP_ALIVE_TIME = 15;
+
+    static final String DASHBOARD_PAGE = "/res/web/dashboard.html";
+
+    private final int port;
+    private final SessionMonitor monitor;
+    private final String columnNames;
+
+    /** Queue of rounds for each connected client of the event stream. */
+    private final CopyOnWriteArrayList<BlockingQueue<String>> clients =
+            new CopyOnWriteArrayList<BlockingQueue<String>>();
+
+    /** One permit for each client the event stream can take, reserved before the client is added. */
+    private final Semaphore streamSlots = new Semaphore(MAX_STREAM_CLIENTS);
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Constructor.
+     * @param port Port on localhost to listen on.
+     * @param monitor Monitor of the session to show.
+     * @param columnNames Column names of the rows that will be published.
+     */
+    public DashboardServer(int port, SessionMonitor monitor, String columnNames) {
+        this.port = port;
+        this.monitor = monitor;
+        this.columnNames = columnNames.trim();
+    }
+
+    /**
+     * Start listening.
+     * @throws IOException If the port can't be bound.
+     */
+    public void start() throws IOException {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(MAX_STREAM_CLIENTS + 2, runnable -> {
+            Thread thread = new Thread(runnable, "dots-dashboard-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port), 0);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", this::handlePage);
+        this.server.createContext("/status", this::handleStatus);
+        this.server.createContext("/events", this::handleEvents);
+        this.server.start();
+        logger.info("Dashboard at http://localhost:" + this.port + "/");
+    }
+
+    /**
+     * Stop listening and close every event stream.
+     */
+    public void stop() {
+        if (this.server == null) {
+            return;
+        }
+        this.server.stop(0);
+        this.executor.shutdownNow();
+        this.server = null;
+        if (this.dropped.get() > 0) {
+            logger.warning(this.dropped.get() + " rounds were not sent to slow dashboard clients");
+        }
+    }
+
+    /**
+     * Send a row to every client of the event stream. Never blocks.
+     * @param row The row as written to the results file, ending in a line break.
+     */
+    public void publish(String row) {
+        for (BlockingQueue<String> client : this.clients) {
+            if (!client.offer(row)) {
+                this.dropped.incrementAndGet();
+            }
+        }
+    }
+
+    private void handlePage(HttpExchange exchange) throws IOException {
+        try (InputStream page = getClass().getResourceAsStream(DASHBOARD_PAGE)) {
+            if (!"/".equals(exchange.getRequestURI().getPath()) || page == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            send(exchange, "text/html; charset=utf-8", page.readAllBytes());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        try {
+            String status = String.format(Locale.ROOT, "{\"currentState\":\"%s\",\"gameState\":\"%s\","
+                    + "\"round\":%d,\"accuracy\":%.4f,\"rollingMeanResponseTimeMillis\":%.3f,"
+                    + "\"lastOnsetLatencyMillis\":%.3f,\"timingViolations\":%d,"
+                    + "\"droppedRounds\":%d}",
+                    this.monitor.getCurrentState(), this.monitor.getGameState(),
+                    this.monitor.getRoundNumber(), this.monitor.getAccuracy(),
+                    this.monitor.getRollingMeanResponseTimeMillis(),
+                    this.monitor.getLastOnsetLatencyMillis(), this.monitor.getTimingViolations(),
+                    this.dropped.get());
+            send(exchange, "application/json", status.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Stream rounds to one client until it goes away. The column names are sent
+     * first as a "columns" event, then every round as a message.
+     */
+    private void handleEvents(HttpExchange exchange) throws IOException {
+        if (!this.streamSlots.tryAcquire()) {
+            try {
+                exchange.sendResponseHeaders(503, -1);
+            } finally {
+                exchange.close();
+            }
+            return;
+        }
+        BlockingQueue<String> queue = new ArrayBlockingQueue<String>(CLIENT_QUEUE_SIZE);
+        try {
+            this.clients.add(queue);
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            write(out, "event: columns\ndata: " + this.columnNames + "\n\n");
+            while (!Thread.currentThread().isInterrupted()) {
+                String row = queue.poll(KEEP_ALIVE_TIME, TimeUnit.SECONDS);
+                if (row == null) {
+                    write(out, ": keep alive\n\n");
+                } else {
+                    write(out, "data: " + row.trim() + "\n\n");
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            // The client went away.
+        } finally {
+            this.clients.remove(queue);
+            this.streamSlots.release();
+            exchange.close();
+        }
+    }
+
+    private static void write(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void send(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * @return Number of clients of the event stream.
+     */
+    public int getNumClients() {
+        return this.clients.size();
+    }
+
+    /**
+     * @return Number of rounds dropped for clients that fell behind.
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+}
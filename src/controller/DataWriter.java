@@ -4,13 +4,25 @@ import java.io.BufferedWriter;
 import java.util.logging.Logger;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.time.LocalDateTime;
 
+import events.TrialWritten;
+import model.ConditionStatistics;
 import model.ControlType;
 import model.DotsPair;
 import model.DotsPairGenerator;
 import model.Player;
+import model.TrialHistory;
+import model.TrialPlan;
+import model.WeberFit;
+import store.PagedSessionStore;
+import store.SessionStore;
+import store.TrialRecord;
+import util.Checksums;
+import util.EventLog;
+import util.LatencyHistogram;
 
 
 /**
@@ -45,12 +57,74 @@ public class DataWriter {
     public static final String RESPONSE_TIME = "Response Time";
     public static final String DATE_TIME = "Date/Time";
     public static final String CONSECUTIVE_ROUND = "Consecutive Rounds";
+    public static final String CRC32C = "CRC32C";
+    public static final String SESSION_HASH = "Session Hash";
+    public static final String PHASE = "Phase";
+    public static final String ROUNDS = "Rounds";
+    public static final String COUNT = "Count";
+    public static final String P50 = "p50 (ms)";
+    public static final String P95 = "p95 (ms)";
+    public static final String P99 = "p99 (ms)";
+    public static final String MAX = "Max (ms)";
+    public static final String NUM_TRIALS = "Trials";
+    public static final String WEBER_FRACTION = "Weber Fraction";
+    public static final String CI_LOWER = "Weber Fraction 95% CI Lower";
+    public static final String CI_UPPER = "Weber Fraction 95% CI Upper";
+    public static final String LAPSE_RATE = "Lapse Rate";
+    public static final String AT_GRID_EDGE = "Fit At Grid Edge";
+    public static final String FIT_TIME = "Fit Time (ms)";
+    public static final String ACCURACY = "Accuracy";
+    public static final String MEAN_RT = "Mean RT (ms)";
+    public static final String SD_RT = "SD RT (ms)";
+    public static final String MEDIAN_RT = "Median RT (ms)";
+    public static final String P90_RT = "p90 RT (ms)";
+    public static final String MAD_RT = "MAD RT (ms)";
+    public static final String OUTLIERS = "Outliers";
+    
+    /** Names of the difficulties, indexed as in TrialHistory. */
+    static final String[] DIFFICULTY_NAMES = {"EASY", "MEDIUM", "HARD", "OTHER"};
+    
+    /** Folder containing a subfolder of results for every subject. */
+    public static final String RESULTS_FOLDER = "results_dots";
+    
+    /** Name of the session store in the results folder. */
+    public static final String STORE_FILE = "sessions.store";
     
     /** The subject to grab data from. */
     private Player player;
     /** DotsPair to grab data from. */
     private DotsPair dotsPair;
     
+    /** Folder the results folder is created in. */
+    private File resultsRoot = new File(".");
+    
+    /** Index of every subject with results, opened when first needed. */
+    private SubjectIndex subjectIndex;
+    
+    /** Offset in the results file of the session's first row, or -1 before the first row. */
+    private long sessionStart = -1;
+    /** Offset in the results file just past the session's last row, kept in memory
+     * after the session's first row so the file isn't looked up for every row. */
+    private long sessionEnd;
+    /** Number of rounds and correct rounds written this session. */
+    private int sessionRounds;
+    private int sessionCorrect;
+    /** When the session's first row was written. */
+    private String sessionFirstRun;
+    /** The session, as the time in milliseconds since the epoch its first row was written. */
+    private long sessionId;
+    /** Session hash of the session's last row, see Checksums. */
+    private int sessionHash = Checksums.SESSION_SEED;
+    
+    /** Store every row is also written to, or null to write only CSV files. */
+    private SessionStore sessionStore;
+    
+    /** Dashboard every row is also sent to, or null. */
+    private DashboardServer dashboard;
+    
+    /** Log of every row written, fetched again on the first write after it is closed. */
+    private EventLog eventLog;
+    
     /**
      * Constructor for data writer that takes in a controller
      * and grabs the player and dots pair.
@@ -58,7 +132,18 @@ public class DataWriter {
      */
     public DataWriter(DotsGameController dgc) {
         this.player = dgc.getThePlayer();
-        this.dotsPair = dgc.getCurrentDotsPair();
+        this.setDotsPair(dgc.getCurrentDotsPair());
+    }
+    
+    /**
+     * Constructor for data writer that writes a given subject and dots pair,
+     * without a controller.
+     * @param player The subject to grab data from.
+     * @param dotsPair DotsPair to grab data from.
+     */
+    public DataWriter(Player player, DotsPair dotsPair) {
+        this.player = player;
+        this.setDotsPair(dotsPair);
     }
     
     /**
@@ -67,7 +152,25 @@ public class DataWriter {
      */
     public void grabData(DotsGameController dgc) {
         this.player = dgc.getThePlayer();
-        this.dotsPair = dgc.getCurrentDotsPair();
+        this.setDotsPair(dgc.getCurrentDotsPair());
+    }
+    
+    /**
+     * Write a pair from now on. The writer keeps a reference to the pair until
+     * it is given the next one, so a pooled pair isn't filled again before it is written.
+     * @param dotsPair The pair, or null.
+     */
+    public void setDotsPair(DotsPair dotsPair) {
+        if (dotsPair == this.dotsPair) {
+            return;
+        }
+        if (dotsPair != null) {
+            dotsPair.retain();
+        }
+        if (this.dotsPair != null) {
+            this.dotsPair.release();
+        }
+        this.dotsPair = dotsPair;
     }
     
     /**
@@ -78,32 +181,296 @@ public class DataWriter {
      * CSV data. 
      */
     public void writeToCSV() {
-        
-        PrintWriter writer = null;
         String subjectId = Integer.toString(this.player.getSubjectID());
+        File file = new File(this.getSubjectDirectory(), "results_" + subjectId + ".csv");
+        long start = System.nanoTime();
+        TrialWritten event = new TrialWritten();
+        event.begin();
+        try {
+            String trialText = this.checksumTrialText(this.generateTrialText());
+            if (this.sessionStart < 0) {
+                this.sessionEnd = file.length();
+            }
+            this.sessionEnd += this.appendToFile(file, this.generateColumnNames(), trialText);
+            if (this.dashboard != null) {
+                this.dashboard.publish(trialText);
+            }
+            if (this.sessionStart < 0) {
+                this.sessionStart = this.sessionEnd - trialText.length();
+                this.sessionFirstRun = this.generateDateTimeText();
+                this.sessionId = System.currentTimeMillis();
+            }
+            if (this.sessionStore != null) {
+                this.sessionStore.append(this.generateTrialRecord());
+            }
+            this.sessionRounds++;
+            if (this.player.isRight()) {
+                this.sessionCorrect++;
+            }
+            if (event.shouldCommit()) {
+                event.bytes = trialText.length();
+                event.commit();
+            }
+            if (this.eventLog == null || this.eventLog.isClosed()) {
+                this.eventLog = EventLog.getDefault(new File(this.resultsRoot, RESULTS_FOLDER));
+            }
+            long end = System.nanoTime();
+            this.eventLog.log(EventLog.Type.TRIAL_WRITTEN, end, this.player.getSubjectID(), 
+                    this.player.getNumRounds(), trialText.length(), end - start);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+    
+    /**
+     * Add the CRC32C and session hash columns to a row, and advance the session hash.
+     * @param trialText The row, ending in a line break.
+     * @return The row with its checksums.
+     */
+    private String checksumTrialText(String trialText) {
+        String row = trialText.substring(0, trialText.length() - 1);
+        int crc = Checksums.crc(row);
+        this.sessionHash = Checksums.chain(this.sessionHash, crc);
+        return row + DELIMITER
+                + Checksums.toHex(crc) + DELIMITER
+                + Checksums.toHex(this.sessionHash) + "\n";
+    }
+    
+    /**
+     * Generate the record of the round (one pair) for the session store.
+     * @return The record.
+     */
+    public TrialRecord generateTrialRecord() {
+        return new TrialRecord(this.player.getSubjectID(), this.sessionId, 
+                this.player.getNumRounds(), System.currentTimeMillis(), (long) this.player.getRT(),
+                this.player.getSubjectAge(), this.player.getSubjectGender(),
+                this.dotsPair.isLeftCorrect(), this.player.isRight(),
+                this.dotsPair.getDotSetOne().getTotalNumDots(), this.dotsPair.getDotSetTwo().getTotalNumDots(),
+                this.dotsPair.getControlType(), TrialHistory.difficultyIndex(this.dotsPair.getDifference()),
+                Math.abs(this.dotsPair.getDifference()), this.dotsPair.getNumDotsRatio(), this.areaRatio());
+    }
+    
+    /**
+     * Also write every row to the session store in the results folder, 
+     * opening it if it isn't open yet.
+     */
+    public synchronized void openSessionStore() {
+        if (this.sessionStore != null) {
+            return;
+        }
+        try {
+            this.sessionStore = new PagedSessionStore(
+                    new File(new File(this.resultsRoot, RESULTS_FOLDER), STORE_FILE));
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+    
+    public SessionStore getSessionStore() {
+        return this.sessionStore;
+    }
+    
+    /**
+     * Close the session store, if open. Rows are no longer written to it until it is opened again.
+     */
+    public synchronized void closeSessionStore() {
+        if (this.sessionStore == null) {
+            return;
+        }
+        try {
+            this.sessionStore.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+        this.sessionStore = null;
+    }
+    
+    /**
+     * Add the session's rows to the subject index, and start a new session.
+     * Does nothing if no rows were written.
+     */
+    public void closeSession() {
+        if (this.sessionStart < 0) {
+            return;
+        }
+        this.getSubjectIndex().append(new SubjectIndex.Entry(this.player.getSubjectID(), 1,
+                this.sessionStart, this.sessionEnd, this.sessionRounds, this.sessionCorrect,
+                this.sessionFirstRun, this.generateDateTimeText()));
+        this.sessionStart = -1;
+        this.sessionHash = Checksums.SESSION_SEED;
+        this.sessionRounds = 0;
+        this.sessionCorrect = 0;
+    }
+    
+    /**
+     * The index of every subject with results, compacted when first opened.
+     * @return The index.
+     */
+    public synchronized SubjectIndex getSubjectIndex() {
+        if (this.subjectIndex == null) {
+            this.subjectIndex = new SubjectIndex(new File(this.resultsRoot, RESULTS_FOLDER));
+        }
+        return this.subjectIndex;
+    }
+    
+    /**
+     * Export the percentiles of every phase of the rounds to the subject's
+     * folder, next to the results CSV. One line per phase per session.
+     * @param timings The timings recorded during the session.
+     */
+    public void writeTimingSummary(TrialTimings timings) {
+        String subjectId = Integer.toString(this.player.getSubjectID());
+        File file = new File(this.getSubjectDirectory(), "timings_" + subjectId + ".csv");
+        String dateTime = this.generateDateTimeText();
+        String columnNames = SUBJECT_ID + DELIMITER
+                + DATE_TIME + DELIMITER
+                + PHASE + DELIMITER
+                + ROUNDS + DELIMITER
+                + COUNT + DELIMITER
+                + P50 + DELIMITER
+                + P95 + DELIMITER
+                + P99 + DELIMITER
+                + MAX + "\n";
+        String firstRounds = "1-" + TrialTimings.FIRST_ROUNDS;
+        String laterRounds = (TrialTimings.FIRST_ROUNDS + 1) + "+";
+        StringBuilder text = new StringBuilder();
+        for (TrialTimings.Phase phase : TrialTimings.Phase.values()) {
+            appendTimingRow(text, subjectId, dateTime, phase, "all", timings.getHistogram(phase));
+            appendTimingRow(text, subjectId, dateTime, phase, firstRounds, timings.getFirstRoundsHistogram(phase));
+            appendTimingRow(text, subjectId, dateTime, phase, laterRounds, timings.getLaterRoundsHistogram(phase));
+        }
+        this.appendToFile(file, columnNames, text.toString());
+    }
+    
+    private static void appendTimingRow(StringBuilder text, String subjectId, String dateTime,
+            TrialTimings.Phase phase, String rounds, LatencyHistogram histogram) {
+        text.append(subjectId).append(DELIMITER)
+            .append(dateTime).append(DELIMITER)
+            .append(phase).append(DELIMITER)
+            .append(rounds).append(DELIMITER)
+            .append(histogram.getTotalCount()).append(DELIMITER);
+        for (double percentile : TrialTimings.PERCENTILES) {
+            text.append(histogram.getValueAtPercentile(percentile) / 1000000.0).append(DELIMITER);
+        }
+        text.append(histogram.getMaxValue() / 1000000.0).append("\n");
+    }
+    
+    /**
+     * Append the fit of the Weber model to the subject's summary file.
+     * @param fit The fit of the subject's rounds.
+     */
+    public void writeWeberSummary(WeberFit.Result fit) {
+        String subjectId = Integer.toString(this.player.getSubjectID());
+        File file = new File(this.getSubjectDirectory(), "summary_" + subjectId + ".csv");
+        String columnNames = SUBJECT_ID + DELIMITER
+                + DATE_TIME + DELIMITER
+                + NUM_TRIALS + DELIMITER
+                + WEBER_FRACTION + DELIMITER
+                + CI_LOWER + DELIMITER
+                + CI_UPPER + DELIMITER
+                + LAPSE_RATE + DELIMITER
+                + AT_GRID_EDGE + DELIMITER
+                + FIT_TIME + "\n";
+        String text = subjectId + DELIMITER
+                + this.generateDateTimeText() + DELIMITER
+                + fit.getNumTrials() + DELIMITER
+                + fit.getWeberFraction() + DELIMITER
+                + fit.getLowerBound() + DELIMITER
+                + fit.getUpperBound() + DELIMITER
+                + fit.getLapseRate() + DELIMITER
+                + fit.isAtGridEdge() + DELIMITER
+                + fit.getFitTime() / 1000000.0 + "\n";
+        this.appendToFile(file, columnNames, text);
+    }
+    
+    /**
+     * Append the statistics of every condition with at least one round 
+     * to the subject's condition summary file.
+     * @param statistics Statistics of the session.
+     */
+    public void writeConditionSummary(ConditionStatistics statistics) {
+        String subjectId = Integer.toString(this.player.getSubjectID());
+        File file = new File(this.getSubjectDirectory(), "conditions_" + subjectId + ".csv");
+        String dateTime = this.generateDateTimeText();
+        String columnNames = SUBJECT_ID + DELIMITER
+                + DATE_TIME + DELIMITER
+                + DIFFICULTY + DELIMITER
+                + CONTROL_TYPE + DELIMITER
+                + WHICH_SIDE_CORRECT + DELIMITER
+                + COUNT + DELIMITER
+                + ACCURACY + DELIMITER
+                + MEAN_RT + DELIMITER
+                + SD_RT + DELIMITER
+                + MEDIAN_RT + DELIMITER
+                + P90_RT + DELIMITER
+                + MAD_RT + DELIMITER
+                + OUTLIERS + "\n";
+        StringBuilder text = new StringBuilder();
+        for (int difficulty = 0; difficulty < TrialHistory.NUM_DIFFICULTIES; difficulty++) {
+            for (ControlType controlType : ControlType.values()) {
+                for (boolean leftCorrect : new boolean[] {true, false}) {
+                    ConditionStatistics.Cell cell = statistics.getCell(difficulty, controlType, leftCorrect);
+                    if (cell.getCount() == 0) {
+                        continue;
+                    }
+                    text.append(subjectId).append(DELIMITER)
+                        .append(dateTime).append(DELIMITER)
+                        .append(DIFFICULTY_NAMES[difficulty]).append(DELIMITER)
+                        .append(controlTypeText(controlType)).append(DELIMITER)
+                        .append(leftCorrect ? "left" : "right").append(DELIMITER)
+                        .append(cell.getCount()).append(DELIMITER)
+                        .append(cell.getAccuracy()).append(DELIMITER)
+                        .append(cell.getMeanResponseTime() / 1000000.0).append(DELIMITER)
+                        .append(cell.getResponseTimeStdDev() / 1000000.0).append(DELIMITER)
+                        .append(cell.getMedianResponseTime() / 1000000.0).append(DELIMITER)
+                        .append(cell.getP90ResponseTime() / 1000000.0).append(DELIMITER)
+                        .append(cell.getMedianAbsoluteDeviation() / 1000000.0).append(DELIMITER)
+                        .append(cell.getNumOutliers()).append("\n");
+                }
+            }
+        }
+        this.appendToFile(file, columnNames, text.toString());
+    }
+    
+    /**
+     * Export the planned sequence of rounds to the subject's folder,
+     * so it can be reused for another session.
+     * @param plan The plan being followed.
+     */
+    public void writePlan(TrialPlan plan) {
+        String subjectId = Integer.toString(this.player.getSubjectID());
+        try {
+            plan.writeTo(new File(this.getSubjectDirectory(), "plan_" + subjectId + ".csv"));
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+    
+    /**
+     * The subject's folder inside the results folder, created if it doesn't exist.
+     * @return The subject's folder.
+     */
+    File getSubjectDirectory() {
+        File resultsDir = new File(this.resultsRoot, RESULTS_FOLDER);
+        File subjectDir = new File(resultsDir, Integer.toString(this.player.getSubjectID()));
+        subjectDir.mkdirs();
+        return subjectDir;
+    }
+    
+    /**
+     * Append text to a file, first writing the column names if the file is new.
+     * @param file The file to write to.
+     * @param columnNames Column names for a new file.
+     * @param text The text to append.
+     * @return Number of characters written, including the column names.
+     */
+    private int appendToFile(File file, String columnNames, String text) {
+        PrintWriter writer = null;
         try {
-            /** Grab path to project */
-            String path = new File(".").getAbsolutePath();
-            path = path.substring(0, path.length() - 1);
-            
-            /** Create results folder if doesn't exist */
-            File resultsDir = new File("results_dots");
-            resultsDir.mkdir();
-            
-            /** Create subject folder if doesn't exist */
-            File subjectDir = new File("results_dots\\" + subjectId);
-            subjectDir.mkdir();    
-            
-            /** Create new csv file for subject if doesn't exist */
-            File file = new File(path + "\\results_dots\\" + subjectId 
-                    + "\\results_" + subjectId + ".csv");   
-            logger.info(file.getPath());
-            String text = "";
             /** Write data to new file or append to old file */
             if (file.createNewFile()) {
-                text += this.generateColumnNames();
+                text = columnNames + text;
             }
-            text += this.generateTrialText();
             writer = new PrintWriter(
                         new BufferedWriter(
                             new FileWriter(file, true)));
@@ -111,18 +478,21 @@ public class DataWriter {
             
         } catch (Exception ex) {
             ex.printStackTrace();
-            
+            return 0;
         } finally {
-            writer.flush();
-            writer.close();
+            if (writer != null) {
+                writer.flush();
+                writer.close();
+            }
         } 
+        return text.length();
     }
     
     /**
      * Generate the column names.
      * @return String column names.
      */
-    private String generateColumnNames() {
+    public String generateColumnNames() {
         String text = SUBJECT_ID + DELIMITER
                 + SUBJECT_AGE + DELIMITER
                 + SUBJECT_GENDER + DELIMITER
@@ -138,7 +508,9 @@ public class DataWriter {
                 + AREA_RATIO + DELIMITER             
                 + RESPONSE_TIME + DELIMITER
                 + DATE_TIME + DELIMITER
-                + CONSECUTIVE_ROUND + "\n";
+                + CONSECUTIVE_ROUND + DELIMITER
+                + CRC32C + DELIMITER
+                + SESSION_HASH + "\n";
         return text;
     }
 
@@ -200,12 +572,12 @@ public class DataWriter {
     
     private String generateLeftChoiceText() {
         return Integer.toString(
-                this.dotsPair.getDotSetOne().getPositions().size());
+                this.dotsPair.getDotSetOne().getNumPlaced());
     }
     
     private String generateRightChoiceText() {
         return Integer.toString(
-                this.dotsPair.getDotSetTwo().getPositions().size());
+                this.dotsPair.getDotSetTwo().getNumPlaced());
     }
     
     private String generateWhichSideCorrectText() {
@@ -260,32 +632,36 @@ public class DataWriter {
     }
     
     private String generateControlTypeText() {
-        if (this.dotsPair.getControlType() == ControlType.EQUAL_AREAS) {
+        return controlTypeText(this.dotsPair.getControlType());
+    }
+    
+    public static String controlTypeText(ControlType controlType) {
+        if (controlType == ControlType.EQUAL_AREAS) {
             return "Equal Areas";
-        } else if (this.dotsPair.getControlType() == ControlType.INVERSE_AREAS) {
+        } else if (controlType == ControlType.INVERSE_AREAS) {
             return "Inverse Areas";
-        } else if (this.dotsPair.getControlType() == ControlType.RADIUS_AVERAGE_EQUAL) {
+        } else if (controlType == ControlType.RADIUS_AVERAGE_EQUAL) {
             return "Equal Average Radii";
-        } else if (this.dotsPair.getControlType() == ControlType.NONE) {
+        } else if (controlType == ControlType.NONE) {
             return "None";
         } 
         return "-";
     }
     
     private String generateNumDotsRatioText() {
-        double ratio = ((double) this.dotsPair.getDotSetOne().getTotalNumDots()) / this.dotsPair.getDotSetTwo().getTotalNumDots();
-        if (ratio < 1) {
-            ratio = 1 / ratio;
-        }
-        return Double.toString(ratio);
+        return Double.toString(this.dotsPair.getNumDotsRatio());
     }
     
     private String generateAreaRatioText() {
+        return Double.toString(this.areaRatio());
+    }
+    
+    private double areaRatio() {
         double ratio = ((double) this.dotsPair.getDotSetOne().getTotalArea() / this.dotsPair.getDotSetTwo().getTotalArea());
         if (ratio < 1) {
             ratio = 1 / ratio;
         }
-        return Double.toString(ratio);
+        return ratio;
     }
     
     private String generateResponseTimeText() {
@@ -300,4 +676,21 @@ public class DataWriter {
         return Integer.toString(
                 this.player.getNumRounds());
     }
+    
+    public void setDashboard(DashboardServer dashboard) {
+        this.dashboard = dashboard;
+    }
+    
+    public File getResultsRoot() {
+        return this.resultsRoot;
+    }
+    
+    /**
+     * Set the folder the results folder is created in. Defaults to the working directory.
+     * @param resultsRoot The folder.
+     */
+    public synchronized void setResultsRoot(File resultsRoot) {
+        this.resultsRoot = resultsRoot;
+        this.subjectIndex = null;
+    }
 }
@@ -1,32 +1,52 @@
 package controller;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.logging.Logger;
 
 import config.Config;
+import events.ResponseReceived;
+import events.StimulusHidden;
+import events.StimulusShown;
+import markers.MappedRingMarkerSink;
+import markers.Marker;
+import markers.MarkerBus;
+import markers.MarkerSink;
+import markers.PipeMarkerSink;
+import markers.UdpMarkerSink;
+import model.AdaptiveStaircase;
+import model.ConditionStatistics;
+import model.ControlType;
 import model.DotSet;
 import model.DotsPair;
 import model.DotsPairGenerator;
 import model.GameLogic;
 import model.Player;
+import model.TrialHistory;
+import model.TrialPlan;
+import model.TrialSequencePlanner;
+import model.WeberFit;
+import util.EventLog;
+import util.StartupTimer;
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.beans.property.SimpleIntegerProperty;
-import javafx.concurrent.Task;
-import javafx.concurrent.WorkerStateEvent;
 import javafx.event.EventHandler;
-import javafx.scene.Scene;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.media.AudioClip;
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
-import javafx.scene.media.MediaView;
 import javafx.scene.paint.Color;
 import javafx.util.Duration;
+import view.ExperimenterConsole;
 import view.GameGUI;
+import view.GameView;
+import view.GameViewModel;
 
 /**
  * 
@@ -36,6 +56,8 @@ import view.GameGUI;
  * Classes Related to:
  *  -GameGUI.java (view)
  *      -Updates elements of the GUI as the game progresses and responds.
+ *  -GameView.java (view)
+ *      -Everything after the login screen is shown through a GameView, so a session can also run without a screen.
  *  -DotsPairGenerator.java (model)
  *      -Calls on DotsPairGenerator to generate new DotsPairs.
  *  -DotsPair.java (model)
@@ -64,8 +86,11 @@ public class DotsGameController implements GameController {
     /** Time in milliseconds for the player to get ready after pressing start */
     final static int GET_READY_TIME = 2000;
     
+    /** Number of times the get ready bar is updated while filling. */
+    final static int GET_READY_STEPS = 100;
+    
     /** Integer representing each each background. */
-    private static int backgroundNumber = 0;
+    private int backgroundNumber = 0;
     
     /** Time between rounds in milliseconds. */
     static int TIME_BETWEEN_ROUNDS;
@@ -73,15 +98,110 @@ public class DotsGameController implements GameController {
     /** Time in milliseconds that the DotSets flash */
     static int FLASH_TIME;
     
+    /** Time in milliseconds an onset or flash time may be off before it counts as a timing violation. */
+    static int TIMING_VIOLATION_TOLERANCE;
+    
+    /** Whether to register a SessionMonitor MBean for live monitoring over JMX. */
+    static boolean JMX_MONITOR_ON;
+    
+    /** Whether to plan the whole sequence of rounds before the session. */
+    static boolean PLANNED_SEQUENCE;
+    
+    /** Plan file to reuse, or empty to make a new plan. */
+    static String PLAN_FILE;
+    
+    /** Whether to choose the numbers of dots adaptively. */
+    static boolean ADAPTIVE_DIFFICULTY;
+    
+    /** Number of bootstrap samples for the confidence interval of the Weber fraction. */
+    static int WEBER_BOOTSTRAP_SAMPLES;
+    
+    /** Whether to also write every round to the session store. */
+    static boolean SESSION_STORE_ON;
+    
+    /** Whether to warm up pair generation, painting and row encoding while the get ready bar fills. */
+    static boolean WARM_UP_ON;
+    
+    /** Whether to recycle a few pairs of dot sets instead of making new ones every round. */
+    static boolean POOLED_PAIRS_ON;
+    
+    /** Where responses come from: "keyboard" for JavaFX key events or "evdev" for a Linux input device. */
+    static String RESPONSE_SOURCE;
+    
+    /** Input device read when RESPONSE_SOURCE is "evdev". */
+    static String EVDEV_DEVICE;
+    
+    /** Whether to send markers at stimulus onset, stimulus offset and response. */
+    static boolean MARKERS_ON;
+    
+    /** Comma separated sinks to send markers to: udp, pipe and/or ring. */
+    static String MARKER_SINKS;
+    
+    /** Port on localhost the udp sink sends to. */
+    static int MARKER_UDP_PORT;
+    
+    /** Named pipe the pipe sink writes to. */
+    static String MARKER_PIPE;
+    
+    /** Memory-mapped file the ring sink writes to. */
+    static String MARKER_RING_FILE;
+    
+    /** Whether to serve a live dashboard of the session on localhost. */
+    static boolean DASHBOARD_ON;
+    
+    /** Port on localhost the dashboard is served on. */
+    static int DASHBOARD_PORT;
+    
+    /** Whether to open the experimenter console on a second screen. */
+    static boolean EXPERIMENTER_CONSOLE_ON;
+    
     /** DataWriter to export data to CSV. */
     private DataWriter dataWriter;
     
-    /** DotsPairGenerator to generate an DotsPair */
+    /** Clock used for every wait and for measuring response time. */
+    private Clock clock;
+    
+    /** Durations of every phase of the rounds. */
+    private TrialTimings timings;
+    
+    /** Where the responses of the rounds come from, picked when the game screen is first set. */
+    private ResponseSource responseSource;
+    
+    /** Sends markers for the EEG recording. Made in the background by preload. */
+    private MarkerBus markerBus;
+    
+    /** Live dashboard of the session, or null if off. */
+    private DashboardServer dashboard;
+    
+    /** Window for the experimenter on a second screen, or null if off or there is no second screen. */
+    private ExperimenterConsole console;
+    
+    /** Log of every response, written in the background. */
+    private EventLog eventLog;
+    
+    /** Live view of the session for the experimenter. */
+    private SessionMonitor monitor;
+    
+    /** Accuracy and response times of each condition. */
+    private ConditionStatistics conditionStats;
+    
+    /** DotsPairGenerator to generate an DotsPair. Made in the background by preload. */
     private DotsPairGenerator dpg;
-    /** The graphical user interface. */
-    private GameGUI theView;
-    /** The current scene. */
-    private Scene theScene;
+    
+    /** Counted down once preload is done. */
+    private final CountDownLatch preloaded = new CountDownLatch(1);
+    
+    /** What stopped preload before it was done, or null. Rethrown by awaitPreload. */
+    private volatile RuntimeException preloadFailure;
+    
+    /** Sounds played on every response, loaded in the background by preload. */
+    private AudioClip powerUpClip;
+    private AudioClip correctClip;
+    private AudioClip incorrectClip;
+    /** What the session is shown on: the graphical user interface, or a view without a screen. */
+    private GameView theView;
+    /** Progress bar, stars and background of the game screen, applied once per pulse. */
+    private GameViewModel viewModel;
     /** Left Canvas Graphics Context */
     private GraphicsContext gcLeft;
     /** Right Canvas Graphics Context */
@@ -95,64 +215,208 @@ public class DotsGameController implements GameController {
     /** The current DotsPair being evaluated by the subject. */
     private DotsPair currentDotsPair;
     
-    /** Used to measure response time. */
-    private static long responseTimeMetric;
-    
-    /** Current state of the overall game. */
-    public static CurrentState state;
-    
-    /** Describes the current state of gameplay */
-    private static GameState gameState;
-    
-    /** How many stars the player has earned. 
-     * The player earns a star for every time the
-     * progress bar is filled. */
-    private static int numStars = 0;
+    /** State of the session: current state, state of the round, response given and stars earned. */
+    private TrialStateMachine stateMachine;
     
     /** Number of stars earned before changing to next background. */
     private static final int STARS_PER_BACKGROUND = 3;
     
-    private enum GameState {
-        /** Player has responded and next round is loading. */
-        WAITING_BETWEEN_ROUNDS,
-        
-        /** Player has not responded and the dots sets are still visible. */
-        WAITING_FOR_RESPONSE_VISIBLE,
-        
-        /** Player has not responded and the dot sets have 
-         * already been hidden after the flash time has passed. */
-        WAITING_FOR_RESPONSE_BLANK,
-
-        NONE
-    }
+    /** Subject ID that already has results and was entered again to confirm it, or -1. */
+    private int confirmedSubjectId = -1;
     
-    private Object lock = new Object();
-    
-    /** Whether or not the user has provided feedback. */
-    private static boolean feedback_given;
+    /** Time to wait before the next round once the dots are hidden, or -1 if not requested yet. */
+    private int pendingWaitTime = -1;
     
     /** Alternate reference to "this" to be used in inner methods */
     private DotsGameController gameController;
     
     /** 
-     * Constructor for the controller. There is only meant
-     * to be one instance of the controller. Attaches listener
+     * Constructor for the controller. Each controller keeps its
+     * own session state, so several may exist at once. Attaches listener
      * for when user provides response during trials. On a response,
      * prepare the next round and record the data.
+     * 
+     * Only what the login screen needs is made here. The generator, subject index,
+     * session store, sounds and images are loaded in the background while the subject types.
      * @param view The graphical user interface.
      */
-    public DotsGameController(GameGUI view) {
+    public DotsGameController(GameView view) {
+        this(view, new SystemClock());
+    }
+    
+    /**
+     * Constructor for the controller with a specific clock, e.g. a VirtualClock
+     * to run through rounds without waiting in real time.
+     * @param view What the session is shown on.
+     * @param clock Clock to schedule waits and measure response times with.
+     */
+    public DotsGameController(GameView view, Clock clock) {
+        this(view, clock, new File("."));
+    }
+    
+    /**
+     * Constructor for the controller with a specific clock and results folder,
+     * e.g. to drive whole sessions without a screen.
+     * @param view What the session is shown on.
+     * @param clock Clock to schedule waits and measure response times with.
+     * @param resultsRoot Folder the results folder is created in.
+     */
+    public DotsGameController(GameView view, Clock clock, File resultsRoot) {
         
         loadConfig();
         
         this.gameController = this;
-        this.dpg = new DotsPairGenerator();
+        this.clock = clock;
+        this.stateMachine = new TrialStateMachine();
+        this.timings = new TrialTimings();
+        this.conditionStats = new ConditionStatistics();
         this.currentDotsPair = null;
         this.currentColor = 0;
         this.theView = view;
-        this.theScene = view.getScene();
+        this.viewModel = view.getViewModel();
         this.thePlayer = new Player();
         this.dataWriter = new DataWriter(this);
+        this.dataWriter.setResultsRoot(resultsRoot);
+        this.eventLog = EventLog.getDefault(new File(dataWriter.getResultsRoot(), DataWriter.RESULTS_FOLDER));
+        this.monitor = new SessionMonitor(this.stateMachine);
+        if (EXPERIMENTER_CONSOLE_ON) {
+            this.console = ExperimenterConsole.openOnSecondScreen(this);
+        }
+        Thread preloader = new Thread(this::preload, "dots-preload");
+        preloader.setDaemon(true);
+        preloader.start();
+    }
+    
+    /**
+     * Make everything not needed by the login screen: the generator and its plan,
+     * the subject index, the session store, the JMX monitor, the sounds and the images.
+     * Runs on its own thread while the subject types.
+     */
+    private void preload() {
+        long start = System.nanoTime();
+        try {
+            DotsPairGenerator generator = new DotsPairGenerator();
+            generator.setPooled(POOLED_PAIRS_ON);
+            if (PLANNED_SEQUENCE) {
+                generator.setPlan(this.loadOrMakePlan());
+            }
+            if (ADAPTIVE_DIFFICULTY) {
+                generator.setStaircase(new AdaptiveStaircase(DotsPairGenerator.MAX_DOTS));
+            }
+            this.dpg = generator;
+            this.dataWriter.getSubjectIndex();
+            if (SESSION_STORE_ON) {
+                this.dataWriter.openSessionStore();
+            }
+            if (JMX_MONITOR_ON) {
+                this.monitor.register();
+            }
+            this.markerBus = this.makeMarkerBus();
+            if (DASHBOARD_ON) {
+                this.startDashboard();
+            }
+            this.powerUpClip = loadClip("Powerup.wav");
+            this.correctClip = loadClip("Ping.aiff");
+            this.incorrectClip = loadClip("Basso.aiff");
+            theView.preloadImages();
+        } catch (RuntimeException ex) {
+            ex.printStackTrace();
+            this.preloadFailure = ex;
+        } finally {
+            preloaded.countDown();
+            StartupTimer.reportBackground("preload", start);
+        }
+    }
+    
+    /**
+     * Make the marker bus with every configured sink. Sinks that can't be
+     * opened are left out. Without MARKERS_ON the bus has no sinks and drops every marker.
+     * @return The marker bus.
+     */
+    private MarkerBus makeMarkerBus() {
+        List<MarkerSink> sinks = new ArrayList<MarkerSink>();
+        if (!MARKERS_ON) {
+            return new MarkerBus(sinks, null);
+        }
+        for (String sink : MARKER_SINKS.split(",")) {
+            try {
+                switch (sink.trim()) {
+                    case "udp":
+                        sinks.add(new UdpMarkerSink("127.0.0.1", MARKER_UDP_PORT));
+                        break;
+                    case "pipe":
+                        sinks.add(new PipeMarkerSink(new File(MARKER_PIPE)));
+                        break;
+                    case "ring":
+                        sinks.add(new MappedRingMarkerSink(new File(MARKER_RING_FILE), 
+                                MappedRingMarkerSink.DEFAULT_CAPACITY));
+                        break;
+                    default:
+                        logger.warning("Unknown marker sink " + sink);
+                }
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        File log = new File(new File(dataWriter.getResultsRoot(), DataWriter.RESULTS_FOLDER), "markers.csv");
+        return new MarkerBus(sinks, log);
+    }
+    
+    /**
+     * Start serving the dashboard and have the data writer send it every round.
+     */
+    private void startDashboard() {
+        DashboardServer server = new DashboardServer(DASHBOARD_PORT, this.monitor, 
+                this.dataWriter.generateColumnNames());
+        try {
+            server.start();
+            this.dashboard = server;
+            this.dataWriter.setDashboard(server);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+    
+    /**
+     * Load a sound from the sounds folder.
+     * @param soundFile Name of the sound file.
+     * @return The sound.
+     */
+    private AudioClip loadClip(String soundFile) {
+        URL sound = getClass().getResource("/res/sounds/" + soundFile);
+        return new AudioClip(sound.toString());
+    }
+    
+    /**
+     * Wait for preload to finish, if it has not yet.
+     * @throws IllegalStateException if preload failed, since the game can't
+     * run without what it makes.
+     */
+    private void awaitPreload() {
+        try {
+            preloaded.await();
+        } catch (InterruptedException ex) {
+            ex.printStackTrace();
+            Thread.currentThread().interrupt();
+        }
+        if (this.preloadFailure != null) {
+            throw new IllegalStateException("Preload failed", this.preloadFailure);
+        }
+    }
+    
+    /**
+     * Read the configured plan file, or plan a new session if there is none.
+     * @return The plan to follow.
+     */
+    private TrialPlan loadOrMakePlan() {
+        if (PLAN_FILE != null && !PLAN_FILE.isEmpty()) {
+            try {
+                return TrialPlan.readFrom(new File(PLAN_FILE));
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        return new TrialSequencePlanner().plan(NUM_PRACTICE_ROUNDS, NUM_ROUNDS);
     }
     
     /** 
@@ -162,32 +426,50 @@ public class DotsGameController implements GameController {
         new Config();
         FLASH_TIME = Config.getPropertyInt("flash.time");
         TIME_BETWEEN_ROUNDS = Config.getPropertyInt("time.between.rounds");
+        TIMING_VIOLATION_TOLERANCE = Config.getPropertyInt("timing.violation.tolerance");
+        JMX_MONITOR_ON = Config.getPropertyBoolean("jmx.monitor.on");
+        PLANNED_SEQUENCE = Config.getPropertyBoolean("planned.sequence");
+        PLAN_FILE = Config.getPropertyString("plan.file");
+        ADAPTIVE_DIFFICULTY = Config.getPropertyBoolean("adaptive.difficulty");
+        WEBER_BOOTSTRAP_SAMPLES = Config.getPropertyInt("weber.bootstrap.samples");
+        SESSION_STORE_ON = Config.getPropertyBoolean("session.store.on");
+        WARM_UP_ON = Config.getPropertyBoolean("warm.up.on");
+        POOLED_PAIRS_ON = Config.getPropertyBoolean("pooled.pairs.on");
+        RESPONSE_SOURCE = Config.getPropertyString("response.source");
+        EVDEV_DEVICE = Config.getPropertyString("evdev.device");
+        MARKERS_ON = Config.getPropertyBoolean("markers.on");
+        MARKER_SINKS = Config.getPropertyString("markers.sinks");
+        MARKER_UDP_PORT = Config.getPropertyInt("markers.udp.port");
+        MARKER_PIPE = Config.getPropertyString("markers.pipe");
+        MARKER_RING_FILE = Config.getPropertyString("markers.ring.file");
+        DASHBOARD_ON = Config.getPropertyBoolean("dashboard.on");
+        DASHBOARD_PORT = Config.getPropertyInt("dashboard.port");
+        EXPERIMENTER_CONSOLE_ON = Config.getPropertyBoolean("experimenter.console.on");
     }
     
     /**
      * Sets event listener for when subject clicks the start button or presses Enter.
      * Pass in the subject's ID number entered.
+     * @param view The graphical user interface showing the login screen.
      */
-    public void setLoginHandlers() {
+    public void setLoginHandlers(GameGUI view) {
         
-        this.theScene = theView.getScene();
-        
-        this.theView.getStart().setOnAction(e -> 
+        view.getStart().setOnAction(e -> 
             {
-                onClickStartButton();
+                onClickStartButton(view);
             });
-        this.theScene.setOnKeyPressed(new EventHandler<KeyEvent>() {
+        view.getScene().setOnKeyPressed(new EventHandler<KeyEvent>() {
             @Override
             public void handle(KeyEvent event) {
                 if (event.getCode() == KeyCode.ENTER) {                
-                    onClickStartButton();
+                    onClickStartButton(view);
                 }
             }
         });
-        this.theScene.addEventHandler(KeyEvent.KEY_PRESSED, new EventHandler<KeyEvent>() {
+        view.getScene().addEventHandler(KeyEvent.KEY_PRESSED, new EventHandler<KeyEvent>() {
             public void handle(final KeyEvent keyEvent) {
                 if (keyEvent.getCode() == KeyCode.ESCAPE) {
-                    theView.showExitPopup();
+                    view.showExitPopup();
                     keyEvent.consume();
                 }
             }
@@ -198,77 +480,118 @@ public class DotsGameController implements GameController {
      * Action to be executed upon clicking of Start on Login screen.
      * 
      * Records user inputted data and sets instructions screen.
+     * @param view The graphical user interface showing the login screen.
      */
-    private void onClickStartButton() {
-        theView.getFeedback().setVisible(false);
-        theView.getFeedbackAge().setVisible(false);
-        theView.getFeedbackGender().setVisible(false);
+    private void onClickStartButton(GameGUI view) {
+        view.getFeedback().setVisible(false);
+        view.getFeedbackAge().setVisible(false);
+        view.getFeedbackGender().setVisible(false);
+        view.getFeedbackDuplicateId().setVisible(false);
+        int subjectId;
         try {
-            gameController.thePlayer.setSubjectID(Integer.parseInt(theView.getEnterId().getText()));
+            subjectId = Integer.parseInt(view.getEnterId().getText());
         } catch (NumberFormatException ex) {
-            theView.getEnterId().requestFocus();
-            theView.getEnterId().setText("");
-            theView.getFeedback().setVisible(true);
+            view.getEnterId().requestFocus();
+            view.getEnterId().setText("");
+            view.getFeedback().setVisible(true);
             return;
         }    
-        if (theView.getPickMale().isSelected()) {
-            gameController.thePlayer.setSubjectGender(Player.Gender.MALE);
-        } else if (theView.getPickFemale().isSelected()) {
-            gameController.thePlayer.setSubjectGender(Player.Gender.FEMALE);
+        Player.Gender subjectGender;
+        if (view.getPickMale().isSelected()) {
+            subjectGender = Player.Gender.MALE;
+        } else if (view.getPickFemale().isSelected()) {
+            subjectGender = Player.Gender.FEMALE;
         } else {
-            theView.getFeedbackGender().setVisible(true);
+            view.getFeedbackGender().setVisible(true);
             return;
         }
+        int subjectAge;
         try {
-            gameController.thePlayer.setSubjectAge(Integer.parseInt(theView.getEnterAge().getText()));
+            subjectAge = Integer.parseInt(view.getEnterAge().getText());
         } catch (NumberFormatException ex) {
-            theView.getEnterAge().requestFocus();
-            theView.getEnterAge().setText("");
-            theView.getFeedbackAge().setVisible(true);
+            view.getEnterAge().requestFocus();
+            view.getEnterAge().setText("");
+            view.getFeedbackAge().setVisible(true);
             return;
         }
+        if (!this.logIn(subjectId, subjectGender, subjectAge)) {
+            view.getFeedbackDuplicateId().setVisible(true);
+        }
+    }
+    
+    /**
+     * Record the subject's details and set the instructions screen, once
+     * everything loaded in the background is ready.
+     * 
+     * A subject ID that already has results is only accepted when entered
+     * a second time in a row, to confirm it.
+     * @param subjectId The subject's ID number.
+     * @param subjectGender The subject's gender.
+     * @param subjectAge The subject's age.
+     * @return False if the subject ID already has results and still needs to be confirmed.
+     */
+    public boolean logIn(int subjectId, Player.Gender subjectGender, int subjectAge) {
+        thePlayer.setSubjectID(subjectId);
+        thePlayer.setSubjectGender(subjectGender);
+        thePlayer.setSubjectAge(subjectAge);
+        awaitPreload();
+        if (subjectId != confirmedSubjectId && dataWriter.getSubjectIndex().contains(subjectId)) {
+            confirmedSubjectId = subjectId;
+            return false;
+        }
         theView.setInstructionsScreen(); 
+        return true;
     }
     
     /** 
      * Set event listener on the Next button. 
+     * @param view The graphical user interface showing the instructions screen.
      */
-    public void setInstructionsHandlers() {
-        this.theScene = theView.getScene();
-        this.theView.getNext().setOnAction(e -> {
-            onClickNextInstructions();
+    public void setInstructionsHandlers(GameGUI view) {
+        view.getNext().setOnAction(e -> {
+            startPractice();
         });
-        this.theScene.setOnKeyPressed(new EventHandler<KeyEvent>() {
+        view.getScene().setOnKeyPressed(new EventHandler<KeyEvent>() {
             @Override
             public void handle(KeyEvent event) {
                 if (event.getCode() == KeyCode.ENTER) {
-                    onClickNextInstructions();
+                    startPractice();
                 }
             }
         });
     }
     
     /**
-     *  Actions to be executed on clicking the Next button 
+     * Actions to be executed on clicking the Next button: set the game
+     * screen and start the practice rounds.
      */
-    private void onClickNextInstructions() {
+    public void startPractice() {
         theView.setGameScreen(); 
-        state = CurrentState.PRACTICE;
+        if (stateMachine.setCurrentState(CurrentState.PRACTICE) && dpg.getPlan() != null) {
+            dataWriter.writePlan(dpg.getPlan());
+        }
     }
     
     /**
      * Set handler upon clicking the "Start Assessment" button, preparing for actual assessment.
+     * @param view The graphical user interface showing the practice complete screen.
+     */
+    public void setPracticeCompleteHandlers(GameGUI view) {
+        view.getStartAssessment().setOnAction( e-> {
+            this.startAssessment();
+        });
+    }
+    
+    /**
      * Sets the game screen and the state to GAMEPLAY from PRACTICE. Removes the "Practice" Label.
      * Resets the player's data.
      */
-    public void setPracticeCompleteHandlers() {
-        this.theView.getStartAssessment().setOnAction( e-> {
-            theView.setGameScreen();
-            theView.getPractice().setVisible(false);
-            state = CurrentState.GAMEPLAY;
-            gameState = GameState.WAITING_FOR_RESPONSE_VISIBLE;
-            this.resetPlayer();
-        });
+    public void startAssessment() {
+        theView.setGameScreen();
+        theView.hidePractice();
+        stateMachine.setCurrentState(CurrentState.GAMEPLAY);
+        timings.reset();
+        this.resetPlayer();
     }
     
     /** 
@@ -279,6 +602,8 @@ public class DotsGameController implements GameController {
         Player.Gender subjectGender = thePlayer.getSubjectGender();
         SimpleIntegerProperty subjectAge = new SimpleIntegerProperty(thePlayer.getSubjectAge());
         thePlayer = new Player(subjectID, subjectGender, subjectAge);
+        monitor.resetRounds();
+        conditionStats.reset();
     }
     
     /** 
@@ -286,36 +611,82 @@ public class DotsGameController implements GameController {
      * during a round. 
      */
     public void setGameHandlers() {
-        this.theScene = theView.getScene();
-        this.theScene.setOnKeyPressed(new EventHandler<KeyEvent>() {
-            @Override
-            public void handle(KeyEvent event) {
-                if ((event.getCode() == KeyCode.F 
-                        || event.getCode() == KeyCode.J) 
-                        && !feedback_given) {
-                    gameController.handlePressForJ(event);
-                }
-            }
+        if (this.responseSource == null) {
+            this.responseSource = this.makeResponseSource();
+        }
+        this.responseSource.start((leftPicked, pressTime) -> {
+            gameController.handlePressForJ(leftPicked, pressTime);
         });
     }  
     
+    /**
+     * @return Whether a round is shown, or was shown, and the subject has not responded yet.
+     */
+    public boolean isWaitingForResponse() {
+        TrialStateMachine.Snapshot snapshot = stateMachine.get();
+        return !snapshot.isFeedbackGiven()
+                && (snapshot.getGameState() == GameState.WAITING_FOR_RESPONSE_VISIBLE
+                || snapshot.getGameState() == GameState.WAITING_FOR_RESPONSE_BLANK);
+    }
+    
+    /**
+     * Make the configured response source, falling back to key events
+     * if the input device cannot be read.
+     * @return The response source.
+     */
+    private ResponseSource makeResponseSource() {
+        if ("evdev".equalsIgnoreCase(RESPONSE_SOURCE)) {
+            File device = new File(EVDEV_DEVICE);
+            if (EvdevResponseSource.isAvailable(device)) {
+                logger.info("Reading responses from " + device);
+                return new EvdevResponseSource(device);
+            }
+            logger.warning("Cannot read " + device + ", using key events for responses");
+        }
+        return theView.makeKeyResponseSource(this.clock);
+    }
+    
     /**
      * Actions to be executed on the pressing of the F or J key.
      * Update the models/data, prepare the next round, and export data to CSV.
-     * @param event
+     * Only the first response of a round is accepted. A press from before the
+     * dots of the round were shown, e.g. one the input device delivered late,
+     * is dropped and the round keeps waiting.
+     * @param leftPicked True if F was pressed, false for J.
+     * @param pressTime Time in nanoseconds the key went down.
      */
-    private void handlePressForJ(KeyEvent event) {
-        this.responseAndUpdate(event);
-        this.prepareNextRound(); 
+    private void handlePressForJ(boolean leftPicked, long pressTime) {
+        if (pressTime < this.stateMachine.getResponseOnset()) {
+            logger.info("Dropped a press made " + (this.stateMachine.getResponseOnset() - pressTime) / 1000000.0 
+                    + " ms before the dots were shown");
+            return;
+        }
+        if (this.stateMachine.respond() == null) {
+            return;
+        }
+        markerBus.publish(leftPicked ? Marker.RESPONSE_LEFT : Marker.RESPONSE_RIGHT, 
+                stateMachine.get().getRoundNumber(), pressTime);
+        this.responseAndUpdate(leftPicked, pressTime);
+        ResponseReceived responseEvent = new ResponseReceived();
+        if (responseEvent.shouldCommit()) {
+            responseEvent.key = leftPicked ? KeyCode.F.toString() : KeyCode.J.toString();
+            responseEvent.correct = thePlayer.isRight();
+            responseEvent.responseTime = (long) thePlayer.getRT();
+            responseEvent.commit();
+        }
         this.exportDataToCSV();
+        this.prepareNextRound(); 
     }
     
     /** 
-     * Export data to CSV file.
+     * Export data to CSV file. Called before prepareNextRound(), so the last
+     * round is written while still in GAMEPLAY and before finishGame() closes the session.
      */
     private void exportDataToCSV() {
-        if (state == CurrentState.GAMEPLAY) {
+        if (stateMachine.get().getCurrentState() == CurrentState.GAMEPLAY) {
+            long start = clock.nanoTime();
             dataWriter.writeToCSV();    
+            timings.record(TrialTimings.Phase.DATA_WRITE, clock.nanoTime() - start);
         }
     }
     
@@ -328,14 +699,22 @@ public class DotsGameController implements GameController {
      */
     public void responseAndUpdate (
             KeyEvent e) {
-        feedback_given = true;
-        if (gameState == GameState.WAITING_FOR_RESPONSE_BLANK) {
-            gameState = GameState.WAITING_BETWEEN_ROUNDS;
-        }
+        this.responseAndUpdate(e.getCode() == KeyCode.F, clock.nanoTime());
+    }
+    
+    /**
+     * Update models and view appropriately according to correctness
+     * of subject's response.  
+     * @param leftPicked True if the subject picked the left option.
+     * @param pressTime Time in nanoseconds the key went down.
+     */
+    public void responseAndUpdate(boolean leftPicked, long pressTime) {
         DotsPair dp = this.currentDotsPair;
-        boolean correct = GameLogic.checkAnswerCorrect(e, dp);
-        this.updatePlayer(correct);   
+        boolean correct = GameLogic.checkAnswerCorrect(leftPicked, dp);
+        this.dpg.recordResponse(correct);
+        this.updatePlayer(correct, pressTime);   
         this.updateGUI(correct);
+        timings.record(TrialTimings.Phase.CSS_LAYOUT, viewModel.takeCssLayoutTime());
         this.dataWriter.grabData(this);
     }
     
@@ -343,10 +722,11 @@ public class DotsGameController implements GameController {
      * 
      * @param currentPlayer The current player.
      * @param correct True if subject's reponse is correct. False otherwise.
+     * @param pressTime Time in nanoseconds the key went down.
      */
-    private void updatePlayer(boolean correct) {
+    private void updatePlayer(boolean correct, long pressTime) {
         Player currentPlayer = this.thePlayer;
-        this.recordResponseTime();
+        this.recordResponseTime(pressTime);
         if (correct) {
             currentPlayer.addPoint();
             currentPlayer.setRight(true);
@@ -354,6 +734,18 @@ public class DotsGameController implements GameController {
             currentPlayer.setRight(false);
         }
         currentPlayer.incrementNumRounds();
+        monitor.recordResponse(correct, (long) currentPlayer.getRT());
+        currentPlayer.getHistory().record(
+                currentDotsPair.getDotSetOne().getTotalNumDots(),
+                currentDotsPair.getDotSetTwo().getTotalNumDots(),
+                currentDotsPair.getControlType(),
+                correct,
+                (long) currentPlayer.getRT(),
+                stateMachine.getResponseOnset());
+        if (conditionStats.record(currentDotsPair, correct, (long) currentPlayer.getRT())) {
+            eventLog.log(EventLog.Type.OUTLIER, pressTime, currentPlayer.getNumRounds(), 0,
+                    (long) currentPlayer.getRT(), 0);
+        }
     }
     
     /** 
@@ -362,29 +754,27 @@ public class DotsGameController implements GameController {
      */
     private void updateGUI(boolean correct) {
         if (correct) {
-            if (theView.getProgressBar().isIndeterminate()) {
-                theView.getProgressBar().setProgress(0.0);
-                theView.getProgressBar().setStyle("-fx-accent: #0094C5;");
+            if (viewModel.isIndeterminate()) {
+                viewModel.setProgress(0.0);
+                viewModel.setAccent(GameViewModel.Accent.NORMAL);
             }
-            theView.getProgressBar().setProgress(theView.getProgressBar().getProgress() + .1666667);
-            if (theView.getProgressBar().getProgress() >= 1.00) {
-                theView.getProgressBar().setProgress(0.25);
+            viewModel.setProgress(viewModel.getProgress() + .1666667);
+            if (viewModel.getProgress() >= 1.00) {
+                viewModel.setProgress(0.25);
                 
-                URL powerUpSound = getClass().getResource("/res/sounds/Powerup.wav");
-                new AudioClip(powerUpSound.toString()).play();
+                theView.playClip(powerUpClip);
                 
-                int starToReveal = numStars;
-                theView.getStarNodes()[starToReveal].setVisible(true);
-                numStars++;
+                int starToReveal = stateMachine.addStar();
+                viewModel.setStarVisible(starToReveal, true);
                 
                 this.checkBackground();
             }
         } else {
-            theView.getProgressBar().setStyle("-fx-accent: #0094C5;");
+            viewModel.setAccent(GameViewModel.Accent.NORMAL);
             if (PUNISH) {
-                theView.getProgressBar().setProgress(theView.getProgressBar().getProgress() - .125);
-                if (theView.getProgressBar().isIndeterminate()) {
-                    theView.getProgressBar().setStyle("-fx-accent: red;");                    
+                viewModel.setProgress(viewModel.getProgress() - .125);
+                if (viewModel.isIndeterminate()) {
+                    viewModel.setAccent(GameViewModel.Accent.EMPTY);
                 }
             }
         }
@@ -395,80 +785,63 @@ public class DotsGameController implements GameController {
      * Check to see if background needs to be switched and if so change the background.
      */
     private void checkBackground() {
-        if (numStars % STARS_PER_BACKGROUND == 0) {
-            theView.changeBackground(++backgroundNumber);
+        if (stateMachine.get().getNumStars() % STARS_PER_BACKGROUND == 0) {
+            viewModel.setBackgroundLevel(++backgroundNumber);
             if (this.currentColor < DOT_COLORS.length - 1) {
                 this.currentColor++;
             }
-            this.playSound("Applause.mp3", 1.4);
+            theView.playSound("Applause.mp3", 1.4);
         }    
     }
     
-    /** Play sound */
-    private void playSound(String soundFile, double rate) {
-        URL sound = getClass().getResource("/res/sounds/" + soundFile);
-        Media media = new Media(sound.toString());
-        MediaPlayer player = new MediaPlayer(media);
-        player.setAutoPlay(true);
-        player.setRate(rate);
-        MediaView mediaView = new MediaView(player);
-        theView.getLayout().getChildren().add(mediaView);
-    }
-    
     /** If user inputs correct answer play positive feedback sound,
      * if not then play negative feedback sound.
-     * @param feedbackSoundFileUrl the File Url of the Sound to be played.
      * @param correct whether the subject answered correctly or not.
      */
     private void feedbackSound(boolean correct) {
-        URL feedbackSoundFileUrl;
         if (correct) {
-            feedbackSoundFileUrl = 
-                    getClass().getResource("/res/sounds/Ping.aiff");
+            theView.playClip(correctClip);
         } else {
-            feedbackSoundFileUrl = 
-                    getClass().getResource("/res/sounds/Basso.aiff");
+            theView.playClip(incorrectClip);
         }
-        new AudioClip(feedbackSoundFileUrl.toString()).play();
     }
     
     /**
      * Prepare the first round by making a load bar to 
      * let the subject prepare for the first question.
      * 
-     * Also sets up the canvases on which the dots will be painted.
+     * Also sets up the canvases on which the dots will be painted,
+     * and warms up the work of a round while the bar fills.
      */
     public void prepareFirstRound() {
-        feedback_given = true;
-        Task<Void> sleeper = new Task<Void>() {   
-            @Override
-            protected Void call() throws Exception {
-                for (int i = 0; i < GET_READY_TIME; i++) {
-                    this.updateProgress(i, GET_READY_TIME); 
-                    Thread.sleep(1);
-                }
-                return null;
+        viewModel.reset();
+        if (WARM_UP_ON) {
+            new WarmUp(GET_READY_TIME, theView.getLeftOption().getWidth(), 
+                    theView.getLeftOption().getHeight()).start();
+        }
+        int round = stateMachine.resetRounds(true);
+        long dueTime = clock.nanoTime() + GET_READY_TIME * 1000000L;
+        pendingWaitTime = -1;
+        for (int i = 1; i < GET_READY_STEPS; i++) {
+            double progress = (double) i / GET_READY_STEPS;
+            clock.schedule(GET_READY_TIME * i / GET_READY_STEPS, () -> {
+                theView.setGetReadyProgress(progress);
+            });
+        }
+        clock.schedule(GET_READY_TIME, () -> {
+            if (stateMachine.beginRound(round) == null) {
+                return;
             }
-        };
-        theView.getGetReadyBar().progressProperty().bind(sleeper.progressProperty());
-        sleeper.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
-            @Override
-            public void handle(WorkerStateEvent e) {
-                gameState = GameState.WAITING_FOR_RESPONSE_VISIBLE;
-                feedback_given = false;
-                
-                gcLeft = theView.getLeftOption().getGraphicsContext2D();
-                gcRight = theView.getRightOption().getGraphicsContext2D();
-                
-                clearRound();    
-                setOptions();
+            
+            gcLeft = theView.getLeftOption().getGraphicsContext2D();
+            gcRight = theView.getRightOption().getGraphicsContext2D();
+            
+            clearRound();    
+            setOptions();
 
-                responseTimeMetric = System.nanoTime();
-                theView.getGetReadyBox().setVisible(false);
-            }
+            markOnset(dueTime);
+            theView.hideGetReady();
         });
-        Thread sleeperThread = new Thread(sleeper);
-        sleeperThread.start();
     }
     
     /**
@@ -487,7 +860,7 @@ public class DotsGameController implements GameController {
         if (thePlayer.getNumRounds() >= NUM_ROUNDS) {
             this.finishGame();
         }
-        if (state == CurrentState.PRACTICE && thePlayer.getNumRounds() >= NUM_PRACTICE_ROUNDS) {
+        if (stateMachine.get().getCurrentState() == CurrentState.PRACTICE && thePlayer.getNumRounds() >= NUM_PRACTICE_ROUNDS) {
             this.finishPractice();
         }
     } 
@@ -497,10 +870,75 @@ public class DotsGameController implements GameController {
      * then change the scene to the finish screen.
      */
     private void finishGame() {
+        stateMachine.setCurrentState(CurrentState.FINISHED);
+        stateMachine.resetRounds(true);
+        dataWriter.writeTimingSummary(timings);
+        dataWriter.writeConditionSummary(conditionStats);
+        dataWriter.closeSession();
+        dataWriter.closeSessionStore();
+        logger.info("Screen updates: " + viewModel.getAppliedWrites() + " of " 
+                + viewModel.getRequestedWrites() + " values written, " 
+                + viewModel.getCssLayoutPasses() + " CSS and layout passes");
+        this.logConditionSummary();
+        this.fitWeberFraction();
         theView.setFinishScreen(thePlayer.getNumCorrect(), backgroundNumber);
-        theView.getScene().setOnKeyPressed(null);
-        this.playSound("Applause.mp3", 1.4);
-        this.playSound("Correct1.wav", 1.4);
+        responseSource.stop();
+        markerBus.close();
+        eventLog.close();
+        monitor.unregister();
+        if (dashboard != null) {
+            dashboard.stop();
+        }
+        if (console != null) {
+            console.close();
+        }
+        theView.playSound("Applause.mp3", 1.4);
+        theView.playSound("Correct1.wav", 1.4);
+    }
+  
+    /**
+     * Log the accuracy and response times of every condition with at least one round.
+     */
+    private void logConditionSummary() {
+        StringBuilder summary = new StringBuilder("Conditions (difficulty, control type, side correct):");
+        for (int difficulty = 0; difficulty < TrialHistory.NUM_DIFFICULTIES; difficulty++) {
+            for (ControlType controlType : ControlType.values()) {
+                for (boolean leftCorrect : new boolean[] {true, false}) {
+                    ConditionStatistics.Cell cell = conditionStats.getCell(difficulty, controlType, leftCorrect);
+                    if (cell.getCount() == 0) {
+                        continue;
+                    }
+                    summary.append(String.format("%n%-6s %-20s %-5s n=%-3d accuracy=%.2f mean=%.0fms sd=%.0fms median=%.0fms p90=%.0fms outliers=%d",
+                            DataWriter.DIFFICULTY_NAMES[difficulty], DataWriter.controlTypeText(controlType),
+                            leftCorrect ? "left" : "right", cell.getCount(), cell.getAccuracy(),
+                            cell.getMeanResponseTime() / 1000000.0, cell.getResponseTimeStdDev() / 1000000.0,
+                            cell.getMedianResponseTime() / 1000000.0, cell.getP90ResponseTime() / 1000000.0,
+                            cell.getNumOutliers()));
+                }
+            }
+        }
+        logger.info(summary.toString());
+    }
+    
+    /**
+     * Fit the subject's Weber fraction on a background thread, so the finish
+     * screen isn't held up, and write it to the subject's summary file.
+     */
+    private void fitWeberFraction() {
+        final TrialHistory history = thePlayer.getHistory();
+        if (history.size() == 0) {
+            return;
+        }
+        Thread fitThread = new Thread(() -> {
+            WeberFit.Result fit = WeberFit.fit(history, WEBER_BOOTSTRAP_SAMPLES);
+            logger.info("Weber fraction: " + fit.getWeberFraction() 
+                    + " [" + fit.getLowerBound() + ", " + fit.getUpperBound() + "]"
+                    + " lapse rate: " + fit.getLapseRate()
+                    + (fit.isAtGridEdge() ? " (at the edge of the grid)" : "")
+                    + " (" + fit.getFitTime() / 1000000.0 + " ms)");
+            dataWriter.writeWeberSummary(fit);
+        }, "dots-weber-fit");
+        fitThread.start();
     }
   
     /**
@@ -509,8 +947,8 @@ public class DotsGameController implements GameController {
      */
     private void finishPractice() {
         theView.setPracticeCompleteScreen();
-        theView.getScene().setOnKeyPressed(null);
-        numStars = 0;
+        responseSource.stop();
+        stateMachine.resetRounds(false);
         backgroundNumber = 0;
     }
     
@@ -530,45 +968,74 @@ public class DotsGameController implements GameController {
 
     /**
      * Wait for a certain time and then set the next round.
+     * The wait only starts once the subject has responded and
+     * the dot sets have been hidden.
      */
     public void waitBeforeNextRoundAndUpdate(int waitTime) {
-        
-        Task<Void> sleeper = new Task<Void>() {
-            @Override
-            protected Void call() throws Exception {
-                int i = 0;
-                while (i < waitTime) {
-                    synchronized (lock) {
-                        if (gameState == GameState.WAITING_BETWEEN_ROUNDS) {
-                            this.updateProgress(i, waitTime); 
-                            Thread.sleep(1);
-                            i++;
-                        }
-                    }
-                }
-                return null;
-            }
-        };
-        sleeper.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
-            @Override
-            public void handle(WorkerStateEvent e) {
-                setOptions();
-                responseTimeMetric = System.nanoTime();
-                gameState = GameState.WAITING_FOR_RESPONSE_VISIBLE;
+        this.pendingWaitTime = waitTime;
+        TrialStateMachine.Snapshot snapshot = stateMachine.get();
+        if (snapshot.getGameState() == GameState.WAITING_BETWEEN_ROUNDS) {
+            this.startWaitBeforeNextRound(snapshot.getRoundNumber());
+        }
+    }
+    
+    /**
+     * Start the requested wait, then set the next round.
+     * @param round The round that has just ended.
+     */
+    private void startWaitBeforeNextRound(int round) {
+        if (this.pendingWaitTime < 0) {
+            return;
+        }
+        int waitTime = this.pendingWaitTime;
+        this.pendingWaitTime = -1;
+        long waitStart = clock.nanoTime();
+        long dueTime = waitStart + waitTime * 1000000L;
+        clock.schedule(waitTime, () -> {
+            if (stateMachine.beginRound(round) == null) {
+                return;
             }
+            timings.record(TrialTimings.Phase.INTER_TRIAL_WAIT, clock.nanoTime() - waitStart);
+            setOptions();
+            markOnset(dueTime);
         });
-        Thread sleeperThread = new Thread(sleeper);
-        sleeperThread.start();
+    }
+    
+    /**
+     * Start measuring response time from now, and report how late the
+     * dots were shown compared to when the round was due.
+     * @param dueTime Clock time at which the round was due.
+     */
+    private void markOnset(long dueTime) {
+        long onset = clock.nanoTime();
+        stateMachine.setResponseOnset(onset);
+        long latency = onset - dueTime;
+        monitor.recordOnsetLatency(latency);
+        if (latency > TIMING_VIOLATION_TOLERANCE * 1000000L) {
+            monitor.recordTimingViolation();
+        }
     }
 
     /**
      * Set and show the next round's choices.
      */
     public void setOptions() {
+        timings.setRound(thePlayer.getNumRounds() + 1);
+        long start = clock.nanoTime();
         this.prepareNextPair();
+        long generated = clock.nanoTime();
+        timings.record(TrialTimings.Phase.PAIR_GENERATION, generated - start);
         this.paintDots();
+        long painted = clock.nanoTime();
+        markerBus.publish(Marker.STIMULUS_ONSET, stateMachine.get().getRoundNumber(), painted);
+        timings.record(TrialTimings.Phase.PAINT, painted - generated);
+        StimulusShown shownEvent = new StimulusShown();
+        if (shownEvent.shouldCommit()) {
+            shownEvent.round = stateMachine.get().getRoundNumber();
+            shownEvent.paintTime = painted;
+            shownEvent.commit();
+        }
         this.hideDots();
-        feedback_given = false;
     }
     
     /**
@@ -588,49 +1055,58 @@ public class DotsGameController implements GameController {
         
         DotSet dotSetOne = this.currentDotsPair.getDotSetOne();
         DotSet dotSetTwo = this.currentDotsPair.getDotSetTwo();
-        this.paintDotSet(dotSetOne, gcLeft);
-        this.paintDotSet(dotSetTwo, gcRight);
+        paintDotSet(dotSetOne, gcLeft, DOT_COLORS[currentColor]);
+        paintDotSet(dotSetTwo, gcRight, DOT_COLORS[currentColor]);
     }
     
     /**
      * Hide the dot sets after some time (FLASH_TIME) has passed.
      */
     private void hideDots() { 
-        Task<Void> sleeper = new Task<Void>() {
-            @Override
-            protected java.lang.Void call() throws Exception {
-                Thread.sleep(FLASH_TIME);
-                return null;
-            }    
-        };
-        sleeper.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
-            @Override
-            public void handle(WorkerStateEvent event) {
-                gameController.clearRound();    
-                if (feedback_given) {
-                    DotsGameController.gameState = GameState.WAITING_BETWEEN_ROUNDS;
-                } else {
-                    DotsGameController.gameState = GameState.WAITING_FOR_RESPONSE_BLANK;
-                }
+        int round = stateMachine.get().getRoundNumber();
+        clock.schedule(FLASH_TIME, () -> {
+            TrialStateMachine.Snapshot hidden = stateMachine.hide(round);
+            if (hidden == null) {
+                return;
+            }
+            long hideStart = clock.nanoTime();
+            long flashHold = hideStart - stateMachine.getResponseOnset();
+            timings.record(TrialTimings.Phase.FLASH_HOLD, flashHold);
+            if (Math.abs(flashHold - FLASH_TIME * 1000000L) > TIMING_VIOLATION_TOLERANCE * 1000000L) {
+                monitor.recordTimingViolation();
+            }
+            StimulusHidden hiddenEvent = new StimulusHidden();
+            if (hiddenEvent.shouldCommit()) {
+                hiddenEvent.round = round;
+                hiddenEvent.clockHold = flashHold;
+                hiddenEvent.commit();
+            }
+            gameController.clearRound();    
+            long hideEnd = clock.nanoTime();
+            markerBus.publish(Marker.STIMULUS_OFFSET, round, hideEnd);
+            timings.record(TrialTimings.Phase.HIDE, hideEnd - hideStart);
+            if (hidden.getGameState() == GameState.WAITING_BETWEEN_ROUNDS) {
+                gameController.startWaitBeforeNextRound(round);
             }
         });
-        new Thread(sleeper).start();
     }
 
     /**
      * Paint the dots for a given dotset.
-     * @param 
+     * @param dotSet The dots to paint.
+     * @param graphicsContext Graphics context of the canvas to paint on.
+     * @param color Color of the dots.
      */
-    private void paintDotSet(DotSet dotSet, GraphicsContext graphicsContext) {
-        graphicsContext.setFill(DOT_COLORS[currentColor]);
+    static void paintDotSet(DotSet dotSet, GraphicsContext graphicsContext, Color color) {
+        graphicsContext.setFill(color);
         for (int i = 0; i < dotSet.getTotalNumDots(); i++) {
             
-            int x = dotSet.getPositions().get(i).x;
-            int y = dotSet.getPositions().get(i).y;
+            int x = dotSet.getX(i);
+            int y = dotSet.getY(i);
 
             graphicsContext.fillOval(x, y, 
-                    dotSet.getDiameters().get(i), 
-                    dotSet.getDiameters().get(i));
+                    dotSet.getDiameter(i), 
+                    dotSet.getDiameter(i));
         }
     }
    
@@ -639,26 +1115,36 @@ public class DotsGameController implements GameController {
      * Record the response time of the subject. 
      */
     public void recordResponseTime() {
-        long responseTime = System.nanoTime() - responseTimeMetric;
+        this.recordResponseTime(clock.nanoTime());
+    }
+    
+    /** 
+     * Record the response time of the subject. 
+     * @param pressTime Time in nanoseconds the key went down.
+     */
+    public void recordResponseTime(long pressTime) {
+        long responseTime = pressTime - stateMachine.getResponseOnset();
         thePlayer.setResponseTime(responseTime);
-        logger.info("Response time: " + responseTime / 1000000000.0);
+        timings.record(TrialTimings.Phase.RESPONSE_WAIT, responseTime);
+        eventLog.log(EventLog.Type.RESPONSE_TIME, pressTime, stateMachine.get().getRoundNumber(), 0,
+                responseTime, stateMachine.getResponseOnset());
     }
     
     /**
      * Slowly drains the progress bar to encourage the user not to spend too much time thinking.
      */
     public void beginProgressBarDrainage() {
-        theView.getProgressBar().setProgress(0.6);
+        viewModel.setProgress(0.6);
         
         Timeline drainer = new Timeline(
                 new KeyFrame(Duration.seconds(0), evt -> {
-                    if (gameController.theView.getProgressBar().getProgress() > 1.0) {
-                        gameController.theView.getProgressBar().setStyle("-fx-accent: #00CC00;");
+                    if (viewModel.getProgress() > 1.0) {
+                        viewModel.setAccent(GameViewModel.Accent.FULL);
                     } else {
-                        gameController.theView.getProgressBar().setStyle("-fx-accent: #0094C5;");
+                        viewModel.setAccent(GameViewModel.Accent.NORMAL);
                     }
-                    if (gameController.theView.getProgressBar().getProgress() > .005) {
-                        gameController.theView.getProgressBar().setProgress(theView.getProgressBar().getProgress() - .0035);
+                    if (viewModel.getProgress() > .005) {
+                        viewModel.setProgress(viewModel.getProgress() - .0035);
                     }
                 }), new KeyFrame(Duration.seconds(0.065)));
         drainer.setCycleCount(Animation.INDEFINITE);
@@ -689,11 +1175,23 @@ public class DotsGameController implements GameController {
         this.dpg = dpg;
     }
     
-    public GameGUI getTheView() {
+    public GameView getTheView() {
         return theView;
     }
     
-    public void setTheScene(Scene scene) {
-        this.theScene = scene;
+    public Clock getClock() {
+        return clock;
+    }
+    
+    public TrialStateMachine getStateMachine() {
+        return stateMachine;
+    }
+    
+    public TrialTimings getTimings() {
+        return timings;
+    }
+    
+    public SessionMonitor getMonitor() {
+        return monitor;
     }
 }
\ No newline at end of file
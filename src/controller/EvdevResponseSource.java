@@ -0,0 +1,173 @@
+package controller;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+import javafx.application.Platform;
+
+/**
+ * Responses read straight from a Linux input device (/dev/input/event*) on a
+ * thread of its own, timed with the timestamps the kernel puts on every event
+ * instead of the time the JavaFX event queue got around to them.
+ *
+ * The device is read as a stream of 64-bit struct input_event records
+ * (seconds, microseconds, type, code, value). Presses of KEY_F and KEY_J are
+ * responses; releases and auto repeats are skipped. The kernel stamps events with
+ * the wall clock, so every timestamp is moved onto the System.nanoTime() time base
+ * using an offset between the two clocks taken as the event is read.
+ *
+ * Any file of such records works, so a FIFO or a plain file can stand in for the
+ * device. At the end of a plain file the reader waits for more to be appended.
+ * tools.EvdevHarness replays records through a file or FIFO that way.
+ */
+public class EvdevResponseSource implements ResponseSource {
+
+    private static Logger logger = Logger.getLogger("mylog");
+
+    /** Size in bytes of a struct input_event on 64-bit Linux. */
+    public static final int RECORD_SIZE = 24;
+
+    /** Event type of key presses and releases. */
+    public static final int EV_KEY = 1;
+
+    /** Key codes from linux/input-event-codes.h. */
+    public static final int KEY_F = 33;
+    public static final int KEY_J = 36;
+
+    /** Value of an EV_KEY event for a press (0 is a release and 2 an auto repeat). */
+    public static final int KEY_PRESS = 1;
+
+    /** Time in milliseconds to wait at the end of a plain file before reading again. */
+    static final int POLL_INTERVAL = 10;
+
+    private final File device;
+
+    /** Runs the delivery of every response to the listener. */
+    private final Executor delivery;
+
+    /** Listener responses go to, or null while stopped. */
+    private volatile Listener listener;
+
+    /** Thread reading the device, or null if not started yet. */
+    private Thread reader;
+
+    /**
+     * Constructor for a source delivering responses on the JavaFX Application Thread.
+     * @param device The input device, or a file of input_event records.
+     */
+    public EvdevResponseSource(File device) {
+        this(device, Platform::runLater);
+    }
+
+    /**
+     * Constructor for a source delivering responses through an executor, e.g.
+     * on the reader thread itself to take responses without the JavaFX toolkit.
+     * @param device The input device, or a file of input_event records.
+     * @param delivery Runs the delivery of every response to the listener.
+     */
+    public EvdevResponseSource(File device, Executor delivery) {
+        this.device = device;
+        this.delivery = delivery;
+    }
+
+    /**
+     * Whether a device can be read at all, e.g. to fall back to key events if not.
+     * @param device The input device.
+     * @return True if the device exists and is readable.
+     */
+    public static boolean isAvailable(File device) {
+        return device.exists() && device.canRead();
+    }
+
+    @Override
+    public synchronized void start(Listener listener) {
+        this.listener = listener;
+        if (this.reader == null) {
+            this.reader = new Thread(this::readEvents, "dots-evdev");
+            this.reader.setDaemon(true);
+            this.reader.setPriority(Thread.MAX_PRIORITY);
+            this.reader.start();
+        }
+    }
+
+    /**
+     * Stop delivering responses. The reader thread keeps reading, so that
+     * starting again does not need to reopen the device, but drops every event.
+     */
+    @Override
+    public void stop() {
+        this.listener = null;
+    }
+
+    /**
+     * Read events until the device goes away.
+     */
+    private void readEvents() {
+        byte[] record = new byte[RECORD_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(record).order(ByteOrder.nativeOrder());
+        try (InputStream in = new FileInputStream(this.device)) {
+            while (true) {
+                readRecord(in, record);
+                long seconds = buffer.getLong(0);
+                long micros = buffer.getLong(8);
+                int type = buffer.getShort(16) & 0xFFFF;
+                int code = buffer.getShort(18) & 0xFFFF;
+                int value = buffer.getInt(20);
+                if (type != EV_KEY || value != KEY_PRESS || (code != KEY_F && code != KEY_J)) {
+                    continue;
+                }
+                long pressTime = toNanoTime(seconds * 1000000000L + micros * 1000L);
+                boolean leftPicked = code == KEY_F;
+                this.delivery.execute(() -> {
+                    Listener current = this.listener;
+                    if (current != null) {
+                        current.respond(leftPicked, pressTime);
+                    }
+                });
+            }
+        } catch (IOException ex) {
+            logger.warning("Stopped reading responses from " + this.device + ": " + ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Read one whole record, waiting at the end of a plain file for more to be written.
+     * @param in The device.
+     * @param record Where to put the record.
+     * @throws IOException if the device cannot be read.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private static void readRecord(InputStream in, byte[] record) throws IOException, InterruptedException {
+        int read = 0;
+        while (read < record.length) {
+            int n = in.read(record, read, record.length - read);
+            if (n < 0) {
+                Thread.sleep(POLL_INTERVAL);
+            } else {
+                read += n;
+            }
+        }
+    }
+
+    /**
+     * Move a wall clock time onto the System.nanoTime() time base.
+     * @param epochNanos Nanoseconds since the epoch.
+     * @return the same moment as a System.nanoTime() reading.
+     */
+    static long toNanoTime(long epochNanos) {
+        long before = System.nanoTime();
+        Instant now = Instant.now();
+        long after = System.nanoTime();
+        long nowEpochNanos = now.getEpochSecond() * 1000000000L + now.getNano();
+        return epochNanos - nowEpochNanos + before + (after - before) / 2;
+    }
+}
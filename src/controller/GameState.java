@@ -0,0 +1,23 @@
+package controller;
+
+/**
+ * Enum describing the point in time within a single round.
+ * 
+ * @author Tony Jiang
+ * 6-25-2015
+ * 
+ */
+public enum GameState {
+    /** Player has responded and next round is loading. */
+    WAITING_BETWEEN_ROUNDS,
+    
+    /** Player has not responded and the dots sets are still visible. */
+    WAITING_FOR_RESPONSE_VISIBLE,
+    
+    /** Player has not responded and the dot sets have 
+     * already been hidden after the flash time has passed. */
+    WAITING_FOR_RESPONSE_BLANK,
+
+    /** No round has been set since the last reset. */
+    NONE
+}
@@ -0,0 +1,44 @@
+package controller;
+
+import javafx.event.EventHandler;
+import javafx.scene.Scene;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+
+/**
+ * Responses taken from the key events of a Scene. The press is timed when the
+ * event is handled, so the time spent in the event queue counts toward the response time.
+ */
+public class KeyEventResponseSource implements ResponseSource {
+    
+    private final Scene scene;
+    private final Clock clock;
+    
+    /**
+     * Constructor.
+     * @param scene The scene whose key events are the responses.
+     * @param clock Clock to time the presses with.
+     */
+    public KeyEventResponseSource(Scene scene, Clock clock) {
+        this.scene = scene;
+        this.clock = clock;
+    }
+
+    @Override
+    public void start(Listener listener) {
+        this.scene.setOnKeyPressed(new EventHandler<KeyEvent>() {
+            @Override
+            public void handle(KeyEvent event) {
+                if (event.getCode() == KeyCode.F 
+                        || event.getCode() == KeyCode.J) {
+                    listener.respond(event.getCode() == KeyCode.F, clock.nanoTime());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        this.scene.setOnKeyPressed(null);
+    }
+}
@@ -0,0 +1,43 @@
+package controller;
+
+/**
+ * Source of the subject's F and J responses during the rounds.
+ * 
+ * Every response is handed to the listener on the JavaFX Application Thread,
+ * together with the time the key went down, read on the same time base as
+ * System.nanoTime() so it can be compared with the onset of the round.
+ * 
+ * Classes Related to:
+ *  -DotsGameController.java
+ *      -Picks a source when the game screen is set and scores every response it delivers.
+ *  -KeyEventResponseSource.java
+ *      -Responses taken from JavaFX key events, the fallback that works everywhere.
+ *  -EvdevResponseSource.java
+ *      -Responses read straight from a Linux input device, with kernel timestamps.
+ */
+public interface ResponseSource {
+    
+    /**
+     * Receives the responses of a ResponseSource.
+     */
+    interface Listener {
+        
+        /**
+         * Called on the JavaFX Application Thread for every press of F or J.
+         * @param leftPicked True if the left option (F) was picked, false for the right (J).
+         * @param pressTime Time in nanoseconds the key went down.
+         */
+        void respond(boolean leftPicked, long pressTime);
+    }
+    
+    /**
+     * Start delivering responses to a listener. Calling it again replaces the listener.
+     * @param listener The listener.
+     */
+    void start(Listener listener);
+    
+    /**
+     * Stop delivering responses.
+     */
+    void stop();
+}
@@ -0,0 +1,184 @@
+package controller;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Live view of a session for the experimenter, registered as a JMX MBean.
+ * 
+ * The controller writes into this from the JavaFX Application Thread and JMX
+ * clients read from their own threads. Every attribute is a volatile field,
+ * an atomic or a snapshot of the TrialStateMachine, so reads never take a lock
+ * and polling never blocks the game.
+ * 
+ * Classes Related to:
+ *  -DotsGameController.java
+ *      -Creates and registers the monitor and reports every round to it.
+ *  -TrialStateMachine.java
+ *      -Source of the current state and transition counts.
+ */
+public class SessionMonitor implements SessionMonitorMBean {
+    
+    /** Domain of the ObjectName every monitor is registered under. */
+    public static final String JMX_DOMAIN = "visionlab.dots";
+    
+    /** Number of rounds the rolling mean response time is taken over. */
+    static final int ROLLING_WINDOW = 10;
+    
+    /** Used to give each monitor in the JVM its own name. */
+    private static final AtomicInteger instanceCounter = new AtomicInteger();
+    
+    private final TrialStateMachine stateMachine;
+    
+    /** Name this monitor was registered under, or null if not registered. */
+    private ObjectName objectName;
+    
+    /** 
+     * Rounds answered in the high 32 bits and rounds correct in the low 32 bits,
+     * in one field so a reader always sees a matching pair.
+     * Only written from the JavaFX Application Thread. 
+     */
+    private volatile long rounds;
+    private volatile double rollingMeanResponseTime;
+    private volatile long lastOnsetLatency;
+    
+    private final AtomicLong timingViolations = new AtomicLong();
+    
+    /** Most recent response times, only touched from the JavaFX Application Thread. */
+    private final long[] recentResponseTimes = new long[ROLLING_WINDOW];
+    private int recentIndex;
+    private int recentCount;
+    
+    /**
+     * @param stateMachine The state machine of the session to watch.
+     */
+    public SessionMonitor(TrialStateMachine stateMachine) {
+        this.stateMachine = stateMachine;
+    }
+    
+    /**
+     * Register this monitor with the platform MBean server.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            this.objectName = new ObjectName(JMX_DOMAIN + ":type=SessionMonitor,name=session" 
+                    + instanceCounter.incrementAndGet());
+            server.registerMBean(this, this.objectName);
+        } catch (JMException ex) {
+            ex.printStackTrace();
+            this.objectName = null;
+        }
+    }
+    
+    /**
+     * Remove this monitor from the platform MBean server.
+     */
+    public void unregister() {
+        if (this.objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+        } catch (JMException ex) {
+            ex.printStackTrace();
+        }
+        this.objectName = null;
+    }
+    
+    /**
+     * Report the subject's response to a round.
+     * @param correct Whether the response was correct.
+     * @param responseTime Response time in nanoseconds.
+     */
+    void recordResponse(boolean correct, long responseTime) {
+        this.recentResponseTimes[this.recentIndex] = responseTime;
+        this.recentIndex = (this.recentIndex + 1) % ROLLING_WINDOW;
+        if (this.recentCount < ROLLING_WINDOW) {
+            this.recentCount++;
+        }
+        long sum = 0;
+        for (int i = 0; i < this.recentCount; i++) {
+            sum += this.recentResponseTimes[i];
+        }
+        this.rollingMeanResponseTime = (double) sum / this.recentCount;
+        this.rounds += correct ? (1L << 32) + 1 : 1L << 32;
+    }
+    
+    /**
+     * Report how late the dots of a round were shown.
+     * @param latency Nanoseconds between when the round was due and when its dots were shown.
+     */
+    void recordOnsetLatency(long latency) {
+        this.lastOnsetLatency = latency;
+    }
+    
+    /**
+     * Count an onset or flash time that missed its target.
+     */
+    void recordTimingViolation() {
+        this.timingViolations.incrementAndGet();
+    }
+    
+    /**
+     * Clear the counts of answered rounds, e.g. once practice is over.
+     */
+    void resetRounds() {
+        this.rounds = 0;
+        this.recentCount = 0;
+        this.recentIndex = 0;
+        this.rollingMeanResponseTime = 0;
+    }
+
+    @Override
+    public String getCurrentState() {
+        return this.stateMachine.get().getCurrentState().toString();
+    }
+
+    @Override
+    public String getGameState() {
+        return this.stateMachine.get().getGameState().toString();
+    }
+
+    @Override
+    public int getRoundNumber() {
+        return (int) (this.rounds >>> 32);
+    }
+
+    @Override
+    public double getAccuracy() {
+        long counts = this.rounds;
+        int answered = (int) (counts >>> 32);
+        return answered == 0 ? 0 : (double) (int) counts / answered;
+    }
+
+    @Override
+    public double getRollingMeanResponseTimeMillis() {
+        return this.rollingMeanResponseTime / 1000000.0;
+    }
+
+    @Override
+    public double getLastOnsetLatencyMillis() {
+        return this.lastOnsetLatency / 1000000.0;
+    }
+
+    @Override
+    public long getTimingViolations() {
+        return this.timingViolations.get();
+    }
+
+    @Override
+    public long getRejectedTransitions() {
+        return this.stateMachine.getRejectedTransitions();
+    }
+
+    @Override
+    public long getLateTransitions() {
+        return this.stateMachine.getLateTransitions();
+    }
+}
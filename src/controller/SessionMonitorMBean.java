@@ -0,0 +1,34 @@
+package controller;
+
+/**
+ * JMX management interface for watching a session live, e.g. from JConsole.
+ */
+public interface SessionMonitorMBean {
+    
+    /** The current state of the overall game. */
+    String getCurrentState();
+    
+    /** The current state within the round. */
+    String getGameState();
+    
+    /** Number of rounds the subject has responded to since the last reset. */
+    int getRoundNumber();
+    
+    /** Fraction of responses that were correct since the last reset. */
+    double getAccuracy();
+    
+    /** Mean response time in milliseconds over the most recent rounds. */
+    double getRollingMeanResponseTimeMillis();
+    
+    /** How late, in milliseconds, the dots of the last round were shown compared to when they were due. */
+    double getLastOnsetLatencyMillis();
+    
+    /** Number of onsets and flash times that missed their target by more than the configured tolerance. */
+    long getTimingViolations();
+    
+    /** Number of state transitions rejected as illegal. */
+    long getRejectedTransitions();
+    
+    /** Number of state transitions that arrived after their round was replaced. */
+    long getLateTransitions();
+}
@@ -0,0 +1,400 @@
+package controller;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of every subject with results, kept in index.csv at the root of the
+ * results folder so that nothing has to rescan the subject folders.
+ * 
+ * DataWriter appends one line when a session closes, with the byte range of
+ * the session's rows in the subject's results file, its number of rounds and
+ * correct answers, and when it started and ended. Every session keeps its own
+ * line. When the index is opened, unreadable lines such as one torn by a crash
+ * are dropped, rewriting the file to a temporary file that is then moved over it.
+ * 
+ * Rows that were written but never indexed, from before the index existed or
+ * from a session that did not reach its end, are found when the index is opened:
+ * any results file longer than the end of its last indexed session has the rest
+ * read and indexed as one more session. This only lists the subject folders and
+ * reads the rows not yet indexed. Lookups by subject ID go to a map kept in memory.
+ */
+public class SubjectIndex {
+    
+    /** Name of the index file in the results folder. */
+    public static final String INDEX_FILE = "index.csv";
+    
+    public static final String SESSIONS = "Sessions";
+    public static final String RESULTS_START = "Results Start";
+    public static final String RESULTS_END = "Results End";
+    public static final String NUM_ROUNDS = "Rounds";
+    public static final String NUM_CORRECT = "Correct Rounds";
+    public static final String FIRST_RUN = "First Run";
+    public static final String LAST_RUN = "Last Run";
+    
+    static final String COLUMN_NAMES = DataWriter.SUBJECT_ID + DataWriter.DELIMITER
+            + SESSIONS + DataWriter.DELIMITER
+            + RESULTS_START + DataWriter.DELIMITER
+            + RESULTS_END + DataWriter.DELIMITER
+            + NUM_ROUNDS + DataWriter.DELIMITER
+            + NUM_CORRECT + DataWriter.DELIMITER
+            + DataWriter.ACCURACY + DataWriter.DELIMITER
+            + FIRST_RUN + DataWriter.DELIMITER
+            + LAST_RUN;
+    
+    /** Number of columns in COLUMN_NAMES. */
+    private static final int NUM_COLUMNS = 9;
+    
+    /** One session, or rows indexed together when found on opening. */
+    public static final class Entry {
+        private final int subjectId;
+        private final int numSessions;
+        private final long resultsStart;
+        private final long resultsEnd;
+        private final int numRounds;
+        private final int numCorrect;
+        private final String firstRun;
+        private final String lastRun;
+        
+        public Entry(int subjectId, int numSessions, long resultsStart, long resultsEnd, 
+                int numRounds, int numCorrect, String firstRun, String lastRun) {
+            this.subjectId = subjectId;
+            this.numSessions = numSessions;
+            this.resultsStart = resultsStart;
+            this.resultsEnd = resultsEnd;
+            this.numRounds = numRounds;
+            this.numCorrect = numCorrect;
+            this.firstRun = firstRun;
+            this.lastRun = lastRun;
+        }
+        
+        String toLine() {
+            return this.subjectId + DataWriter.DELIMITER
+                    + this.numSessions + DataWriter.DELIMITER
+                    + this.resultsStart + DataWriter.DELIMITER
+                    + this.resultsEnd + DataWriter.DELIMITER
+                    + this.numRounds + DataWriter.DELIMITER
+                    + this.numCorrect + DataWriter.DELIMITER
+                    + this.getAccuracy() + DataWriter.DELIMITER
+                    + this.firstRun + DataWriter.DELIMITER
+                    + this.lastRun;
+        }
+        
+        /**
+         * Parse a line of the index.
+         * @return The entry, or null if the line isn't a complete entry.
+         */
+        static Entry fromLine(String line) {
+            String[] fields = line.split(DataWriter.DELIMITER, -1);
+            if (fields.length != NUM_COLUMNS || fields[7].isEmpty() || fields[8].isEmpty()) {
+                return null;
+            }
+            try {
+                return new Entry(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                        Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                        Integer.parseInt(fields[4]), Integer.parseInt(fields[5]),
+                        fields[7], fields[8]);
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+        
+        public int getSubjectId() {
+            return this.subjectId;
+        }
+        
+        public int getNumSessions() {
+            return this.numSessions;
+        }
+        
+        /** Offset in the subject's results file of the first row indexed. */
+        public long getResultsStart() {
+            return this.resultsStart;
+        }
+        
+        /** Offset in the subject's results file just past the last row indexed. */
+        public long getResultsEnd() {
+            return this.resultsEnd;
+        }
+        
+        public int getNumRounds() {
+            return this.numRounds;
+        }
+        
+        public int getNumCorrect() {
+            return this.numCorrect;
+        }
+        
+        public double getAccuracy() {
+            return this.numRounds == 0 ? 0 : (double) this.numCorrect / this.numRounds;
+        }
+        
+        public String getFirstRun() {
+            return this.firstRun;
+        }
+        
+        public String getLastRun() {
+            return this.lastRun;
+        }
+    }
+    
+    /** The index file. */
+    private final File file;
+    
+    /** Sessions of every subject in the index, in the order they were indexed. Lists are never changed once in the map. */
+    private final Map<Integer, List<Entry>> sessions = new ConcurrentHashMap<Integer, List<Entry>>();
+    
+    /**
+     * Open the index of a results folder, compacting it and indexing any rows
+     * not yet in it.
+     * @param resultsDir The results folder, e.g. results_dots.
+     */
+    public SubjectIndex(File resultsDir) {
+        this.file = new File(resultsDir, INDEX_FILE);
+        this.compact();
+        this.indexMissingResults(resultsDir);
+    }
+    
+    /**
+     * Read the index into memory, and rewrite it if any line was dropped or replaced.
+     */
+    private synchronized void compact() {
+        if (!this.file.exists()) {
+            return;
+        }
+        int numLines = 0;
+        boolean headerSeen = false;
+        List<Entry> kept = new ArrayList<Entry>();
+        boolean replaced = false;
+        try (BufferedReader reader = new BufferedReader(new FileReader(this.file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!headerSeen && line.equals(COLUMN_NAMES)) {
+                    headerSeen = true;
+                    continue;
+                }
+                numLines++;
+                Entry entry = Entry.fromLine(line);
+                if (entry == null) {
+                    continue;
+                }
+                kept.add(entry);
+                replaced |= this.put(entry);
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return;
+        }
+        if (numLines == kept.size() && headerSeen && !replaced) {
+            return;
+        }
+        
+        File temp = new File(this.file.getParentFile(), INDEX_FILE + ".tmp");
+        List<String> lines = new ArrayList<String>(kept.size() + 1);
+        lines.add(COLUMN_NAMES);
+        for (List<Entry> subjectSessions : this.sessions.values()) {
+            for (Entry entry : subjectSessions) {
+                lines.add(entry.toLine());
+            }
+        }
+        try {
+            Files.write(temp.toPath(), lines);
+            try {
+                Files.move(temp.toPath(), this.file.toPath(), 
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+    
+    /**
+     * Index the rows of every subject folder past the end of its last indexed session.
+     * @param resultsDir The results folder.
+     */
+    private void indexMissingResults(File resultsDir) {
+        File[] folders = resultsDir.listFiles(File::isDirectory);
+        if (folders == null) {
+            return;
+        }
+        for (File folder : folders) {
+            int subjectId;
+            try {
+                subjectId = Integer.parseInt(folder.getName());
+            } catch (NumberFormatException ex) {
+                continue;
+            }
+            File results = new File(folder, "results_" + subjectId + ".csv");
+            long indexedEnd = 0;
+            for (Entry session : this.getSessions(subjectId)) {
+                indexedEnd = Math.max(indexedEnd, session.getResultsEnd());
+            }
+            if (results.length() > indexedEnd) {
+                Entry missing = readSession(subjectId, results, indexedEnd);
+                if (missing != null) {
+                    this.append(missing);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Read the rows of a results file from an offset to its end as one session.
+     * @param subjectId The subject.
+     * @param results The subject's results file.
+     * @param start Offset of the first row, or 0 for the whole file.
+     * @return The session, or null if there are no complete rows.
+     */
+    static Entry readSession(int subjectId, File results, long start) {
+        try (RandomAccessFile in = new RandomAccessFile(results, "r")) {
+            String header = in.readLine();
+            if (header == null) {
+                return null;
+            }
+            List<String> columns = Arrays.asList(header.split(DataWriter.DELIMITER, -1));
+            int correctColumn = columns.indexOf(DataWriter.IS_CORRECT);
+            int dateColumn = columns.indexOf(DataWriter.DATE_TIME);
+            if (start > 0) {
+                in.seek(start);
+            }
+            long rowsStart = in.getFilePointer();
+            long rowsEnd = rowsStart;
+            int numRounds = 0;
+            int numCorrect = 0;
+            String firstRun = null;
+            String lastRun = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (in.getFilePointer() == in.length() && !endsWithNewline(in)) {
+                    break;
+                }
+                String[] fields = line.split(DataWriter.DELIMITER, -1);
+                rowsEnd = in.getFilePointer();
+                numRounds++;
+                if (correctColumn >= 0 && correctColumn < fields.length && fields[correctColumn].equals("yes")) {
+                    numCorrect++;
+                }
+                if (dateColumn >= 0 && dateColumn < fields.length) {
+                    if (firstRun == null) {
+                        firstRun = fields[dateColumn];
+                    }
+                    lastRun = fields[dateColumn];
+                }
+            }
+            if (numRounds == 0) {
+                return null;
+            }
+            return new Entry(subjectId, 1, rowsStart, rowsEnd, numRounds, numCorrect,
+                    firstRun == null || firstRun.isEmpty() ? "unknown" : firstRun, 
+                    lastRun == null || lastRun.isEmpty() ? "unknown" : lastRun);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * @return True if the file ends in a line break, i.e. its last row is complete.
+     */
+    private static boolean endsWithNewline(RandomAccessFile in) throws IOException {
+        long position = in.getFilePointer();
+        in.seek(in.length() - 1);
+        boolean complete = in.read() == '\n';
+        in.seek(position);
+        return complete;
+    }
+    
+    /**
+     * Add a session to the sessions kept in memory. A session starting where one
+     * already indexed starts replaces it, e.g. a session closed after its rows were
+     * found on opening.
+     * @return True if a session was replaced.
+     */
+    private boolean put(Entry session) {
+        List<Entry> previous = this.sessions.get(session.getSubjectId());
+        List<Entry> updated = new ArrayList<Entry>(previous == null ? 1 : previous.size() + 1);
+        boolean replaced = false;
+        if (previous != null) {
+            for (Entry entry : previous) {
+                if (entry.getResultsStart() == session.getResultsStart()) {
+                    replaced = true;
+                } else {
+                    updated.add(entry);
+                }
+            }
+        }
+        updated.add(session);
+        this.sessions.put(session.getSubjectId(), Collections.unmodifiableList(updated));
+        return replaced;
+    }
+    
+    /**
+     * Add a closed session to the index.
+     * @param session The session, with one session.
+     */
+    public synchronized void append(Entry session) {
+        PrintWriter writer = null;
+        try {
+            this.file.getParentFile().mkdirs();
+            boolean isNew = this.file.createNewFile();
+            writer = new PrintWriter(new BufferedWriter(new FileWriter(this.file, true)));
+            if (isNew) {
+                writer.write(COLUMN_NAMES + "\n");
+            }
+            writer.write(session.toLine() + "\n");
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } finally {
+            if (writer != null) {
+                writer.flush();
+                writer.close();
+            }
+        }
+        this.put(session);
+    }
+    
+    /**
+     * @param subjectId A subject ID.
+     * @return True if the subject has any results indexed.
+     */
+    public boolean contains(int subjectId) {
+        return this.sessions.containsKey(subjectId);
+    }
+    
+    /**
+     * @param subjectId A subject ID.
+     * @return Every session indexed for the subject, oldest first; empty if there is nothing.
+     */
+    public List<Entry> getSessions(int subjectId) {
+        List<Entry> subjectSessions = this.sessions.get(subjectId);
+        return subjectSessions == null ? Collections.<Entry>emptyList() : subjectSessions;
+    }
+    
+    /**
+     * @return Number of subjects indexed.
+     */
+    public int size() {
+        return this.sessions.size();
+    }
+    
+    public File getFile() {
+        return this.file;
+    }
+}
@@ -0,0 +1,33 @@
+package controller;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javafx.application.Platform;
+
+/**
+ * Clock backed by System.nanoTime(). Scheduled actions wait on a single
+ * background timer thread and are then handed to the JavaFX Application Thread,
+ * so they may touch the GUI just like the old Task.setOnSucceeded handlers did.
+ */
+public class SystemClock implements Clock {
+    
+    /** Timer thread shared by every SystemClock. */
+    private static final ScheduledExecutorService TIMER = 
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "dots-clock");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void schedule(long delayMillis, Runnable action) {
+        TIMER.schedule(() -> Platform.runLater(action), delayMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,297 @@
+package controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the state of a game session (CurrentState, GameState, whether a response
+ * was given, the round number, when the round's dots were shown and the number
+ * of stars) in a single atomic snapshot.
+ * 
+ * Every change is a compare-and-set from one snapshot to the next, and only the
+ * edges listed in LEGAL_GAME_STATE_EDGES and LEGAL_CURRENT_STATE_EDGES are allowed.
+ * Attempts along any other edge are rejected and counted. Actions scheduled for a
+ * round that has already been replaced (e.g. a hide arriving after a reset) are
+ * counted as late.
+ * 
+ * Each DotsGameController owns one of these, so several controllers can
+ * live in the same JVM.
+ * 
+ * Classes Related to:
+ *  -DotsGameController.java
+ *      -Moves the state machine as the rounds progress.
+ *  -CurrentState.java, GameState.java
+ *      -The states being tracked.
+ */
+public class TrialStateMachine {
+    
+    /** LEGAL_GAME_STATE_EDGES[from.ordinal()][to.ordinal()] is true if the transition is allowed. */
+    private static final boolean[][] LEGAL_GAME_STATE_EDGES = 
+            new boolean[GameState.values().length][GameState.values().length];
+    
+    /** LEGAL_CURRENT_STATE_EDGES[from.ordinal()][to.ordinal()] is true if the transition is allowed. */
+    private static final boolean[][] LEGAL_CURRENT_STATE_EDGES = 
+            new boolean[CurrentState.values().length][CurrentState.values().length];
+    
+    static {
+        /** First round after a reset. */
+        allow(GameState.NONE, GameState.WAITING_FOR_RESPONSE_VISIBLE);
+        /** Response while the dots are visible; they stay up until the flash time passes. */
+        allow(GameState.WAITING_FOR_RESPONSE_VISIBLE, GameState.WAITING_FOR_RESPONSE_VISIBLE);
+        /** Flash time passed without a response. */
+        allow(GameState.WAITING_FOR_RESPONSE_VISIBLE, GameState.WAITING_FOR_RESPONSE_BLANK);
+        /** Flash time passed after a response. */
+        allow(GameState.WAITING_FOR_RESPONSE_VISIBLE, GameState.WAITING_BETWEEN_ROUNDS);
+        /** Response after the dots were hidden. */
+        allow(GameState.WAITING_FOR_RESPONSE_BLANK, GameState.WAITING_BETWEEN_ROUNDS);
+        /** Next round. */
+        allow(GameState.WAITING_BETWEEN_ROUNDS, GameState.WAITING_FOR_RESPONSE_VISIBLE);
+        
+        allow(CurrentState.INTRODUCTION, CurrentState.PRACTICE);
+        allow(CurrentState.PRACTICE, CurrentState.GAMEPLAY);
+        allow(CurrentState.GAMEPLAY, CurrentState.FINISHED);
+    }
+    
+    private static void allow(GameState from, GameState to) {
+        LEGAL_GAME_STATE_EDGES[from.ordinal()][to.ordinal()] = true;
+    }
+    
+    private static void allow(CurrentState from, CurrentState to) {
+        LEGAL_CURRENT_STATE_EDGES[from.ordinal()][to.ordinal()] = true;
+    }
+    
+    /**
+     * Immutable view of the whole state at one point in time.
+     */
+    public static final class Snapshot {
+        private final CurrentState currentState;
+        private final GameState gameState;
+        private final boolean feedbackGiven;
+        private final int roundNumber;
+        private final long responseOnset;
+        private final int numStars;
+        
+        Snapshot(CurrentState currentState, GameState gameState, 
+                boolean feedbackGiven, int roundNumber, long responseOnset, int numStars) {
+            this.currentState = currentState;
+            this.gameState = gameState;
+            this.feedbackGiven = feedbackGiven;
+            this.roundNumber = roundNumber;
+            this.responseOnset = responseOnset;
+            this.numStars = numStars;
+        }
+        
+        public CurrentState getCurrentState() {
+            return currentState;
+        }
+        
+        public GameState getGameState() {
+            return gameState;
+        }
+        
+        /** Whether the subject has already responded in this round. */
+        public boolean isFeedbackGiven() {
+            return feedbackGiven;
+        }
+        
+        /** Increases every time a round is set or the rounds are reset. */
+        public int getRoundNumber() {
+            return roundNumber;
+        }
+        
+        /** Time (from the controller's clock) at which the current round's dots were shown. */
+        public long getResponseOnset() {
+            return responseOnset;
+        }
+        
+        /** How many stars the player has earned. */
+        public int getNumStars() {
+            return numStars;
+        }
+    }
+    
+    /** The current snapshot. */
+    private final AtomicReference<Snapshot> current = new AtomicReference<Snapshot>(
+            new Snapshot(CurrentState.INTRODUCTION, GameState.NONE, true, 0, 0, 0));
+    
+    /** Number of transitions attempted along an edge that is not legal. */
+    private final AtomicLong rejectedTransitions = new AtomicLong();
+    
+    /** Number of transitions attempted for a round that was already replaced. */
+    private final AtomicLong lateTransitions = new AtomicLong();
+    
+    public Snapshot get() {
+        return this.current.get();
+    }
+    
+    /**
+     * Move the overall game to the next CurrentState.
+     * @param to the state to move to.
+     * @return true if the transition was legal and happened.
+     */
+    public boolean setCurrentState(CurrentState to) {
+        while (true) {
+            Snapshot from = this.current.get();
+            if (!LEGAL_CURRENT_STATE_EDGES[from.currentState.ordinal()][to.ordinal()]) {
+                this.rejectedTransitions.incrementAndGet();
+                return false;
+            }
+            Snapshot next = new Snapshot(to, from.gameState, 
+                    from.feedbackGiven, from.roundNumber, from.responseOnset, from.numStars);
+            if (this.current.compareAndSet(from, next)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Clear the round state before a new series of rounds (practice or assessment).
+     * Anything still scheduled for an earlier round will arrive late.
+     * @param keepStars false to also take away all stars.
+     * @return the round number of the reset state.
+     */
+    public int resetRounds(boolean keepStars) {
+        while (true) {
+            Snapshot from = this.current.get();
+            Snapshot next = new Snapshot(from.currentState, GameState.NONE, 
+                    true, from.roundNumber + 1, from.responseOnset, keepStars ? from.numStars : 0);
+            if (this.current.compareAndSet(from, next)) {
+                return next.roundNumber;
+            }
+        }
+    }
+    
+    /**
+     * Set a new round, making the dots visible and waiting for a response.
+     * @param expectedRound the round number the caller was scheduled for.
+     * @return the new snapshot, or null if the transition was rejected or late.
+     */
+    public Snapshot beginRound(int expectedRound) {
+        while (true) {
+            Snapshot from = this.current.get();
+            if (from.roundNumber != expectedRound) {
+                this.lateTransitions.incrementAndGet();
+                return null;
+            }
+            if (from.gameState == GameState.WAITING_FOR_RESPONSE_VISIBLE) {
+                /** The self edge is for a response; a round never begins over a visible one. */
+                this.rejectedTransitions.incrementAndGet();
+                return null;
+            }
+            if (!this.isLegal(from.gameState, GameState.WAITING_FOR_RESPONSE_VISIBLE)) {
+                return null;
+            }
+            Snapshot next = new Snapshot(from.currentState, GameState.WAITING_FOR_RESPONSE_VISIBLE, 
+                    false, from.roundNumber + 1, from.responseOnset, from.numStars);
+            if (this.current.compareAndSet(from, next)) {
+                return next;
+            }
+        }
+    }
+    
+    /**
+     * Accept the subject's response for the current round. Only the first
+     * response while the round is visible or blank is accepted.
+     * @return the new snapshot, or null if the response was rejected.
+     */
+    public Snapshot respond() {
+        while (true) {
+            Snapshot from = this.current.get();
+            GameState to;
+            if (from.feedbackGiven) {
+                this.rejectedTransitions.incrementAndGet();
+                return null;
+            } else if (from.gameState == GameState.WAITING_FOR_RESPONSE_BLANK) {
+                to = GameState.WAITING_BETWEEN_ROUNDS;
+            } else if (from.gameState == GameState.WAITING_FOR_RESPONSE_VISIBLE) {
+                to = GameState.WAITING_FOR_RESPONSE_VISIBLE;
+            } else {
+                this.rejectedTransitions.incrementAndGet();
+                return null;
+            }
+            if (!this.isLegal(from.gameState, to)) {
+                return null;
+            }
+            Snapshot next = new Snapshot(from.currentState, to, 
+                    true, from.roundNumber, from.responseOnset, from.numStars);
+            if (this.current.compareAndSet(from, next)) {
+                return next;
+            }
+        }
+    }
+    
+    /**
+     * The flash time of a round has passed and its dots were hidden.
+     * @param expectedRound the round the hide was scheduled for.
+     * @return the new snapshot, or null if the transition was rejected or late.
+     */
+    public Snapshot hide(int expectedRound) {
+        while (true) {
+            Snapshot from = this.current.get();
+            if (from.roundNumber != expectedRound) {
+                this.lateTransitions.incrementAndGet();
+                return null;
+            }
+            GameState to = from.feedbackGiven 
+                    ? GameState.WAITING_BETWEEN_ROUNDS : GameState.WAITING_FOR_RESPONSE_BLANK;
+            if (!this.isLegal(from.gameState, to)) {
+                return null;
+            }
+            Snapshot next = new Snapshot(from.currentState, to, 
+                    from.feedbackGiven, from.roundNumber, from.responseOnset, from.numStars);
+            if (this.current.compareAndSet(from, next)) {
+                return next;
+            }
+        }
+    }
+    
+    /**
+     * Give the player a star.
+     * @return the number of stars before this one was added.
+     */
+    public int addStar() {
+        while (true) {
+            Snapshot from = this.current.get();
+            Snapshot next = new Snapshot(from.currentState, from.gameState, 
+                    from.feedbackGiven, from.roundNumber, from.responseOnset, from.numStars + 1);
+            if (this.current.compareAndSet(from, next)) {
+                return from.numStars;
+            }
+        }
+    }
+    
+    private boolean isLegal(GameState from, GameState to) {
+        if (LEGAL_GAME_STATE_EDGES[from.ordinal()][to.ordinal()]) {
+            return true;
+        }
+        this.rejectedTransitions.incrementAndGet();
+        return false;
+    }
+    
+    public long getResponseOnset() {
+        return this.current.get().responseOnset;
+    }
+    
+    /**
+     * Record when the current round's dots were shown.
+     * @param responseOnset Time from the controller's clock.
+     */
+    public void setResponseOnset(long responseOnset) {
+        while (true) {
+            Snapshot from = this.current.get();
+            Snapshot next = new Snapshot(from.currentState, from.gameState, 
+                    from.feedbackGiven, from.roundNumber, responseOnset, from.numStars);
+            if (this.current.compareAndSet(from, next)) {
+                return;
+            }
+        }
+    }
+    
+    public long getRejectedTransitions() {
+        return this.rejectedTransitions.get();
+    }
+    
+    public long getLateTransitions() {
+        return this.lateTransitions.get();
+    }
+}
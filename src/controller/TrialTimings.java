@@ -0,0 +1,116 @@
+package controller;
+
+import util.LatencyHistogram;
+
+/**
+ * Records how long each phase of every round takes, one LatencyHistogram per phase.
+ * Everything is allocated up front, so recording costs no allocation.
+ * 
+ * The first FIRST_ROUNDS rounds, which run while the JIT and caches are still
+ * warming up, are also recorded separately from the later rounds so the two
+ * can be compared.
+ * 
+ * Classes Related to:
+ *  -DotsGameController.java
+ *      -Times each phase of a round with its Clock and records it here.
+ *  -DataWriter.java
+ *      -Writes the percentiles of every phase next to the subject's results.
+ */
+public class TrialTimings {
+    
+    /** The phases of a round, in the order they happen. */
+    public enum Phase {
+        /** Generating the DotsPair. */
+        PAIR_GENERATION,
+        /** Painting both dot sets. */
+        PAINT,
+        /** From the dots being shown to the hide actually happening. */
+        FLASH_HOLD,
+        /** Clearing the canvases. */
+        HIDE,
+        /** From the dots being shown to the response (response time). */
+        RESPONSE_WAIT,
+        /** CSS and layout passes of the scene since the previous response. */
+        CSS_LAYOUT,
+        /** Writing the round to CSV. */
+        DATA_WRITE,
+        /** From the start of the wait between rounds to the next round being set. */
+        INTER_TRIAL_WAIT
+    }
+    
+    /** Percentiles reported in the summary. */
+    public static final double[] PERCENTILES = {50.0, 95.0, 99.0};
+    
+    /** Number of rounds at the start recorded separately. */
+    public static final int FIRST_ROUNDS = 5;
+    
+    /** Histograms indexed by Phase ordinal: every round, the first rounds, and the later rounds. */
+    private final LatencyHistogram[] histograms;
+    private final LatencyHistogram[] firstHistograms;
+    private final LatencyHistogram[] laterHistograms;
+    
+    /** Round the phases being recorded belong to, from 1. */
+    private int round = 1;
+    
+    public TrialTimings() {
+        this.histograms = makeHistograms();
+        this.firstHistograms = makeHistograms();
+        this.laterHistograms = makeHistograms();
+    }
+    
+    private static LatencyHistogram[] makeHistograms() {
+        LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+    
+    /**
+     * Set the round the following phases belong to.
+     * @param round The round, from 1.
+     */
+    public void setRound(int round) {
+        this.round = round;
+    }
+    
+    /**
+     * Record the duration of one phase.
+     * @param phase the phase.
+     * @param nanos its duration in nanoseconds.
+     */
+    public void record(Phase phase, long nanos) {
+        this.histograms[phase.ordinal()].record(nanos);
+        if (this.round <= FIRST_ROUNDS) {
+            this.firstHistograms[phase.ordinal()].record(nanos);
+        } else {
+            this.laterHistograms[phase.ordinal()].record(nanos);
+        }
+    }
+    
+    /**
+     * Clear every histogram, e.g. once practice is over.
+     */
+    public void reset() {
+        for (int i = 0; i < this.histograms.length; i++) {
+            this.histograms[i].reset();
+            this.firstHistograms[i].reset();
+            this.laterHistograms[i].reset();
+        }
+        this.round = 1;
+    }
+    
+    public LatencyHistogram getHistogram(Phase phase) {
+        return this.histograms[phase.ordinal()];
+    }
+    
+    /** Histogram of a phase over the first FIRST_ROUNDS rounds. */
+    public LatencyHistogram getFirstRoundsHistogram(Phase phase) {
+        return this.firstHistograms[phase.ordinal()];
+    }
+    
+    /** Histogram of a phase over the rounds after the first FIRST_ROUNDS. */
+    public LatencyHistogram getLaterRoundsHistogram(Phase phase) {
+        return this.laterHistograms[phase.ordinal()];
+    }
+}
@@ -0,0 +1,105 @@
+package controller;
+
+import java.util.PriorityQueue;
+
+/**
+ * Clock that only moves when told to. Scheduled actions run on the thread
+ * calling advance(), in due time order, so a whole session (practice plus
+ * NUM_ROUNDS rounds) can be driven in milliseconds by tests and benchmarks.
+ * 
+ * Not thread safe; meant to be driven from a single thread.
+ */
+public class VirtualClock implements Clock {
+    
+    /** Current virtual time in nanoseconds. */
+    private long now;
+    
+    /** Tie breaker so actions with the same due time keep their scheduling order. */
+    private long nextSequence;
+    
+    /** Actions waiting for their due time. */
+    private PriorityQueue<ScheduledAction> pending = new PriorityQueue<ScheduledAction>();
+    
+    /** An action and the virtual time at which it should run. */
+    private static class ScheduledAction implements Comparable<ScheduledAction> {
+        private final long dueTime;
+        private final long sequence;
+        private final Runnable action;
+        
+        ScheduledAction(long dueTime, long sequence, Runnable action) {
+            this.dueTime = dueTime;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(ScheduledAction other) {
+            if (this.dueTime != other.dueTime) {
+                return Long.compare(this.dueTime, other.dueTime);
+            }
+            return Long.compare(this.sequence, other.sequence);
+        }
+    }
+    
+    @Override
+    public long nanoTime() {
+        return this.now;
+    }
+
+    @Override
+    public void schedule(long delayMillis, Runnable action) {
+        long dueTime = this.now + Math.max(0, delayMillis) * 1000000L;
+        this.pending.add(new ScheduledAction(dueTime, this.nextSequence++, action));
+    }
+    
+    /**
+     * Move time forward, running every action that becomes due on the way.
+     * Actions scheduled by those actions also run if they fall within the step.
+     * @param millis number of milliseconds to advance.
+     */
+    public void advance(long millis) {
+        this.advanceNanos(millis * 1000000L);
+    }
+    
+    /**
+     * Move time forward by a number of nanoseconds.
+     * @param nanos number of nanoseconds to advance.
+     */
+    public void advanceNanos(long nanos) {
+        long target = this.now + nanos;
+        while (!this.pending.isEmpty() && this.pending.peek().dueTime <= target) {
+            ScheduledAction next = this.pending.poll();
+            this.now = next.dueTime;
+            next.action.run();
+        }
+        this.now = target;
+    }
+    
+    /**
+     * Jump straight to the next pending action and run it.
+     * @return false if there was nothing left to run.
+     */
+    public boolean runNext() {
+        if (this.pending.isEmpty()) {
+            return false;
+        }
+        this.advanceNanos(this.pending.peek().dueTime - this.now);
+        return true;
+    }
+    
+    /**
+     * Run pending actions until none are left.
+     */
+    public void runUntilIdle() {
+        while (this.runNext()) {
+            continue;
+        }
+    }
+    
+    /**
+     * @return number of actions waiting to run.
+     */
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+}
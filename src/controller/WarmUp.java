@@ -0,0 +1,126 @@
+package controller;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javafx.application.Platform;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import model.DotsPair;
+import model.DotsPairGenerator;
+import model.Player;
+import util.Checksums;
+
+/**
+ * Runs the work of a round over and over while the get ready bar fills, so that
+ * pair generation, painting and row encoding are already compiled by the JIT
+ * when the first real round starts.
+ *
+ * Pairs come from a generator of its own and are painted onto canvases that are
+ * never shown, so the generator and canvases of the game are left untouched.
+ * Nothing is written to disk. Once the time is up, one of the canvases is
+ * snapshot on the JavaFX Application Thread so the renderer draws dots once too.
+ * The rows are made for a stand-in player with every field set, since
+ * generateTrialText needs a gender and an age. If a round throws anyway, the
+ * warm up stops and the exception is logged with the number of pairs it got
+ * through, so a warm up that did nothing does not go unnoticed.
+ *
+ * Classes Related to:
+ *  -DotsGameController.java
+ *      -Starts the warm up in prepareFirstRound and lends its paintDotSet.
+ *  -TrialTimings.java
+ *      -Times the first rounds separately, which shows how much the warm up helps.
+ */
+public class WarmUp implements Runnable {
+
+    private static Logger logger = Logger.getLogger("mylog");
+
+    /** Most pairs to go through, in case the countdown is long. */
+    static final int MAX_ITERATIONS = 5000;
+
+    /** Time in milliseconds left free before the first round, for the snapshot and the round itself. */
+    static final int MARGIN_TIME = 300;
+
+    private final long budgetNanos;
+    private final double canvasWidth;
+    private final double canvasHeight;
+
+    /** Number of pairs gone through, for logging. */
+    private int iterations;
+
+    /** Adds up the checksums so the rows cannot be optimized away. */
+    private long checksum;
+
+    /**
+     * Constructor.
+     * @param budgetMillis Time in milliseconds the warm up may run, margin included.
+     * @param canvasWidth Width of the canvases of the game.
+     * @param canvasHeight Height of the canvases of the game.
+     */
+    public WarmUp(int budgetMillis, double canvasWidth, double canvasHeight) {
+        this.budgetNanos = Math.max(0, budgetMillis - MARGIN_TIME) * 1000000L;
+        this.canvasWidth = canvasWidth;
+        this.canvasHeight = canvasHeight;
+    }
+
+    /**
+     * Start the warm up on a low priority daemon thread.
+     * @return the thread.
+     */
+    public Thread start() {
+        Thread thread = new Thread(this, "dots-warm-up");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return thread;
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        DotsPairGenerator generator = new DotsPairGenerator();
+        generator.setPooled(DotsGameController.POOLED_PAIRS_ON);
+        Player player = new Player(new SimpleIntegerProperty(0),
+                Player.Gender.FEMALE, new SimpleIntegerProperty(0));
+        DataWriter dataWriter = new DataWriter(player, null);
+        Canvas left = new Canvas(this.canvasWidth, this.canvasHeight);
+        Canvas right = new Canvas(this.canvasWidth, this.canvasHeight);
+        GraphicsContext gcLeft = left.getGraphicsContext2D();
+        GraphicsContext gcRight = right.getGraphicsContext2D();
+        try {
+            while (this.iterations < MAX_ITERATIONS && System.nanoTime() - start < this.budgetNanos) {
+                generator.getNewDifficultyPair();
+                DotsPair pair = generator.getDotsPair();
+
+                gcLeft.clearRect(0, 0, this.canvasWidth, this.canvasHeight);
+                gcRight.clearRect(0, 0, this.canvasWidth, this.canvasHeight);
+                int color = this.iterations % DotsGameController.DOT_COLORS.length;
+                DotsGameController.paintDotSet(pair.getDotSetOne(), gcLeft, DotsGameController.DOT_COLORS[color]);
+                DotsGameController.paintDotSet(pair.getDotSetTwo(), gcRight, DotsGameController.DOT_COLORS[color]);
+
+                boolean correct = (this.iterations & 1) == 0;
+                player.setRight(correct);
+                player.setResponseTime(System.nanoTime() - start);
+                player.setNumRounds(this.iterations + 1);
+                generator.recordResponse(correct);
+                dataWriter.setDotsPair(pair);
+                this.checksum += Checksums.crc(dataWriter.generateTrialText());
+                this.iterations++;
+            }
+        } catch (RuntimeException ex) {
+            logger.log(Level.WARNING, "Warm up stopped by an exception after "
+                    + this.iterations + " pairs", ex);
+        }
+        long elapsed = System.nanoTime() - start;
+        logger.info("Warm up went through " + this.iterations + " pairs in "
+                + elapsed / 1000000 + " ms (checksum " + Long.toHexString(this.checksum) + ")");
+        Platform.runLater(() -> {
+            left.snapshot(null, null);
+        });
+    }
+
+    public int getIterations() {
+        return this.iterations;
+    }
+}
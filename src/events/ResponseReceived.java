@@ -0,0 +1,28 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for the subject responding to a round.
+ */
+@Name("visionlab.dots.ResponseReceived")
+@Label("Response Received")
+@Category({"VisionLab", "Dots"})
+@Description("The subject responding to a round")
+public class ResponseReceived extends Event {
+
+    @Label("Key")
+    public String key;
+    
+    @Label("Correct")
+    public boolean correct;
+    
+    @Label("Response Time")
+    @Timespan(Timespan.NANOSECONDS)
+    public long responseTime;
+}
@@ -0,0 +1,28 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for the dots of a round being hidden after the flash time.
+ * The hold is measured on the controller's clock, from the onset being marked to
+ * the hide starting, not between the pulses that put the dots on and off the screen.
+ */
+@Name("visionlab.dots.StimulusHidden")
+@Label("Stimulus Hidden")
+@Category({"VisionLab", "Dots"})
+@Description("The dots of a round being hidden after the flash time")
+public class StimulusHidden extends Event {
+
+    @Label("Round")
+    public int round;
+    
+    @Label("Clock Hold")
+    @Description("Controller clock time between the onset being marked and the hide starting")
+    @Timespan(Timespan.NANOSECONDS)
+    public long clockHold;
+}
@@ -0,0 +1,26 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for the dots of a round being painted. The time is
+ * taken on the controller's clock once the canvases are painted; the dots
+ * reach the screen with a later pulse, which it does not include.
+ */
+@Name("visionlab.dots.StimulusShown")
+@Label("Stimulus Shown")
+@Category({"VisionLab", "Dots"})
+@Description("The dots of a round being painted")
+public class StimulusShown extends Event {
+
+    @Label("Round")
+    public int round;
+    
+    @Label("Paint Time")
+    @Description("Controller clock time, in nanoseconds, at which the dots were painted on the canvases")
+    public long paintTime;
+}
@@ -0,0 +1,31 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for the generation of a DotsPair.
+ * The event's duration is the time taken to generate it.
+ */
+@Name("visionlab.dots.TrialGenerated")
+@Label("Trial Generated")
+@Category({"VisionLab", "Dots"})
+@Description("The generation of a DotsPair")
+public class TrialGenerated extends Event {
+
+    @Label("Left Dots")
+    public int leftDots;
+    
+    @Label("Right Dots")
+    public int rightDots;
+    
+    @Label("Control Type")
+    public String controlType;
+    
+    @Label("Placement Attempts")
+    @Description("Number of candidate dot positions tried for both dot sets")
+    public int placementAttempts;
+}
@@ -0,0 +1,23 @@
+package events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.DataAmount;
+
+/**
+ * Flight Recorder event for a round being written to CSV.
+ * The event's duration is the time taken to write it.
+ */
+@Name("visionlab.dots.TrialWritten")
+@Label("Trial Written")
+@Category({"VisionLab", "Dots"})
+@Description("A round being written to CSV")
+public class TrialWritten extends Event {
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
@@ -1,5 +1,6 @@
 package main;
 
+import util.StartupTimer;
 import view.GameGUI;
 import javafx.application.Application;
 import javafx.stage.Stage;
@@ -21,11 +22,13 @@ public class DotsMain extends Application {
     * @param args command line arguments
      */
     public static void main(String[] args) {
+        StartupTimer.start();
         launch(args);
     }
 
     @Override
     public void start(Stage primaryStage) throws Exception {
+        StartupTimer.mark("JavaFX toolkit");
         new GameGUI(primaryStage);
     }
 }
@@ -0,0 +1,43 @@
+package markers;
+
+/**
+ * Kinds of marker sent to the EEG recording, with the trigger code each is sent as.
+ */
+public enum Marker {
+    
+    /** The dots of a round were painted. */
+    STIMULUS_ONSET(1),
+    /** The dots of a round were hidden. */
+    STIMULUS_OFFSET(2),
+    /** The subject picked the left option (F). */
+    RESPONSE_LEFT(3),
+    /** The subject picked the right option (J). */
+    RESPONSE_RIGHT(4);
+    
+    private final int code;
+    
+    private Marker(int code) {
+        this.code = code;
+    }
+    
+    /**
+     * @return The trigger code of this marker.
+     */
+    public int getCode() {
+        return this.code;
+    }
+    
+    /**
+     * Look up a marker by its trigger code.
+     * @param code The trigger code.
+     * @return The marker, or null if there is none with that code.
+     */
+    public static Marker fromCode(int code) {
+        for (Marker marker : values()) {
+            if (marker.code == code) {
+                return marker;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,264 @@
+package markers;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Passes markers from the game to every MarkerSink, e.g. to line the rounds up
+ * with an EEG recording.
+ *
+ * publish() only copies the marker into a preallocated ring and wakes the
+ * dispatcher thread, so it never blocks, allocates or does I/O on the JavaFX
+ * Application Thread. If the ring is full the marker is dropped and counted.
+ * The dispatcher sends every marker to every sink and logs, for each sink, when
+ * the marker was published and when sending it started and ended, so the latency
+ * of the markers can be measured against a receiver (see tools/MarkerReceiver.java).
+ *
+ * Only one thread may publish.
+ *
+ * Classes Related to:
+ *  -DotsGameController.java
+ *      -Publishes markers at stimulus onset, stimulus offset and response.
+ *  -MarkerSink.java
+ *      -Where the dispatcher sends the markers.
+ */
+public class MarkerBus {
+
+    private static Logger logger = Logger.getLogger("mylog");
+
+    /** Number of markers the ring holds. Must be a power of two. */
+    static final int RING_SIZE = 1024;
+
+    /** Times the dispatcher checks for a marker before parking. */
+    static final int SPIN_TRIES = 100;
+
+    /** Longest time in nanoseconds the dispatcher parks, in case a wake up is missed. */
+    static final long PARK_NANOS = 1000000L;
+
+    public static final String LOG_COLUMN_NAMES = "Marker,Code,Round,Sink,Sent,"
+            + "Publish Time (ns),Send Start (ns),Send End (ns)";
+
+    private final List<MarkerSink> sinks;
+
+    /** Markers waiting to be sent, as parallel arrays indexed by sequence & (RING_SIZE - 1). */
+    private final int[] codes = new int[RING_SIZE];
+    private final int[] rounds = new int[RING_SIZE];
+    private final long[] publishTimes = new long[RING_SIZE];
+
+    /** Number of markers published, written only by the publishing thread. */
+    private final AtomicLong head = new AtomicLong();
+    /** Number of markers sent, written only by the dispatcher. */
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** Where the send times are logged, or null to not log them. */
+    private final File logFile;
+
+    private final Thread dispatcher;
+    private volatile boolean running;
+
+    /**
+     * Constructor. Starts the dispatcher if there are any sinks.
+     * @param sinks Where to send the markers; may be empty.
+     * @param logFile CSV file the send times are appended to, or null.
+     */
+    public MarkerBus(List<MarkerSink> sinks, File logFile) {
+        this.sinks = new ArrayList<MarkerSink>(sinks);
+        this.logFile = logFile;
+        if (this.sinks.isEmpty()) {
+            this.dispatcher = null;
+            return;
+        }
+        this.running = true;
+        this.dispatcher = new Thread(this::dispatch, "dots-markers");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.setPriority(Thread.MAX_PRIORITY);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Publish a marker. Never blocks.
+     * @param marker The marker.
+     * @param round The round it belongs to.
+     * @param time Time in System.nanoTime() nanoseconds the marked event happened.
+     * @return True if the marker was queued, false if there are no sinks or the ring is full.
+     */
+    public boolean publish(Marker marker, int round, long time) {
+        if (this.dispatcher == null) {
+            return false;
+        }
+        long sequence = this.head.get();
+        if (sequence - this.tail.get() >= RING_SIZE) {
+            this.dropped.incrementAndGet();
+            return false;
+        }
+        int index = (int) (sequence & (RING_SIZE - 1));
+        this.codes[index] = marker.getCode();
+        this.rounds[index] = round;
+        this.publishTimes[index] = time;
+        this.head.lazySet(sequence + 1);
+        LockSupport.unpark(this.dispatcher);
+        return true;
+    }
+
+    /**
+     * Send every marker as it is published, until closed.
+     */
+    private void dispatch() {
+        ByteBuffer message = ByteBuffer.allocateDirect(MarkerSink.MESSAGE_SIZE);
+        long[] sendStarts = new long[this.sinks.size()];
+        long[] sendEnds = new long[this.sinks.size()];
+        boolean[] sent = new boolean[this.sinks.size()];
+        Writer log = this.openLog();
+        int idle = 0;
+        while (true) {
+            long sequence = this.tail.get();
+            if (sequence == this.head.get()) {
+                if (!this.running) {
+                    break;
+                }
+                if (idle++ < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    flush(log);
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+                continue;
+            }
+            idle = 0;
+            int index = (int) (sequence & (RING_SIZE - 1));
+            int code = this.codes[index];
+            int round = this.rounds[index];
+            long publishTime = this.publishTimes[index];
+            this.tail.lazySet(sequence + 1);
+
+            for (int i = 0; i < this.sinks.size(); i++) {
+                message.clear();
+                message.putInt(MarkerSink.CODE_OFFSET, code);
+                message.putInt(MarkerSink.ROUND_OFFSET, round);
+                message.putLong(MarkerSink.PUBLISH_TIME_OFFSET, publishTime);
+                sendStarts[i] = System.nanoTime();
+                message.putLong(MarkerSink.SEND_TIME_OFFSET, sendStarts[i]);
+                try {
+                    sent[i] = this.sinks.get(i).send(message);
+                } catch (IOException ex) {
+                    sent[i] = false;
+                    ex.printStackTrace();
+                }
+                sendEnds[i] = System.nanoTime();
+            }
+            if (log != null) {
+                this.writeLog(log, code, round, publishTime, sendStarts, sendEnds, sent);
+            }
+        }
+        flush(log);
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        for (MarkerSink sink : this.sinks) {
+            try {
+                sink.close();
+            } catch (IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Open the log, writing column names if it is new.
+     * @return The log, or null if there is no log file or it can't be opened.
+     */
+    private Writer openLog() {
+        if (this.logFile == null) {
+            return null;
+        }
+        try {
+            boolean isNew = !this.logFile.exists();
+            if (this.logFile.getParentFile() != null) {
+                this.logFile.getParentFile().mkdirs();
+            }
+            Writer log = new BufferedWriter(Files.newBufferedWriter(this.logFile.toPath(),
+                    StandardCharsets.ISO_8859_1, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+            if (isNew) {
+                log.write(LOG_COLUMN_NAMES + "\n");
+            }
+            return log;
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    private void writeLog(Writer log, int code, int round, long publishTime,
+            long[] sendStarts, long[] sendEnds, boolean[] sent) {
+        try {
+            for (int i = 0; i < this.sinks.size(); i++) {
+                log.write(Marker.fromCode(code) + "," + code + "," + round + ","
+                        + this.sinks.get(i).getName() + "," + sent[i] + ","
+                        + publishTime + "," + sendStarts[i] + "," + sendEnds[i] + "\n");
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private static void flush(Writer log) {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.flush();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Send the markers still queued, then close the log and every sink.
+     */
+    public void close() {
+        if (this.dispatcher == null) {
+            return;
+        }
+        this.running = false;
+        LockSupport.unpark(this.dispatcher);
+        try {
+            this.dispatcher.join(1000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.dropped.get() > 0) {
+            logger.warning(this.dropped.get() + " markers were dropped because the queue was full");
+        }
+    }
+
+    /**
+     * @return Number of markers dropped because the ring was full.
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * @return Number of sinks the markers go to.
+     */
+    public int getNumSinks() {
+        return this.sinks.size();
+    }
+}
@@ -0,0 +1,40 @@
+package markers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Somewhere markers are sent, e.g. the computer recording the EEG.
+ * 
+ * Sinks are only used from the dispatcher thread of a MarkerBus, so they 
+ * may block without holding up the game.
+ * 
+ * Every marker is sent as a message of MESSAGE_SIZE bytes in big-endian order:
+ * the trigger code (int), the round (int), the time the marker was published
+ * (long) and the time it was sent (long), both in System.nanoTime() nanoseconds.
+ */
+public interface MarkerSink extends Closeable {
+    
+    /** Size in bytes of a message. */
+    int MESSAGE_SIZE = 24;
+    
+    /** Offsets of the fields of a message. */
+    int CODE_OFFSET = 0;
+    int ROUND_OFFSET = 4;
+    int PUBLISH_TIME_OFFSET = 8;
+    int SEND_TIME_OFFSET = 16;
+    
+    /**
+     * Send one marker.
+     * @param message The message, from its position to its limit.
+     * @return True if it was sent, false if it was dropped because the sink is not ready.
+     * @throws IOException If the marker can't be sent.
+     */
+    boolean send(ByteBuffer message) throws IOException;
+    
+    /**
+     * @return Short name of the sink for the marker log.
+     */
+    String getName();
+}
@@ -0,0 +1,67 @@
+package markers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+/**
+ * Writes every marker to a named pipe (FIFO).
+ * 
+ * Opening a pipe for writing waits until something opens it for reading, so
+ * the pipe is opened on a thread of its own and markers are dropped until a
+ * reader is there. A message is smaller than PIPE_BUF, so every write is atomic.
+ */
+public class PipeMarkerSink implements MarkerSink {
+    
+    private static Logger logger = Logger.getLogger("mylog");
+    
+    private final File pipe;
+    
+    /** The open pipe, or null until a reader opens the other end. */
+    private volatile FileChannel channel;
+    
+    /**
+     * Constructor. Starts opening the pipe.
+     * @param pipe The named pipe, which must already exist (e.g. made with mkfifo).
+     */
+    public PipeMarkerSink(File pipe) {
+        this.pipe = pipe;
+        Thread opener = new Thread(() -> {
+            try {
+                this.channel = FileChannel.open(pipe.toPath(), StandardOpenOption.WRITE);
+            } catch (IOException ex) {
+                logger.warning("Cannot open marker pipe " + pipe + ": " + ex);
+            }
+        }, "dots-marker-pipe");
+        opener.setDaemon(true);
+        opener.start();
+    }
+
+    @Override
+    public boolean send(ByteBuffer message) throws IOException {
+        FileChannel current = this.channel;
+        if (current == null) {
+            return false;
+        }
+        while (message.hasRemaining()) {
+            current.write(message);
+        }
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return "pipe:" + this.pipe;
+    }
+
+    @Override
+    public void close() throws IOException {
+        FileChannel current = this.channel;
+        if (current != null) {
+            current.close();
+        }
+    }
+}
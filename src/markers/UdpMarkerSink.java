@@ -0,0 +1,47 @@
+package markers;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Sends every marker as one UDP datagram.
+ */
+public class UdpMarkerSink implements MarkerSink {
+    
+    private final DatagramChannel channel;
+    private final String name;
+    
+    /**
+     * Constructor.
+     * @param host Host to send to, usually localhost.
+     * @param port Port to send to.
+     * @throws IOException If the socket can't be opened.
+     */
+    public UdpMarkerSink(String host, int port) throws IOException {
+        this.channel = DatagramChannel.open();
+        this.channel.connect(new InetSocketAddress(host, port));
+        this.name = "udp:" + host + ":" + port;
+    }
+
+    @Override
+    public boolean send(ByteBuffer message) throws IOException {
+        try {
+            return this.channel.write(message) > 0;
+        } catch (PortUnreachableException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
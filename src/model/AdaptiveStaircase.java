@@ -0,0 +1,211 @@
+package model;
+
+import java.util.Random;
+
+/**
+ * Adaptive choice of the numbers of dots, in the style of the psi method (QUEST+).
+ * 
+ * Keeps a posterior over a grid of Weber fractions and lapse rates (see WeberModel).
+ * Every pair of numbers of dots that can be shown is a candidate stimulus. For each
+ * candidate, the probability of a correct response at every grid point is worked out
+ * once, along with the entropy of that response, so that:
+ * 
+ *  -Updating the posterior after a response is one pass over the grid.
+ *  -Choosing the next stimulus, the one with the highest expected information gain
+ *   about the parameters, is one pass over the grid per candidate. With the default
+ *   grid this takes under a millisecond, far inside the time between rounds.
+ * 
+ * Classes Related To:
+ *  -DotsPairGenerator.java
+ *      -Asks for the next numbers of dots and reports the responses when adaptive.
+ *  -WeberModel.java
+ *      -The psychometric function.
+ */
+public class AdaptiveStaircase {
+    
+    /** Range and number of Weber fractions in the grid (log spaced). */
+    static final double MIN_WEBER_FRACTION = 0.05;
+    static final double MAX_WEBER_FRACTION = 1.5;
+    static final int NUM_WEBER_FRACTIONS = 40;
+    
+    /** Range and number of lapse rates in the grid (linearly spaced). */
+    static final double MAX_LAPSE_RATE = 0.1;
+    static final int NUM_LAPSE_RATES = 6;
+    
+    /** Weber fraction and lapse rate at each grid point. */
+    private final double[] gridWeberFractions;
+    private final double[] gridLapseRates;
+    
+    /** Posterior probability of each grid point. */
+    private final double[] posterior;
+    
+    /** Numbers of dots of each candidate stimulus, smaller and greater. */
+    private final int[] stimulusSmaller;
+    private final int[] stimulusGreater;
+    
+    /** likelihoods[stimulus][gridPoint]: probability of a correct response. */
+    private final double[][] likelihoods;
+    
+    /** entropies[stimulus][gridPoint]: entropy of the response at that grid point. */
+    private final double[][] entropies;
+    
+    /** Random number generator to break ties. */
+    private final Random randomGenerator;
+    
+    /** Number of responses the posterior has been updated with. */
+    private int numUpdates;
+    
+    /**
+     * Staircase over every pair of numbers of dots between 1 and maxDots.
+     * @param maxDots The greatest number of dots a set may have.
+     */
+    public AdaptiveStaircase(int maxDots) {
+        this(maxDots, new Random());
+    }
+    
+    /**
+     * @param maxDots The greatest number of dots a set may have.
+     * @param randomGenerator Random number generator to break ties.
+     */
+    public AdaptiveStaircase(int maxDots, Random randomGenerator) {
+        this.randomGenerator = randomGenerator;
+        
+        int gridSize = NUM_WEBER_FRACTIONS * NUM_LAPSE_RATES;
+        this.gridWeberFractions = new double[gridSize];
+        this.gridLapseRates = new double[gridSize];
+        double logStep = Math.log(MAX_WEBER_FRACTION / MIN_WEBER_FRACTION) / (NUM_WEBER_FRACTIONS - 1);
+        for (int i = 0; i < NUM_WEBER_FRACTIONS; i++) {
+            for (int j = 0; j < NUM_LAPSE_RATES; j++) {
+                int point = i * NUM_LAPSE_RATES + j;
+                this.gridWeberFractions[point] = MIN_WEBER_FRACTION * Math.exp(logStep * i);
+                this.gridLapseRates[point] = MAX_LAPSE_RATE * j / (NUM_LAPSE_RATES - 1);
+            }
+        }
+        this.posterior = new double[gridSize];
+        
+        int numStimuli = maxDots * (maxDots - 1) / 2;
+        this.stimulusSmaller = new int[numStimuli];
+        this.stimulusGreater = new int[numStimuli];
+        this.likelihoods = new double[numStimuli][gridSize];
+        this.entropies = new double[numStimuli][gridSize];
+        int stimulus = 0;
+        for (int smaller = 1; smaller <= maxDots; smaller++) {
+            for (int greater = smaller + 1; greater <= maxDots; greater++) {
+                this.stimulusSmaller[stimulus] = smaller;
+                this.stimulusGreater[stimulus] = greater;
+                double ratio = (double) greater / smaller;
+                for (int point = 0; point < gridSize; point++) {
+                    double p = WeberModel.probabilityCorrect(ratio, 
+                            this.gridWeberFractions[point], this.gridLapseRates[point]);
+                    this.likelihoods[stimulus][point] = p;
+                    this.entropies[stimulus][point] = entropy(p);
+                }
+                stimulus++;
+            }
+        }
+        this.reset();
+    }
+    
+    /**
+     * Go back to the uniform prior.
+     */
+    public void reset() {
+        for (int point = 0; point < this.posterior.length; point++) {
+            this.posterior[point] = 1.0 / this.posterior.length;
+        }
+        this.numUpdates = 0;
+    }
+    
+    /**
+     * Choose the stimulus with the highest expected information gain,
+     * i.e. the mutual information between the response and the parameters.
+     * @return Index of the stimulus.
+     */
+    public int selectStimulus() {
+        int best = 0;
+        double bestGain = Double.NEGATIVE_INFINITY;
+        int numTies = 0;
+        for (int stimulus = 0; stimulus < this.likelihoods.length; stimulus++) {
+            double[] likelihood = this.likelihoods[stimulus];
+            double[] entropy = this.entropies[stimulus];
+            double pCorrect = 0;
+            double expectedEntropy = 0;
+            for (int point = 0; point < this.posterior.length; point++) {
+                pCorrect += this.posterior[point] * likelihood[point];
+                expectedEntropy += this.posterior[point] * entropy[point];
+            }
+            double gain = entropy(pCorrect) - expectedEntropy;
+            if (gain > bestGain + 1e-12) {
+                best = stimulus;
+                bestGain = gain;
+                numTies = 1;
+            } else if (gain > bestGain - 1e-12 && this.randomGenerator.nextInt(++numTies) == 0) {
+                best = stimulus;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Update the posterior with the response to a stimulus.
+     * @param stimulus Index of the stimulus shown.
+     * @param correct Whether the response was correct.
+     */
+    public void update(int stimulus, boolean correct) {
+        double[] likelihood = this.likelihoods[stimulus];
+        double total = 0;
+        for (int point = 0; point < this.posterior.length; point++) {
+            double p = correct ? likelihood[point] : 1 - likelihood[point];
+            this.posterior[point] *= p;
+            total += this.posterior[point];
+        }
+        for (int point = 0; point < this.posterior.length; point++) {
+            this.posterior[point] /= total;
+        }
+        this.numUpdates++;
+    }
+    
+    /**
+     * Binary entropy in bits.
+     * @param p Probability of one outcome.
+     * @return The entropy.
+     */
+    private static double entropy(double p) {
+        if (p <= 0 || p >= 1) {
+            return 0;
+        }
+        return -(p * Math.log(p) + (1 - p) * Math.log(1 - p)) / Math.log(2);
+    }
+    
+    /** The smaller number of dots of a stimulus. */
+    public int getSmaller(int stimulus) {
+        return this.stimulusSmaller[stimulus];
+    }
+    
+    /** The greater number of dots of a stimulus. */
+    public int getGreater(int stimulus) {
+        return this.stimulusGreater[stimulus];
+    }
+    
+    /** Posterior mean of the Weber fraction. */
+    public double getWeberFractionEstimate() {
+        double mean = 0;
+        for (int point = 0; point < this.posterior.length; point++) {
+            mean += this.posterior[point] * this.gridWeberFractions[point];
+        }
+        return mean;
+    }
+    
+    /** Posterior mean of the lapse rate. */
+    public double getLapseRateEstimate() {
+        double mean = 0;
+        for (int point = 0; point < this.posterior.length; point++) {
+            mean += this.posterior[point] * this.gridLapseRates[point];
+        }
+        return mean;
+    }
+    
+    public int getNumUpdates() {
+        return this.numUpdates;
+    }
+}
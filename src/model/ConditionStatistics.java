@@ -0,0 +1,210 @@
+package model;
+
+import util.P2Quantile;
+
+/**
+ * Running accuracy and response time statistics for every condition of the
+ * session: difficulty (see TrialHistory.difficultyIndex), control type and
+ * which side was correct.
+ * 
+ * Each round updates one cell in constant time: count, accuracy, mean and
+ * variance of response time (Welford's method), and median and 90th percentile
+ * of response time (exact for the first P2Quantile.EXACT_LIMIT rounds of a
+ * cell, P-square estimates after). A response time is flagged as an outlier
+ * when it is further from the cell's median than OUTLIER_THRESHOLD scaled
+ * median absolute deviations. The median absolute deviation follows the same
+ * rule: exact while the cell's response times are kept, estimated online from
+ * the deviations from the running median after. Outliers are still included
+ * in the statistics.
+ */
+public class ConditionStatistics {
+    
+    /** Number of scaled median absolute deviations from the median beyond which a response time is an outlier. */
+    public static final double OUTLIER_THRESHOLD = 3.0;
+    
+    /** Scale making the median absolute deviation estimate the standard deviation of normal data. */
+    static final double MAD_SCALE = 1.4826;
+    
+    /** Number of rounds a cell needs before any response time is flagged as an outlier. */
+    public static final int MIN_ROUNDS_FOR_OUTLIERS = 8;
+    
+    private static final ControlType[] CONTROL_TYPES = ControlType.values();
+    
+    /** Statistics of one condition. */
+    public static final class Cell {
+        private int count;
+        private int numCorrect;
+        private int numOutliers;
+        
+        /** Running mean and sum of squared deviations of response time in nanoseconds. */
+        private double mean;
+        private double sumSquares;
+        
+        private final P2Quantile median = new P2Quantile(0.5);
+        private final P2Quantile p90 = new P2Quantile(0.9);
+        
+        /** Median of the absolute deviations from the running median, used once the median is no longer exact. */
+        private final P2Quantile absoluteDeviation = new P2Quantile(0.5);
+        
+        Cell() {
+            
+        }
+        
+        /**
+         * Add a round.
+         * @return True if the response time is an outlier.
+         */
+        boolean record(boolean correct, long responseTime) {
+            boolean outlier = this.isOutlier(responseTime);
+            double deviation = Math.abs(responseTime - this.median.getValue());
+            
+            this.count++;
+            if (correct) {
+                this.numCorrect++;
+            }
+            if (outlier) {
+                this.numOutliers++;
+            }
+            double delta = responseTime - this.mean;
+            this.mean += delta / this.count;
+            this.sumSquares += delta * (responseTime - this.mean);
+            
+            if (this.count > 1) {
+                this.absoluteDeviation.record(deviation);
+            }
+            this.median.record(responseTime);
+            this.p90.record(responseTime);
+            return outlier;
+        }
+        
+        private boolean isOutlier(long responseTime) {
+            if (this.count < MIN_ROUNDS_FOR_OUTLIERS) {
+                return false;
+            }
+            double spread = MAD_SCALE * this.getMedianAbsoluteDeviation();
+            return spread > 0 && Math.abs(responseTime - this.median.getValue()) > OUTLIER_THRESHOLD * spread;
+        }
+        
+        void reset() {
+            this.count = 0;
+            this.numCorrect = 0;
+            this.numOutliers = 0;
+            this.mean = 0;
+            this.sumSquares = 0;
+            this.median.reset();
+            this.p90.reset();
+            this.absoluteDeviation.reset();
+        }
+        
+        public int getCount() {
+            return this.count;
+        }
+        
+        public int getNumCorrect() {
+            return this.numCorrect;
+        }
+        
+        public int getNumOutliers() {
+            return this.numOutliers;
+        }
+        
+        /** Fraction of correct rounds, or NaN if there are none. */
+        public double getAccuracy() {
+            return this.count == 0 ? Double.NaN : (double) this.numCorrect / this.count;
+        }
+        
+        /** Mean response time in nanoseconds, or NaN if there are no rounds. */
+        public double getMeanResponseTime() {
+            return this.count == 0 ? Double.NaN : this.mean;
+        }
+        
+        /** Sample standard deviation of response time in nanoseconds, or NaN with fewer than two rounds. */
+        public double getResponseTimeStdDev() {
+            return this.count < 2 ? Double.NaN : Math.sqrt(this.sumSquares / (this.count - 1));
+        }
+        
+        /** Estimated median response time in nanoseconds. */
+        public double getMedianResponseTime() {
+            return this.median.getValue();
+        }
+        
+        /** Estimated 90th percentile of response time in nanoseconds. */
+        public double getP90ResponseTime() {
+            return this.p90.getValue();
+        }
+        
+        /** Estimated median absolute deviation of response time in nanoseconds. */
+        public double getMedianAbsoluteDeviation() {
+            if (this.median.isExact()) {
+                return this.median.getMedianAbsoluteDeviation();
+            }
+            return this.absoluteDeviation.getValue();
+        }
+    }
+    
+    /** Cells indexed by difficulty, control type ordinal, then 0 for left correct and 1 for right. */
+    private final Cell[][][] cells;
+    
+    /** Total number of outliers flagged. */
+    private int numOutliers;
+    
+    /**
+     * Constructor. Every cell is allocated up front.
+     */
+    public ConditionStatistics() {
+        this.cells = new Cell[TrialHistory.NUM_DIFFICULTIES][CONTROL_TYPES.length][2];
+        for (int d = 0; d < TrialHistory.NUM_DIFFICULTIES; d++) {
+            for (int c = 0; c < CONTROL_TYPES.length; c++) {
+                for (int s = 0; s < 2; s++) {
+                    this.cells[d][c][s] = new Cell();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Add a round to its condition.
+     * @param pair The pair of dot sets shown.
+     * @param correct Whether the subject answered correctly.
+     * @param responseTime Response time in nanoseconds.
+     * @return True if the response time is an outlier for its condition.
+     */
+    public boolean record(DotsPair pair, boolean correct, long responseTime) {
+        Cell cell = this.getCell(TrialHistory.difficultyIndex(pair.getDifference()), 
+                pair.getControlType(), pair.isLeftCorrect());
+        boolean outlier = cell.record(correct, responseTime);
+        if (outlier) {
+            this.numOutliers++;
+        }
+        return outlier;
+    }
+    
+    /**
+     * Statistics of one condition.
+     * @param difficulty Difficulty index, see TrialHistory.difficultyIndex.
+     * @param controlType The control type.
+     * @param leftCorrect Whether the left side was correct.
+     * @return The cell.
+     */
+    public Cell getCell(int difficulty, ControlType controlType, boolean leftCorrect) {
+        return this.cells[difficulty][controlType.ordinal()][leftCorrect ? 0 : 1];
+    }
+    
+    /**
+     * Forget every round.
+     */
+    public void reset() {
+        for (Cell[][] byControl : this.cells) {
+            for (Cell[] bySide : byControl) {
+                for (Cell cell : bySide) {
+                    cell.reset();
+                }
+            }
+        }
+        this.numOutliers = 0;
+    }
+    
+    public int getNumOutliers() {
+        return this.numOutliers;
+    }
+}
@@ -2,13 +2,16 @@ package model;
 
 import java.util.Random;
 import java.util.ArrayList;
+import java.util.Arrays;
 
-import view.SetUp;
 import config.Config;
 
 /** 
  * Object to represent a set of dots.
  * 
+ * Positions and diameters are kept in arrays of primitives. A DotSet made for a 
+ * DotsPairPool has room for MAX_DOTS dots and is filled again in place with reset().
+ * 
  * Classes related to:
  *  -Coordinate.java
  *      Contains an array of Coordinates to represent dot locations.
@@ -38,10 +41,14 @@ public class DotSet {
     private int totalNumDots;
     
     /** Positions of every dot with respect to the canvas it is in */
-    private ArrayList<Coordinate> positions;
+    private int[] xPositions;
+    private int[] yPositions;
     
     /** Respective diameters of the dots in the dotSet */
-    private ArrayList<Double> diameters;
+    private double[] diameters;
+    
+    /** Number of dots placed so far. */
+    private int numPlaced;
     
     /** The total area of the dotSet to be calculated after painting all dots.
      * Used for TOTAL_AREA_CONTROL. */
@@ -50,28 +57,62 @@ public class DotSet {
     /** Random number generator */
     private Random randomGenerator = new Random();
     
+    /** Number of candidate positions tried while placing the dots. */
+    private int placementAttempts;
+    
+    /** Whether the configuration has been loaded. */
+    private static boolean configLoaded;
+    
     /** The minimum distance in pixels two dots can be from each other. */
     static final int MIN_DISTANCE_BETWEEN_DOTS = 3;
     
+    /** Size of the canvas before the view sets it, that of an option on a 1920x1080 screen. */
+    static final int DEFAULT_CANVAS_WIDTH = 576;
+    static final int DEFAULT_CANVAS_HEIGHT = 756;
+    
+    /** Size in pixels of the canvas each dot set is painted on. 
+     * Set by the view so dot sets can also be built without a screen. */
+    private static int canvasWidth = DEFAULT_CANVAS_WIDTH;
+    private static int canvasHeight = DEFAULT_CANVAS_HEIGHT;
+    
     /**
      * Constructor for DotSet with a specified number of total dots to contain. 
      * @param numDots total number of dots this dotSet will have.
      */
     public DotSet(int numDots) {
+        this.allocate(numDots);
+        this.reset(numDots);
+    }
+    
+    /**
+     * Constructor for an empty DotSet with room for MAX_DOTS dots, to be filled with reset().
+     */
+    DotSet() {
+        this.allocate(DotsPairGenerator.MAX_DOTS);
+    }
+    
+    /**
+     * Empty this dotSet and fill it again with a number of dots, reusing its arrays.
+     * @param numDots total number of dots this dotSet will have.
+     */
+    void reset(int numDots) {
         
         loadConfig();
         
         this.setTotalNumDots(numDots);
-        this.positions = new ArrayList<Coordinate>();
-        this.diameters = new ArrayList<Double>(); 
-        
-        this.totalArea = 0;
+        this.clear();
         
         if (AVERAGE_RADIUS_CONTROL) { this.fillDots(AVERAGE_DIAMETER_ARC, MAX_DIAMETER_VARIANCE_ARC); }
         else { this.fillDots(); }
     }
     
-    private void loadConfig() {
+    /**
+     * Load the configuration, only the first time a DotSet is filled.
+     */
+    private static synchronized void loadConfig() {
+        if (configLoaded) {
+            return;
+        }
         new Config();
         AVERAGE_RADIUS_CONTROL = Config.getPropertyBoolean("average.radius.control");
         AVERAGE_DIAMETER_ARC = Config.getPropertyInt("average.diameter.arc");
@@ -79,6 +120,29 @@ public class DotSet {
         
         MIN_DIAMETER = Config.getPropertyInt("min.diameter");
         MAX_DIAMETER = Config.getPropertyInt("max.diameter");
+        configLoaded = true;
+    }
+    
+    /**
+     * Make room for a number of dots.
+     * @param capacity Number of dots.
+     */
+    private void allocate(int capacity) {
+        this.xPositions = new int[capacity];
+        this.yPositions = new int[capacity];
+        this.diameters = new double[capacity];
+    }
+    
+    /**
+     * Remove every dot, growing the arrays if they can't hold totalNumDots.
+     */
+    private void clear() {
+        if (this.diameters.length < this.totalNumDots) {
+            this.allocate(this.totalNumDots);
+        }
+        this.numPlaced = 0;
+        this.totalArea = 0;
+        this.placementAttempts = 0;
     }
     
     /**
@@ -90,8 +154,7 @@ public class DotSet {
      */
     public DotSet(int numDots, double averageDiameter, int maxDiameterVariance) {
         this.setTotalNumDots(numDots);
-        this.positions = new ArrayList<Coordinate>();
-        this.diameters = new ArrayList<Double>(); 
+        this.allocate(numDots);
         
         this.fillDots(averageDiameter, maxDiameterVariance); 
     }
@@ -102,8 +165,8 @@ public class DotSet {
     private void fillDots() {
         int i = 0;
         while (i < this.totalNumDots) {
-            int x = randomGenerator.nextInt(SetUp.OPTION_WIDTH - MAX_DIAMETER);
-            int y = randomGenerator.nextInt(SetUp.OPTION_HEIGHT - MAX_DIAMETER);
+            int x = randomGenerator.nextInt(canvasWidth - MAX_DIAMETER);
+            int y = randomGenerator.nextInt(canvasHeight - MAX_DIAMETER);
             int diameter = randomGenerator.nextInt(MAX_DIAMETER - MIN_DIAMETER) + MIN_DIAMETER; 
             
             if (!overLapsOther(x, y, diameter)) {
@@ -123,8 +186,8 @@ public class DotSet {
         
         while (dotsFilled < this.totalNumDots) {
             
-            int x = randomGenerator.nextInt(SetUp.OPTION_WIDTH - MAX_DIAMETER);
-            int y = randomGenerator.nextInt(SetUp.OPTION_HEIGHT - MAX_DIAMETER);
+            int x = randomGenerator.nextInt(canvasWidth - MAX_DIAMETER);
+            int y = randomGenerator.nextInt(canvasHeight - MAX_DIAMETER);
             
             if (this.totalNumDots - dotsFilled >= 2) {
                 int diameterVariance = randomGenerator.nextInt(maxDiameterVariance) + 1;
@@ -135,8 +198,8 @@ public class DotSet {
                 this.addDotNoOverlap(x, y, diameterGreater);
                 dotsFilled++;
                 
-                x = randomGenerator.nextInt(SetUp.OPTION_WIDTH - MAX_DIAMETER); 
-                y = randomGenerator.nextInt(SetUp.OPTION_HEIGHT - MAX_DIAMETER);
+                x = randomGenerator.nextInt(canvasWidth - MAX_DIAMETER); 
+                y = randomGenerator.nextInt(canvasHeight - MAX_DIAMETER);
                 
                 this.addDotNoOverlap(x, y, diameterLower);
                 dotsFilled++;
@@ -158,8 +221,8 @@ public class DotSet {
      */
     private void addDotNoOverlap(int x, int y, double diameter) {
         while (overLapsOther(x, y, diameter)) {
-            x = randomGenerator.nextInt(SetUp.OPTION_WIDTH - MAX_DIAMETER); 
-            y = randomGenerator.nextInt(SetUp.OPTION_HEIGHT - MAX_DIAMETER);
+            x = randomGenerator.nextInt(canvasWidth - MAX_DIAMETER); 
+            y = randomGenerator.nextInt(canvasHeight - MAX_DIAMETER);
         }
         this.addDotAndDiameterAndArea(x, y, diameter);
     }
@@ -172,16 +235,16 @@ public class DotSet {
      * @return true if the dot overlaps another dot in the dotSet.
      */
     private boolean overLapsOther(int x, int y, double diameter) {
+        this.placementAttempts++;
         double radius = diameter / 2.0;
         double centerX = x + radius;
         double centerY = y + radius;
 
-        for (int i = 0; i < positions.size(); i++) {
-            Coordinate otherPosition = positions.get(i);
-            double otherDiameter = diameters.get(i);
+        for (int i = 0; i < this.numPlaced; i++) {
+            double otherDiameter = this.diameters[i];
             double otherRadius = otherDiameter/2;
-            double otherCenterX = otherPosition.x + otherRadius;
-            double otherCenterY = otherPosition.y + otherRadius;
+            double otherCenterX = this.xPositions[i] + otherRadius;
+            double otherCenterY = this.yPositions[i] + otherRadius;
 
             double dx = centerX - otherCenterX;
             double dy = centerY - otherCenterY;
@@ -202,8 +265,16 @@ public class DotSet {
      * @param diameter Diameter of the dot
      */
     public void addDotAndDiameterAndArea(int x, int y, double diameter) {
-        this.positions.add(new Coordinate(x, y));
-        this.diameters.add(diameter);
+        if (this.numPlaced == this.diameters.length) {
+            int capacity = Math.max(1, this.numPlaced * 2);
+            this.xPositions = Arrays.copyOf(this.xPositions, capacity);
+            this.yPositions = Arrays.copyOf(this.yPositions, capacity);
+            this.diameters = Arrays.copyOf(this.diameters, capacity);
+        }
+        this.xPositions[this.numPlaced] = x;
+        this.yPositions[this.numPlaced] = y;
+        this.diameters[this.numPlaced] = diameter;
+        this.numPlaced++;
         this.totalArea += Math.PI * Math.pow((diameter / 2), 2);
     }
     
@@ -222,9 +293,7 @@ public class DotSet {
         double resizeRatio = Math.sqrt(otherTotalArea / this.getTotalArea());
         
         for (int diameterIndex = 0; diameterIndex < this.totalNumDots; diameterIndex++) {
-            double diameterToScale = this.diameters.get(diameterIndex);
-            double scaledDiameter = diameterToScale * resizeRatio;
-            this.diameters.set(diameterIndex, scaledDiameter);
+            this.diameters[diameterIndex] *= resizeRatio;
         }
         this.recalcArea();
     }
@@ -242,9 +311,7 @@ public class DotSet {
         double inverseResizeRatio = Math.sqrt(this.getTotalArea() / otherTotalArea);
         
         for (int diameterIndex = 0; diameterIndex < this.totalNumDots; diameterIndex++) {
-            double diameterToScale = this.diameters.get(diameterIndex);
-            double scaledDiameter = diameterToScale * inverseResizeRatio;
-            this.diameters.set(diameterIndex, scaledDiameter);
+            this.diameters[diameterIndex] *= inverseResizeRatio;
         }
         this.recalcArea();
     }
@@ -254,18 +321,46 @@ public class DotSet {
      */
     private void recalcArea() {
         this.totalArea = 0;
-        for (Double diameter : this.diameters) {
-            totalArea += Math.PI * Math.pow((diameter / 2), 2);
+        for (int i = 0; i < this.numPlaced; i++) {
+            totalArea += Math.PI * Math.pow((this.diameters[i] / 2), 2);
         }
     }
     
+    /**
+     * @param index Index of a dot.
+     * @return X coordinate of the dot.
+     */
+    public int getX(int index) {
+        return this.xPositions[index];
+    }
+    
+    /**
+     * @param index Index of a dot.
+     * @return Y coordinate of the dot.
+     */
+    public int getY(int index) {
+        return this.yPositions[index];
+    }
+    
+    /**
+     * @param index Index of a dot.
+     * @return Diameter of the dot.
+     */
+    public double getDiameter(int index) {
+        return this.diameters[index];
+    }
+    
+    /**
+     * Copy of the positions of the dots. Use getX() and getY() when painting.
+     * @return The positions.
+     */
     public ArrayList<Coordinate> getPositions() {
+        ArrayList<Coordinate> positions = new ArrayList<Coordinate>(this.numPlaced);
+        for (int i = 0; i < this.numPlaced; i++) {
+            positions.add(new Coordinate(this.xPositions[i], this.yPositions[i]));
+        }
         return positions;
     }
-
-    public void setPositions(ArrayList<Coordinate> positions) {
-        this.positions = positions;
-    }
     
     public double getTotalArea() {
         return this.totalArea;
@@ -275,17 +370,42 @@ public class DotSet {
         return this.totalNumDots;
     }
 
+    /**
+     * Copy of the diameters of the dots. Use getDiameter() when painting.
+     * @return The diameters.
+     */
     public ArrayList<Double> getDiameters() {
+        ArrayList<Double> diameters = new ArrayList<Double>(this.numPlaced);
+        for (int i = 0; i < this.numPlaced; i++) {
+            diameters.add(this.diameters[i]);
+        }
         return diameters;
     }
-
-    public void setDiameters(ArrayList<Double> diameters) {
-        this.diameters = diameters;
+    
+    /**
+     * @return Number of dots placed, totalNumDots once the dotSet is filled.
+     */
+    public int getNumPlaced() {
+        return this.numPlaced;
     }
 
     public void setTotalNumDots(int totalNumDots) {
         this.totalNumDots = totalNumDots;
     }
+    
+    public int getPlacementAttempts() {
+        return this.placementAttempts;
+    }
+    
+    /**
+     * Set the size of the canvas dots are placed in.
+     * @param width Width of the canvas in pixels.
+     * @param height Height of the canvas in pixels.
+     */
+    public static void setCanvasSize(int width, int height) {
+        canvasWidth = width;
+        canvasHeight = height;
+    }
 
 
 }
@@ -1,15 +1,23 @@
 package model;
 
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import config.Config;
 
 /** 
  * Object to represent two sets of dots.
  * 
+ * Every pair counts the references to it. Whoever makes a pair holds the first
+ * reference; anyone else who keeps it past the current round calls retain(), and
+ * release() once done. A pair from a DotsPairPool is only filled again once every
+ * reference has been released, so it can't change under a writer still using it.
+ * 
  * Classes Related To;
  *  -DotSet.java
  *      -DotsPair contains a pair of DotSets.
+ *  -DotsPairPool.java
+ *      -Hands out pairs that are filled again in place.
  * 
  * @author Tony Jiang
  * 6-25-2015
@@ -37,8 +45,17 @@ public class DotsPair {
     private static boolean INVERSE_AREAS_ONLY;
     private static boolean AVERAGE_RADIUS_CONTROL;
     
+    /** Whether the configuration has been loaded. */
+    private static boolean configLoaded;
+    
     private Random randomGenerator = new Random();
     
+    /** Number of references to this pair. */
+    private final AtomicInteger references = new AtomicInteger(1);
+    
+    /** Number of times this pair has been filled. */
+    private int generation;
+    
     /** 
      * Constructor for DotsPair.
      * @param numDotsOne The number of dots in the first set.
@@ -52,6 +69,39 @@ public class DotsPair {
         this.dotSetOne = new DotSet(numDotsOne);
         this.dotSetTwo = new DotSet(numDotsTwo);
         
+        this.fill(numDotsOne, numDotsTwo, controlType);
+    }
+    
+    /**
+     * Constructor for an empty pair with room for MAX_DOTS dots on each side,
+     * for a DotsPairPool. It has no references until the pool claims it.
+     */
+    DotsPair() {
+        this.dotSetOne = new DotSet();
+        this.dotSetTwo = new DotSet();
+        this.references.set(0);
+    }
+    
+    /**
+     * Fill this pair again in place, as if it had just been made.
+     * @param numDotsOne The number of dots in the first set.
+     * @param numDotsTwo The number of dots in the second set.
+     * @param controlType The control type of this dots pair.
+     */
+    void reset(int numDotsOne, int numDotsTwo, ControlType controlType) {
+        loadConfig();
+        
+        this.dotSetOne.reset(numDotsOne);
+        this.dotSetTwo.reset(numDotsTwo);
+        
+        this.fill(numDotsOne, numDotsTwo, controlType);
+    }
+    
+    /**
+     * Set the control type, scale the areas and decide the correct side.
+     */
+    private void fill(int numDotsOne, int numDotsTwo, ControlType controlType) {
+        this.generation++;
         this.controlType = controlType;
         
         this.defineControlType();
@@ -61,20 +111,65 @@ public class DotsPair {
         }
         
         this.difference = numDotsOne - numDotsTwo;
-        if (this.difference > 0) {
-            this.setLeftCorrect(true);
-        } else if (this.difference < 0) {
-            this.setLeftCorrect(false);
-        }
+        this.setLeftCorrect(this.difference > 0);
     }
     
-    private void loadConfig() {
+    /**
+     * Load the configuration, only the first time a pair is filled.
+     */
+    private static synchronized void loadConfig() {
+        if (configLoaded) {
+            return;
+        }
         new Config();
         
         TOTAL_AREA_CONTROL_ON = Config.getPropertyBoolean("total.area.control.on");
         EQUAL_AREAS_ONLY = Config.getPropertyBoolean("equal.areas.only");
         INVERSE_AREAS_ONLY = Config.getPropertyBoolean("inverse.areas.only");
         AVERAGE_RADIUS_CONTROL = Config.getPropertyBoolean("average.radius.control");
+        configLoaded = true;
+    }
+    
+    /**
+     * Take a reference to this pair, to keep it from being filled again.
+     * @return This pair.
+     */
+    public DotsPair retain() {
+        this.references.incrementAndGet();
+        return this;
+    }
+    
+    /**
+     * Give back a reference taken with retain(), or the first one.
+     * @throws IllegalStateException If every reference was already released.
+     */
+    public void release() {
+        if (this.references.decrementAndGet() < 0) {
+            this.references.incrementAndGet();
+            throw new IllegalStateException("DotsPair released more times than it was retained");
+        }
+    }
+    
+    /**
+     * Claim this pair for filling if nobody holds a reference to it.
+     * @return True if claimed, with the caller holding the only reference.
+     */
+    boolean tryClaim() {
+        return this.references.compareAndSet(0, 1);
+    }
+    
+    /**
+     * @return Number of references to this pair.
+     */
+    public int getReferences() {
+        return this.references.get();
+    }
+    
+    /**
+     * @return Number of times this pair has been filled, which changes whenever a pooled pair is reused.
+     */
+    public int getGeneration() {
+        return this.generation;
     }
     
     /**
@@ -150,6 +245,18 @@ public class DotsPair {
         }
     }
     
+    /**
+     * Ratio of the numbers of dots, greater to smaller.
+     * @return The ratio, at least 1.
+     */
+    public double getNumDotsRatio() {
+        double ratio = ((double) this.dotSetOne.getTotalNumDots()) / this.dotSetTwo.getTotalNumDots();
+        if (ratio < 1) {
+            ratio = 1 / ratio;
+        }
+        return ratio;
+    }
+    
     public DotSet getDotSetOne() {
         return this.dotSetOne;
     }
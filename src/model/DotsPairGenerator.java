@@ -3,11 +3,15 @@ package model;
 import java.util.ArrayList;
 import java.util.Random;
 
+import events.TrialGenerated;
+
 /**
  * Generates DotsPairs with random numbers of dots.
  * 
  * Classes Related To:
  *  -DotsPair.java
+ *  -DotsPairPool.java
+ *      -Recycles the pairs when pooled.
  * 
  * @author Tony Jiang
  * 6-25-2015
@@ -16,7 +20,7 @@ import java.util.Random;
 public class DotsPairGenerator {
     
     /** Number of characters to choose from. */
-    static final int MAX_DOTS = 26;
+    public static final int MAX_DOTS = 26;
     
     /** Max number of times the same side may be the correct choice. */
     static final int MAX_TIMES_SAME_ANSWER = 3;
@@ -48,9 +52,12 @@ public class DotsPairGenerator {
     /** Random number generator. */
     Random randomGenerator = new Random();
 
-    /** The most recent DotsPair produced by DotsPairGenerator. */
+    /** The most recent DotsPair produced by DotsPairGenerator, to which it holds a reference. */
     private DotsPair dotsPair; 
     
+    /** Pool the pairs come from, or null to make a new pair every round. */
+    private DotsPairPool pool;
+    
     /** The difficulty setting: EASY, MEDIUM, HARD */
     private int difficultyMode;
     
@@ -73,6 +80,18 @@ public class DotsPairGenerator {
     /** True if the last correct choice was the cluster with bigger individual dots. */
     private boolean lastWasBig;
     
+    /** Plan of the session to follow, or null to decide each pair as it comes. */
+    private TrialPlan plan;
+    
+    /** Index in the plan of the next round. */
+    private int planIndex;
+    
+    /** Staircase choosing the numbers of dots when adaptive, or null. */
+    private AdaptiveStaircase staircase;
+    
+    /** Index in the staircase of the stimulus waiting for a response, or -1. */
+    private int pendingStimulus = -1;
+    
     /**
      * Constructor. 
      */
@@ -134,9 +153,93 @@ public class DotsPairGenerator {
      * Get a new pair based on the current difficulty.
      */
     public void getNewDifficultyPair() {
-        this.setDifficulty();
-        int difference = this.decideDifference();
-        this.getNewPair(difference);
+        TrialGenerated event = new TrialGenerated();
+        event.begin();
+        if (this.plan != null && this.planIndex < this.plan.size()) {
+            this.setPlannedPair(this.plan.get(this.planIndex++));
+        } else if (this.staircase != null) {
+            this.getNewAdaptivePair();
+        } else {
+            this.setDifficulty();
+            int difference = this.decideDifference();
+            this.getNewPair(difference);
+        }
+        if (event.shouldCommit()) {
+            event.leftDots = this.dotsPair.getDotSetOne().getTotalNumDots();
+            event.rightDots = this.dotsPair.getDotSetTwo().getTotalNumDots();
+            event.controlType = this.dotsPair.getControlType().toString();
+            event.placementAttempts = this.dotsPair.getDotSetOne().getPlacementAttempts() 
+                    + this.dotsPair.getDotSetTwo().getPlacementAttempts();
+            event.commit();
+        }
+    }
+    
+    /**
+     * Set the pair planned for this round. Only the dots themselves are generated.
+     * @param trial The planned round.
+     */
+    private void setPlannedPair(PlannedTrial trial) {
+        this.difficultyMode = trial.getDifficultyMode();
+        this.setDotsPair(this.makePair(trial.getLeftDots(), trial.getRightDots(), trial.getControlType()));
+    }
+    
+    /**
+     * Get a new pair with the numbers of dots chosen by the staircase.
+     * The side and control type are still decided as for any other pair.
+     */
+    private void getNewAdaptivePair() {
+        this.pendingStimulus = this.staircase.selectStimulus();
+        int dotSetOne = this.staircase.getGreater(this.pendingStimulus);
+        int dotSetTwo = this.staircase.getSmaller(this.pendingStimulus);
+        this.difficultyMode = difficultyOf(dotSetOne - dotSetTwo);
+        if (randomGenerator.nextBoolean()) {
+            dotSetOne = swap(dotSetTwo, dotSetTwo = dotSetOne);
+        }
+        this.checkAndSet(dotSetOne, dotSetTwo);
+    }
+    
+    /**
+     * Report the subject's response to the latest pair. Only used when adaptive.
+     * @param correct Whether the response was correct.
+     */
+    public void recordResponse(boolean correct) {
+        if (this.staircase != null && this.pendingStimulus >= 0) {
+            this.staircase.update(this.pendingStimulus, correct);
+        }
+        this.pendingStimulus = -1;
+    }
+    
+    /**
+     * The difficulty mode a distance belongs to.
+     * @param distance The difference in number of dots.
+     * @return EASY_MODE, MEDIUM_MODE, HARD_MODE, or -1 if it belongs to none.
+     */
+    public static int difficultyOf(int distance) {
+        distance = Math.abs(distance);
+        for (int mode = 0; mode < NUM_MODES; mode++) {
+            int min = modeMinimum(mode);
+            if (distance >= min && distance < min + NUM_CHOICES_IN_MODE) {
+                return mode;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * The lowest distance a difficulty mode can have.
+     * @param difficultyMode EASY_MODE, MEDIUM_MODE or HARD_MODE.
+     * @return The lowest distance.
+     */
+    static int modeMinimum(int difficultyMode) {
+        switch (difficultyMode) {
+        case EASY_MODE:
+            return EASY_MODE_MIN;
+        case MEDIUM_MODE:
+            return MEDIUM_MODE_MIN;
+        case HARD_MODE:
+            return HARD_MODE_MIN;
+        }
+        throw new IllegalArgumentException("Unknown difficulty mode " + difficultyMode);
     }
     
     /**
@@ -193,8 +296,22 @@ public class DotsPairGenerator {
         if (this.getSameChoice() >= MAX_TIMES_SAME_ANSWER) {
             this.setReversePair(dotSetOne, dotSetTwo, controlTypeCandidate);
         } else {
-            this.setDotsPair(new DotsPair(dotSetOne, dotSetTwo, controlTypeCandidate));
+            this.setDotsPair(this.makePair(dotSetOne, dotSetTwo, controlTypeCandidate));
+        }
+    }
+    
+    /**
+     * Make a pair, from the pool if pooled.
+     * @param dotSetOne number of dots in dot set one.
+     * @param dotSetTwo number of dots in dot set two.
+     * @param controlType control type of the pair.
+     * @return The pair, with the caller holding its only reference.
+     */
+    private DotsPair makePair(int dotSetOne, int dotSetTwo, ControlType controlType) {
+        if (this.pool != null) {
+            return this.pool.acquire(dotSetOne, dotSetTwo, controlType);
         }
+        return new DotsPair(dotSetOne, dotSetTwo, controlType);
     }
     
     /**
@@ -233,7 +350,7 @@ public class DotsPairGenerator {
      * @param dotSetTwo
      */
     public void setReversePair(int dotSetOne, int dotSetTwo, ControlType controlType) {
-        this.setDotsPair(new DotsPair(dotSetTwo, dotSetOne, controlType));
+        this.setDotsPair(this.makePair(dotSetTwo, dotSetOne, controlType));
         this.toggleLastWasLeft();
         this.setSameChoice(0);
     }
@@ -324,12 +441,62 @@ public class DotsPairGenerator {
         this.difficultyMode++;
     }
 
+    public TrialPlan getPlan() {
+        return this.plan;
+    }
+    
+    /**
+     * Follow a plan for the next rounds, starting from its first round.
+     * Once the plan runs out, pairs are decided as they come again.
+     * @param plan The plan, or null to stop following one.
+     */
+    public void setPlan(TrialPlan plan) {
+        this.plan = plan;
+        this.planIndex = 0;
+    }
+
+    public AdaptiveStaircase getStaircase() {
+        return this.staircase;
+    }
+    
+    /**
+     * Choose the numbers of dots adaptively with a staircase, when not following a plan.
+     * @param staircase The staircase, or null to go back to the fixed difficulties.
+     */
+    public void setStaircase(AdaptiveStaircase staircase) {
+        this.staircase = staircase;
+        this.pendingStimulus = -1;
+    }
+
     public DotsPair getDotsPair() {
         return this.dotsPair;
     }
 
+    /**
+     * Make a pair the current one, releasing the previous one.
+     * @param dotsPair The pair, whose reference is handed over to the generator.
+     */
     public void setDotsPair(DotsPair dotsPair) {
+        DotsPair previous = this.dotsPair;
         this.dotsPair = dotsPair;
+        if (previous != null && previous != dotsPair) {
+            previous.release();
+        }
+    }
+    
+    /**
+     * Recycle a small fixed set of pairs instead of making new ones every round.
+     * @param pooled True to use a pool of DotsPairPool.DEFAULT_SIZE pairs, false to make new pairs.
+     */
+    public void setPooled(boolean pooled) {
+        this.pool = pooled ? new DotsPairPool(DotsPairPool.DEFAULT_SIZE) : null;
+    }
+    
+    /**
+     * @return The pool the pairs come from, or null if not pooled.
+     */
+    public DotsPairPool getPool() {
+        return this.pool;
     }
 
     public int getSameChoice() {
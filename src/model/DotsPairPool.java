@@ -0,0 +1,81 @@
+package model;
+
+/**
+ * Small fixed set of DotsPairs that are filled again in place instead of
+ * making two new DotSets for every round.
+ *
+ * A pair is only handed out again once every reference to it has been released
+ * (see DotsPair.retain() and release()), so a pair still held by a DataWriter
+ * keeps its dots. If every pair is still held, a new pair is made instead and
+ * counted as a miss; it is thrown away once released, like any other pair.
+ *
+ * Only one thread may acquire pairs from a pool. Releasing may happen on any thread.
+ *
+ * Classes Related to:
+ *  -DotsPairGenerator.java
+ *      -Gets its pairs from a pool when pooled.
+ *  -DotsPair.java
+ *      -The pairs, which count their own references.
+ */
+public class DotsPairPool {
+
+    /**
+     * Number of pairs in a pool: the one being shown, the one being written, and spares.
+     */
+    public static final int DEFAULT_SIZE = 4;
+
+    private final DotsPair[] pairs;
+
+    /** Index of the pair to try first, the one after the pair last handed out. */
+    private int next;
+
+    /** Number of pairs made because every pair in the pool was held. */
+    private long misses;
+
+    /**
+     * Constructor. Makes every pair up front.
+     * @param size Number of pairs.
+     */
+    public DotsPairPool(int size) {
+        this.pairs = new DotsPair[size];
+        for (int i = 0; i < size; i++) {
+            this.pairs[i] = new DotsPair();
+        }
+    }
+
+    /**
+     * Fill a free pair with new dots. The caller holds the only reference to it
+     * and must release it when done.
+     * @param numDotsOne The number of dots in the first set.
+     * @param numDotsTwo The number of dots in the second set.
+     * @param controlType The control type of the pair.
+     * @return The pair.
+     */
+    public DotsPair acquire(int numDotsOne, int numDotsTwo, ControlType controlType) {
+        for (int i = 0; i < this.pairs.length; i++) {
+            int index = (this.next + i) % this.pairs.length;
+            DotsPair pair = this.pairs[index];
+            if (pair.tryClaim()) {
+                this.next = (index + 1) % this.pairs.length;
+                pair.reset(numDotsOne, numDotsTwo, controlType);
+                return pair;
+            }
+        }
+        this.misses++;
+        return new DotsPair(numDotsOne, numDotsTwo, controlType);
+    }
+
+    /**
+     * @return Number of pairs in the pool.
+     */
+    public int size() {
+        return this.pairs.length;
+    }
+
+    /**
+     * @return Number of pairs made because every pair in the pool was held.
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+}
@@ -28,4 +28,14 @@ public final class GameLogic {
         } 
         return correct;
     }
+    
+    /**
+     * Checks whether subject's answer is correct or incorrect.
+     * @param leftPicked True if the subject picked the left option, false for the right.
+     * @param dotsPair The current DotsPair being evaluated.
+     * @return correct True if correct, false otherwise.
+     */
+    public static boolean checkAnswerCorrect(boolean leftPicked, DotsPair dotsPair) {
+        return leftPicked == dotsPair.isLeftCorrect();
+    }
 }
@@ -0,0 +1,53 @@
+package model;
+
+/**
+ * One round of a TrialPlan: the numbers of dots on each side, the control type
+ * and the difficulty. Only the positions and sizes of the dots are left to be
+ * generated when the round is shown.
+ */
+public class PlannedTrial {
+    
+    /** Number of dots in the left (first) dot set. */
+    private final int leftDots;
+    
+    /** Number of dots in the right (second) dot set. */
+    private final int rightDots;
+    
+    /** The control type of the pair. */
+    private final ControlType controlType;
+    
+    /** The difficulty mode: EASY_MODE, MEDIUM_MODE or HARD_MODE in DotsPairGenerator. */
+    private final int difficultyMode;
+    
+    public PlannedTrial(int leftDots, int rightDots, ControlType controlType, int difficultyMode) {
+        this.leftDots = leftDots;
+        this.rightDots = rightDots;
+        this.controlType = controlType;
+        this.difficultyMode = difficultyMode;
+    }
+    
+    public int getLeftDots() {
+        return this.leftDots;
+    }
+    
+    public int getRightDots() {
+        return this.rightDots;
+    }
+    
+    public ControlType getControlType() {
+        return this.controlType;
+    }
+    
+    public int getDifficultyMode() {
+        return this.difficultyMode;
+    }
+    
+    /** The difference in number of dots between the sets. */
+    public int getDistance() {
+        return Math.abs(this.leftDots - this.rightDots);
+    }
+    
+    public boolean isLeftCorrect() {
+        return this.leftDots > this.rightDots;
+    }
+}
@@ -39,6 +39,9 @@ public class Player {
     /** Whether the subject was correct for the most recent question. */
     private boolean isRight;
     
+    /** Every question the subject has answered. */
+    private TrialHistory history;
+    
     /** 
      * Constructor.
      */
@@ -48,6 +51,7 @@ public class Player {
         this.numCorrect = new SimpleIntegerProperty(0);
         this.numRounds = new SimpleIntegerProperty(0);
         this.setResponseTime(0);
+        this.history = new TrialHistory();
     }
 
     public Player(IntegerProperty subjectID, Gender subjectGender, IntegerProperty subjectAge) {
@@ -97,6 +101,10 @@ public class Player {
         this.subjectID.set(subjectID);
     }
 
+    public TrialHistory getHistory() {
+        return this.history;
+    }
+
     public boolean isRight() {
         return this.isRight;
     }
@@ -0,0 +1,211 @@
+package model;
+
+/**
+ * The rounds a subject has answered, kept in preallocated primitive arrays
+ * so that recording a round doesn't allocate.
+ * 
+ * The arrays are used as a ring: once full, each new round overwrites the oldest.
+ * Rounds are read by index, oldest retained round first, straight from the arrays.
+ * Counts, correct answers and total response time per difficulty mode are kept
+ * as rounds are recorded, so they cover every round of the session even if
+ * the ring has wrapped.
+ */
+public class TrialHistory {
+    
+    /** Number of rounds kept by default. */
+    public static final int DEFAULT_CAPACITY = 256;
+    
+    /** Index of the aggregates of rounds that belong to no difficulty mode. */
+    public static final int OTHER_DIFFICULTY = DotsPairGenerator.NUM_MODES;
+    
+    /** Number of difficulty indices, including OTHER_DIFFICULTY. */
+    public static final int NUM_DIFFICULTIES = DotsPairGenerator.NUM_MODES + 1;
+    
+    private static final ControlType[] CONTROL_TYPES = ControlType.values();
+    
+    /** Number of rounds the arrays hold. */
+    private final int capacity;
+    
+    /** Number of dots on the left of each round. */
+    private final int[] leftDots;
+    /** Number of dots on the right of each round. */
+    private final int[] rightDots;
+    /** Ordinal of the control type of each round. */
+    private final byte[] controlTypes;
+    /** Whether each round was answered correctly, one bit per round. */
+    private final long[] correctBits;
+    /** Response time of each round in nanoseconds. */
+    private final long[] responseTimes;
+    /** Onset of the dots of each round in nanoseconds, as given by the clock. */
+    private final long[] onsets;
+    
+    /** Total number of rounds recorded, including those overwritten. */
+    private int numRecorded;
+    
+    /** Number of rounds, correct rounds and total response time of each difficulty. */
+    private final int[] countByDifficulty = new int[NUM_DIFFICULTIES];
+    private final int[] correctByDifficulty = new int[NUM_DIFFICULTIES];
+    private final long[] responseTimeByDifficulty = new long[NUM_DIFFICULTIES];
+    
+    /**
+     * Constructor for a history of DEFAULT_CAPACITY rounds.
+     */
+    public TrialHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Constructor.
+     * @param capacity Number of rounds to keep.
+     */
+    public TrialHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.leftDots = new int[capacity];
+        this.rightDots = new int[capacity];
+        this.controlTypes = new byte[capacity];
+        this.correctBits = new long[(capacity + 63) / 64];
+        this.responseTimes = new long[capacity];
+        this.onsets = new long[capacity];
+    }
+    
+    /**
+     * Record a round.
+     * @param left Number of dots on the left.
+     * @param right Number of dots on the right.
+     * @param controlType Control type of the round.
+     * @param correct Whether the round was answered correctly.
+     * @param responseTime Response time in nanoseconds.
+     * @param onset Onset of the dots in nanoseconds.
+     */
+    public void record(int left, int right, ControlType controlType, 
+            boolean correct, long responseTime, long onset) {
+        int slot = this.numRecorded % this.capacity;
+        this.leftDots[slot] = left;
+        this.rightDots[slot] = right;
+        this.controlTypes[slot] = (byte) controlType.ordinal();
+        if (correct) {
+            this.correctBits[slot >> 6] |= 1L << slot;
+        } else {
+            this.correctBits[slot >> 6] &= ~(1L << slot);
+        }
+        this.responseTimes[slot] = responseTime;
+        this.onsets[slot] = onset;
+        this.numRecorded++;
+        
+        int difficulty = difficultyIndex(left - right);
+        this.countByDifficulty[difficulty]++;
+        if (correct) {
+            this.correctByDifficulty[difficulty]++;
+        }
+        this.responseTimeByDifficulty[difficulty] += responseTime;
+    }
+    
+    /**
+     * Forget every round.
+     */
+    public void clear() {
+        this.numRecorded = 0;
+        for (int i = 0; i < NUM_DIFFICULTIES; i++) {
+            this.countByDifficulty[i] = 0;
+            this.correctByDifficulty[i] = 0;
+            this.responseTimeByDifficulty[i] = 0;
+        }
+    }
+    
+    /**
+     * Index of the aggregates a round belongs to.
+     * @param distance Difference in numbers of dots.
+     * @return The difficulty mode, or OTHER_DIFFICULTY.
+     */
+    public static int difficultyIndex(int distance) {
+        int mode = DotsPairGenerator.difficultyOf(distance);
+        return mode < 0 ? OTHER_DIFFICULTY : mode;
+    }
+    
+    /** Position in the arrays of the round at an index, oldest retained round first. */
+    private int slot(int index) {
+        if (index < 0 || index >= this.size()) {
+            throw new IndexOutOfBoundsException("Round " + index + " of " + this.size());
+        }
+        if (this.numRecorded <= this.capacity) {
+            return index;
+        }
+        return (this.numRecorded + index) % this.capacity;
+    }
+    
+    /** Number of rounds that can be read. */
+    public int size() {
+        return Math.min(this.numRecorded, this.capacity);
+    }
+    
+    public int getCapacity() {
+        return this.capacity;
+    }
+    
+    /** Total number of rounds recorded, including those overwritten. */
+    public int getNumRecorded() {
+        return this.numRecorded;
+    }
+    
+    public int getLeftDots(int index) {
+        return this.leftDots[this.slot(index)];
+    }
+    
+    public int getRightDots(int index) {
+        return this.rightDots[this.slot(index)];
+    }
+    
+    public ControlType getControlType(int index) {
+        return CONTROL_TYPES[this.controlTypes[this.slot(index)]];
+    }
+    
+    public boolean isCorrect(int index) {
+        int slot = this.slot(index);
+        return (this.correctBits[slot >> 6] & (1L << slot)) != 0;
+    }
+    
+    public long getResponseTime(int index) {
+        return this.responseTimes[this.slot(index)];
+    }
+    
+    public long getOnset(int index) {
+        return this.onsets[this.slot(index)];
+    }
+    
+    /**
+     * Ratio of the numbers of dots of a round, greater to smaller.
+     * @param index Index of the round.
+     * @return The ratio, at least 1.
+     */
+    public double getRatio(int index) {
+        int slot = this.slot(index);
+        int greater = Math.max(this.leftDots[slot], this.rightDots[slot]);
+        int smaller = Math.min(this.leftDots[slot], this.rightDots[slot]);
+        return (double) greater / smaller;
+    }
+    
+    /** Number of rounds recorded of a difficulty. */
+    public int getCount(int difficulty) {
+        return this.countByDifficulty[difficulty];
+    }
+    
+    /** Number of correct rounds of a difficulty. */
+    public int getNumCorrect(int difficulty) {
+        return this.correctByDifficulty[difficulty];
+    }
+    
+    /** Fraction of correct rounds of a difficulty, or NaN if there are none. */
+    public double getAccuracy(int difficulty) {
+        int count = this.countByDifficulty[difficulty];
+        return count == 0 ? Double.NaN : (double) this.correctByDifficulty[difficulty] / count;
+    }
+    
+    /** Mean response time in nanoseconds of a difficulty, or NaN if there are none. */
+    public double getMeanResponseTime(int difficulty) {
+        int count = this.countByDifficulty[difficulty];
+        return count == 0 ? Double.NaN : (double) this.responseTimeByDifficulty[difficulty] / count;
+    }
+}
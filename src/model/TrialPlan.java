@@ -0,0 +1,116 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The full sequence of rounds of a session, practice rounds first,
+ * as made by TrialSequencePlanner.
+ * 
+ * A plan can be written to a CSV file and read back, so the same
+ * sequence can be given to other subjects.
+ */
+public class TrialPlan {
+    
+    static final String DELIMITER = ",";
+    static final String COLUMN_NAMES = "Block,Left Choice,Right Choice,Control Type,Difficulty,Distance";
+    static final String PRACTICE_BLOCK = "practice";
+    static final String ASSESSMENT_BLOCK = "assessment";
+    
+    /** Number of practice rounds at the start of the plan. */
+    private final int numPracticeRounds;
+    
+    /** Every round, practice rounds first. */
+    private final List<PlannedTrial> trials;
+    
+    public TrialPlan(int numPracticeRounds, List<PlannedTrial> trials) {
+        this.numPracticeRounds = numPracticeRounds;
+        this.trials = Collections.unmodifiableList(new ArrayList<PlannedTrial>(trials));
+    }
+    
+    public PlannedTrial get(int index) {
+        return this.trials.get(index);
+    }
+    
+    public int size() {
+        return this.trials.size();
+    }
+    
+    public int getNumPracticeRounds() {
+        return this.numPracticeRounds;
+    }
+    
+    public List<PlannedTrial> getTrials() {
+        return this.trials;
+    }
+    
+    /**
+     * Write the plan as CSV, one round per line.
+     * @param file The file to write.
+     * @throws IOException if the file can't be written.
+     */
+    public void writeTo(File file) throws IOException {
+        PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+        try {
+            writer.write(COLUMN_NAMES + "\n");
+            for (int i = 0; i < this.trials.size(); i++) {
+                PlannedTrial trial = this.trials.get(i);
+                writer.write((i < this.numPracticeRounds ? PRACTICE_BLOCK : ASSESSMENT_BLOCK) + DELIMITER
+                        + trial.getLeftDots() + DELIMITER
+                        + trial.getRightDots() + DELIMITER
+                        + trial.getControlType() + DELIMITER
+                        + trial.getDifficultyMode() + DELIMITER
+                        + trial.getDistance() + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+    
+    /**
+     * Read a plan written by writeTo().
+     * @param file The file to read.
+     * @return The plan.
+     * @throws IOException if the file can't be read or isn't a plan.
+     */
+    public static TrialPlan readFrom(File file) throws IOException {
+        List<PlannedTrial> trials = new ArrayList<PlannedTrial>();
+        int numPracticeRounds = 0;
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line = reader.readLine();
+            if (line == null || !line.equals(COLUMN_NAMES)) {
+                throw new IOException("Not a trial plan: " + file);
+            }
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split(DELIMITER);
+                try {
+                    trials.add(new PlannedTrial(
+                            Integer.parseInt(fields[1]), 
+                            Integer.parseInt(fields[2]), 
+                            ControlType.valueOf(fields[3]), 
+                            Integer.parseInt(fields[4])));
+                } catch (RuntimeException ex) {
+                    throw new IOException("Bad line in trial plan " + file + ": " + line, ex);
+                }
+                if (fields[0].equals(PRACTICE_BLOCK)) {
+                    numPracticeRounds++;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return new TrialPlan(numPracticeRounds, trials);
+    }
+}
@@ -0,0 +1,236 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plans the whole sequence of rounds of a session up front, so that the rules
+ * DotsPairGenerator enforces round by round hold exactly over the session:
+ * 
+ *  -The correct side is never the same more than MAX_TIMES_SAME_ANSWER times
+ *   in a row, and each side is correct in half of the rounds.
+ *  -The correct relative size (control type) is never the same more than
+ *   MAX_TIMES_SAME_SIZE_CORRECT times in a row, and EQUAL_AREAS and
+ *   INVERSE_AREAS are each used in half of the rounds.
+ *  -Difficulties are drawn in shuffled sets of NUM_MODE_TRIPLETS triplets, as in
+ *   DotsPairGenerator, and the counts of each difficulty differ by at most one.
+ *  -Within each difficulty, every distance is used equally often (up to one).
+ * 
+ * Sides and control types are sampled uniformly among all sequences meeting their
+ * streak and balance rules, using a table of the number of ways each partial
+ * sequence can be completed. Making a plan takes a millisecond or two.
+ * 
+ * Practice rounds and assessment rounds are planned as separate blocks.
+ * 
+ * Classes Related To:
+ *  -TrialPlan.java, PlannedTrial.java
+ *      -The plan that is made.
+ *  -DotsPairGenerator.java
+ *      -Follows a plan when given one, generating only the dots themselves.
+ */
+public class TrialSequencePlanner {
+    
+    /** Random number generator. */
+    private final Random randomGenerator;
+    
+    public TrialSequencePlanner() {
+        this(new Random());
+    }
+    
+    /**
+     * @param randomGenerator Random number generator, e.g. seeded to make a plan reproducible.
+     */
+    public TrialSequencePlanner(Random randomGenerator) {
+        this.randomGenerator = randomGenerator;
+    }
+    
+    /**
+     * Plan a session.
+     * @param numPracticeRounds Number of practice rounds.
+     * @param numRounds Number of assessment rounds.
+     * @return The plan, practice rounds first.
+     */
+    public TrialPlan plan(int numPracticeRounds, int numRounds) {
+        List<PlannedTrial> trials = new ArrayList<PlannedTrial>(numPracticeRounds + numRounds);
+        this.planBlock(numPracticeRounds, trials);
+        this.planBlock(numRounds, trials);
+        return new TrialPlan(numPracticeRounds, trials);
+    }
+    
+    /**
+     * Plan one block of rounds and add them to the list.
+     * @param numRounds Number of rounds in the block.
+     * @param trials The list to add to.
+     */
+    private void planBlock(int numRounds, List<PlannedTrial> trials) {
+        if (numRounds == 0) {
+            return;
+        }
+        boolean[] leftCorrect = this.planBalancedSequence(numRounds, DotsPairGenerator.MAX_TIMES_SAME_ANSWER);
+        boolean[] biggerCorrect = this.planBalancedSequence(numRounds, DotsPairGenerator.MAX_TIMES_SAME_SIZE_CORRECT);
+        int[] difficulties = this.planDifficulties(numRounds);
+        
+        List<List<Integer>> distanceDecks = new ArrayList<List<Integer>>();
+        for (int mode = 0; mode < DotsPairGenerator.NUM_MODES; mode++) {
+            distanceDecks.add(new ArrayList<Integer>());
+        }
+        
+        for (int i = 0; i < numRounds; i++) {
+            int distance = this.drawDistance(difficulties[i], distanceDecks.get(difficulties[i]));
+            int smaller = this.randomGenerator.nextInt(DotsPairGenerator.MAX_DOTS - distance) + 1;
+            int larger = smaller + distance;
+            ControlType controlType = biggerCorrect[i] ? ControlType.INVERSE_AREAS : ControlType.EQUAL_AREAS;
+            if (leftCorrect[i]) {
+                trials.add(new PlannedTrial(larger, smaller, controlType, difficulties[i]));
+            } else {
+                trials.add(new PlannedTrial(smaller, larger, controlType, difficulties[i]));
+            }
+        }
+    }
+    
+    /**
+     * Plan a sequence of true/false with as many of each as possible (one more
+     * of either if the length is odd), never repeating a value more than maxRun times.
+     * Each such sequence is equally likely.
+     * @param length Length of the sequence.
+     * @param maxRun Most times in a row a value may appear.
+     * @return The sequence.
+     */
+    boolean[] planBalancedSequence(int length, int maxRun) {
+        int numTrue = length / 2;
+        if (length % 2 == 1 && this.randomGenerator.nextBoolean()) {
+            numTrue++;
+        }
+        int numFalse = length - numTrue;
+        Completions completions = new Completions(numTrue, numFalse, maxRun);
+        
+        boolean[] sequence = new boolean[length];
+        boolean last = false;
+        int run = 0;
+        for (int i = 0; i < length; i++) {
+            double waysTrue = completions.afterChoosing(true, numTrue, numFalse, last, run);
+            double waysFalse = completions.afterChoosing(false, numTrue, numFalse, last, run);
+            if (waysTrue + waysFalse == 0) {
+                throw new IllegalStateException("No sequence of length " + length 
+                        + " with runs of at most " + maxRun);
+            }
+            boolean value = this.randomGenerator.nextDouble() * (waysTrue + waysFalse) < waysTrue;
+            sequence[i] = value;
+            run = (i > 0 && value == last) ? run + 1 : 1;
+            last = value;
+            if (value) {
+                numTrue--;
+            } else {
+                numFalse--;
+            }
+        }
+        return sequence;
+    }
+    
+    /**
+     * Number of ways to finish a sequence, by remaining counts, last value and its run length.
+     */
+    private static class Completions {
+        private final int maxRun;
+        private final double[][][][] ways;
+        
+        Completions(int numTrue, int numFalse, int maxRun) {
+            this.maxRun = maxRun;
+            this.ways = new double[numTrue + 1][numFalse + 1][2][maxRun + 1];
+            for (double[][][] byFalse : this.ways) {
+                for (double[][] byLast : byFalse) {
+                    for (double[] byRun : byLast) {
+                        Arrays.fill(byRun, -1);
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Ways to finish the sequence after adding a value.
+         * A run of 0 means nothing has been added yet.
+         */
+        double afterChoosing(boolean value, int numTrue, int numFalse, boolean last, int run) {
+            if ((value ? numTrue : numFalse) == 0) {
+                return 0;
+            }
+            if (run > 0 && value == last && run >= this.maxRun) {
+                return 0;
+            }
+            int nextRun = (run > 0 && value == last) ? run + 1 : 1;
+            return this.count(value ? numTrue - 1 : numTrue, value ? numFalse : numFalse - 1, value, nextRun);
+        }
+        
+        private double count(int numTrue, int numFalse, boolean last, int run) {
+            if (numTrue == 0 && numFalse == 0) {
+                return 1;
+            }
+            int lastIndex = last ? 1 : 0;
+            double cached = this.ways[numTrue][numFalse][lastIndex][run];
+            if (cached >= 0) {
+                return cached;
+            }
+            double total = this.afterChoosing(true, numTrue, numFalse, last, run)
+                    + this.afterChoosing(false, numTrue, numFalse, last, run);
+            this.ways[numTrue][numFalse][lastIndex][run] = total;
+            return total;
+        }
+    }
+    
+    /**
+     * Plan the difficulty of every round, drawn from shuffled sets of NUM_MODE_TRIPLETS
+     * triplets of modes as in DotsPairGenerator. If the last set is cut short, it is made
+     * of distinct modes so the counts of each mode differ by at most one.
+     * @param numRounds Number of rounds.
+     * @return The difficulty mode of each round.
+     */
+    int[] planDifficulties(int numRounds) {
+        int[] difficulties = new int[numRounds];
+        int setSize = DotsPairGenerator.NUM_MODE_TRIPLETS * DotsPairGenerator.NUM_MODES;
+        List<Integer> set = new ArrayList<Integer>(setSize);
+        int filled = 0;
+        while (filled < numRounds) {
+            int remaining = numRounds - filled;
+            set.clear();
+            for (int i = 0; i < Math.min(setSize, remaining) / DotsPairGenerator.NUM_MODES; i++) {
+                for (int mode = 0; mode < DotsPairGenerator.NUM_MODES; mode++) {
+                    set.add(mode);
+                }
+            }
+            if (remaining < setSize) {
+                List<Integer> triplet = new ArrayList<Integer>();
+                for (int mode = 0; mode < DotsPairGenerator.NUM_MODES; mode++) {
+                    triplet.add(mode);
+                }
+                Collections.shuffle(triplet, this.randomGenerator);
+                set.addAll(triplet.subList(0, remaining % DotsPairGenerator.NUM_MODES));
+            }
+            Collections.shuffle(set, this.randomGenerator);
+            for (int mode : set) {
+                difficulties[filled++] = mode;
+            }
+        }
+        return difficulties;
+    }
+    
+    /**
+     * Draw the next distance for a difficulty from its deck, refilling the deck
+     * with every distance of the difficulty in a random order when empty.
+     * @param difficultyMode The difficulty mode.
+     * @param deck Distances not yet used for this difficulty.
+     * @return The distance.
+     */
+    private int drawDistance(int difficultyMode, List<Integer> deck) {
+        if (deck.isEmpty()) {
+            int min = DotsPairGenerator.modeMinimum(difficultyMode);
+            for (int i = 0; i < DotsPairGenerator.NUM_CHOICES_IN_MODE; i++) {
+                deck.add(min + i);
+            }
+            Collections.shuffle(deck, this.randomGenerator);
+        }
+        return deck.remove(deck.size() - 1);
+    }
+}
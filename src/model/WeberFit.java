@@ -0,0 +1,318 @@
+package model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Maximum likelihood fit of the Weber model (see WeberModel) to a subject's
+ * responses, with a bootstrap confidence interval for the Weber fraction.
+ * 
+ * Rounds are grouped by their ratio of numbers of dots, so the likelihood is a
+ * sum over the few distinct ratios rather than over every round. The fit searches
+ * a grid of Weber fractions for every lapse rate on a grid, then refines the best
+ * Weber fraction by golden section search. A best fit on the edge of the grid
+ * (the highest lapse rate, or the lowest or highest Weber fraction) is flagged,
+ * since the true maximum may lie beyond it.
+ * 
+ * Bootstrap samples are fitted in parallel on every core. They start from the
+ * grid point of the fit of all the rounds and climb to the best neighbouring
+ * grid point until none is better, rather than searching the whole grid; a
+ * thousand samples of 80 rounds take under 100 ms on a single core.
+ */
+public final class WeberFit {
+    
+    /** Range and number of Weber fractions searched (log spaced). */
+    static final double MIN_WEBER_FRACTION = 0.02;
+    static final double MAX_WEBER_FRACTION = 3.0;
+    static final int NUM_WEBER_FRACTIONS = 40;
+    
+    /** Range and number of lapse rates searched (linearly spaced). */
+    static final double MAX_LAPSE_RATE = 0.2;
+    static final int NUM_LAPSE_RATES = 21;
+    
+    /** Number of golden section steps refining the Weber fraction. */
+    static final int NUM_REFINEMENT_STEPS = 30;
+    
+    /** Confidence level of the bootstrap interval. */
+    public static final double CONFIDENCE_LEVEL = 0.95;
+    
+    /** Probabilities are kept this far from 0 and 1 to keep the log likelihood finite. */
+    static final double EPSILON = 1e-9;
+    
+    private static final double GOLDEN_RATIO = (Math.sqrt(5) - 1) / 2;
+    
+    /** Result of a fit. */
+    public static final class Result {
+        private final int numTrials;
+        private final double weberFraction;
+        private final double lapseRate;
+        private final double lowerBound;
+        private final double upperBound;
+        private final boolean atGridEdge;
+        private final long fitTime;
+        
+        Result(int numTrials, double weberFraction, double lapseRate, 
+                double lowerBound, double upperBound, boolean atGridEdge, long fitTime) {
+            this.numTrials = numTrials;
+            this.weberFraction = weberFraction;
+            this.lapseRate = lapseRate;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.atGridEdge = atGridEdge;
+            this.fitTime = fitTime;
+        }
+        
+        public int getNumTrials() {
+            return numTrials;
+        }
+        
+        public double getWeberFraction() {
+            return weberFraction;
+        }
+        
+        public double getLapseRate() {
+            return lapseRate;
+        }
+        
+        /** Lower end of the bootstrap confidence interval of the Weber fraction. */
+        public double getLowerBound() {
+            return lowerBound;
+        }
+        
+        /** Upper end of the bootstrap confidence interval of the Weber fraction. */
+        public double getUpperBound() {
+            return upperBound;
+        }
+        
+        /** 
+         * True if the best grid point was at the highest lapse rate or the lowest
+         * or highest Weber fraction searched, so the fit may be cut off by the grid.
+         */
+        public boolean isAtGridEdge() {
+            return atGridEdge;
+        }
+        
+        /** Time taken by the fit, including the bootstrap, in nanoseconds. */
+        public long getFitTime() {
+            return fitTime;
+        }
+    }
+    
+    /** Disable constructing of an object. */
+    private WeberFit() {
+        
+    }
+    
+    /**
+     * Fit the Weber model to the rounds of a history.
+     * @param history The rounds answered by the subject.
+     * @param numBootstrapSamples Number of bootstrap samples for the confidence interval.
+     * @return The fit.
+     */
+    public static Result fit(TrialHistory history, int numBootstrapSamples) {
+        int numTrials = history.size();
+        double[] ratios = new double[numTrials];
+        boolean[] correct = new boolean[numTrials];
+        for (int i = 0; i < numTrials; i++) {
+            ratios[i] = history.getRatio(i);
+            correct[i] = history.isCorrect(i);
+        }
+        return fit(ratios, correct, numTrials, numBootstrapSamples);
+    }
+    
+    /**
+     * Fit the Weber model to a set of rounds.
+     * @param ratios Ratio of the numbers of dots (greater to smaller) of each round.
+     * @param correct Whether each round was answered correctly.
+     * @param numTrials Number of rounds to use, from the start of the arrays.
+     * @param numBootstrapSamples Number of bootstrap samples for the confidence interval.
+     * @return The fit.
+     */
+    public static Result fit(double[] ratios, boolean[] correct, int numTrials, int numBootstrapSamples) {
+        long start = System.nanoTime();
+        
+        /** Group the rounds by ratio. */
+        double[] distinctRatios = Arrays.copyOf(ratios, numTrials);
+        Arrays.sort(distinctRatios);
+        int numDistinct = 0;
+        for (int i = 0; i < numTrials; i++) {
+            if (numDistinct == 0 || distinctRatios[i] != distinctRatios[numDistinct - 1]) {
+                distinctRatios[numDistinct++] = distinctRatios[i];
+            }
+        }
+        double[] levels = Arrays.copyOf(distinctRatios, numDistinct);
+        int[] levelOfTrial = new int[numTrials];
+        int[] totals = new int[levels.length];
+        int[] corrects = new int[levels.length];
+        for (int i = 0; i < numTrials; i++) {
+            levelOfTrial[i] = Arrays.binarySearch(levels, ratios[i]);
+            totals[levelOfTrial[i]]++;
+            if (correct[i]) {
+                corrects[levelOfTrial[i]]++;
+            }
+        }
+        
+        int[] estimateGridPoint = searchGrid(levels, totals, corrects);
+        double[] estimate = refine(levels, totals, corrects, estimateGridPoint);
+        boolean atGridEdge = estimateGridPoint[0] == 0 
+                || estimateGridPoint[0] == NUM_WEBER_FRACTIONS - 1
+                || estimateGridPoint[1] == NUM_LAPSE_RATES - 1;
+        
+        /** Resample rounds with replacement and refit, starting from the estimate. */
+        double[] bootstrapFractions = IntStream.range(0, numBootstrapSamples).parallel().mapToDouble(sample -> {
+            SplittableRandom random = new SplittableRandom(start + sample);
+            int[] sampleTotals = new int[levels.length];
+            int[] sampleCorrects = new int[levels.length];
+            for (int i = 0; i < numTrials; i++) {
+                int trial = random.nextInt(numTrials);
+                sampleTotals[levelOfTrial[trial]]++;
+                if (correct[trial]) {
+                    sampleCorrects[levelOfTrial[trial]]++;
+                }
+            }
+            int[] gridPoint = climbGrid(levels, sampleTotals, sampleCorrects, estimateGridPoint);
+            return refine(levels, sampleTotals, sampleCorrects, gridPoint)[0];
+        }).toArray();
+        Arrays.sort(bootstrapFractions);
+        
+        double lowerBound = Double.NaN;
+        double upperBound = Double.NaN;
+        if (numBootstrapSamples > 0) {
+            double tail = (1 - CONFIDENCE_LEVEL) / 2;
+            lowerBound = bootstrapFractions[(int) Math.floor(tail * (numBootstrapSamples - 1))];
+            upperBound = bootstrapFractions[(int) Math.ceil((1 - tail) * (numBootstrapSamples - 1))];
+        }
+        return new Result(numTrials, estimate[0], estimate[1], 
+                lowerBound, upperBound, atGridEdge, System.nanoTime() - start);
+    }
+    
+    /**
+     * Search the whole grid for the best fit of rounds grouped by ratio.
+     * @param ratios The distinct ratios.
+     * @param totals Number of rounds with each ratio.
+     * @param corrects Number of correct rounds with each ratio.
+     * @return The index of the best Weber fraction and of the best lapse rate.
+     */
+    static int[] searchGrid(double[] ratios, int[] totals, int[] corrects) {
+        int[] best = {0, 0};
+        double bestLikelihood = Double.NEGATIVE_INFINITY;
+        for (int j = 0; j < NUM_LAPSE_RATES; j++) {
+            for (int i = 0; i < NUM_WEBER_FRACTIONS; i++) {
+                double likelihood = logLikelihood(ratios, totals, corrects, gridWeberFraction(i), gridLapseRate(j));
+                if (likelihood > bestLikelihood) {
+                    bestLikelihood = likelihood;
+                    best[0] = i;
+                    best[1] = j;
+                }
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Move from a grid point to its best neighbour (including diagonals) until
+     * no neighbour is better.
+     * @param start The index of the Weber fraction and of the lapse rate to start from.
+     * @return The index of the best Weber fraction and of the best lapse rate found.
+     */
+    static int[] climbGrid(double[] ratios, int[] totals, int[] corrects, int[] start) {
+        int bestI = start[0];
+        int bestJ = start[1];
+        double bestLikelihood = logLikelihood(ratios, totals, corrects, 
+                gridWeberFraction(bestI), gridLapseRate(bestJ));
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            int centerI = bestI;
+            int centerJ = bestJ;
+            for (int j = Math.max(centerJ - 1, 0); j <= Math.min(centerJ + 1, NUM_LAPSE_RATES - 1); j++) {
+                for (int i = Math.max(centerI - 1, 0); i <= Math.min(centerI + 1, NUM_WEBER_FRACTIONS - 1); i++) {
+                    if (i == centerI && j == centerJ) {
+                        continue;
+                    }
+                    double likelihood = logLikelihood(ratios, totals, corrects, gridWeberFraction(i), gridLapseRate(j));
+                    if (likelihood > bestLikelihood) {
+                        bestLikelihood = likelihood;
+                        bestI = i;
+                        bestJ = j;
+                        moved = true;
+                    }
+                }
+            }
+        }
+        return new int[] {bestI, bestJ};
+    }
+    
+    /**
+     * Refine the Weber fraction of a grid point by golden section search within
+     * one grid step either side, keeping its lapse rate.
+     * @param gridPoint The index of the Weber fraction and of the lapse rate.
+     * @return The Weber fraction and lapse rate.
+     */
+    static double[] refine(double[] ratios, int[] totals, int[] corrects, int[] gridPoint) {
+        double logStep = gridLogStep();
+        double bestLogW = Math.log(MIN_WEBER_FRACTION) + logStep * gridPoint[0];
+        double lapse = gridLapseRate(gridPoint[1]);
+        double gridLikelihood = logLikelihood(ratios, totals, corrects, Math.exp(bestLogW), lapse);
+        
+        double low = bestLogW - logStep;
+        double high = bestLogW + logStep;
+        double a = high - GOLDEN_RATIO * (high - low);
+        double b = low + GOLDEN_RATIO * (high - low);
+        double likelihoodA = logLikelihood(ratios, totals, corrects, Math.exp(a), lapse);
+        double likelihoodB = logLikelihood(ratios, totals, corrects, Math.exp(b), lapse);
+        for (int step = 0; step < NUM_REFINEMENT_STEPS; step++) {
+            if (likelihoodA > likelihoodB) {
+                high = b;
+                b = a;
+                likelihoodB = likelihoodA;
+                a = high - GOLDEN_RATIO * (high - low);
+                likelihoodA = logLikelihood(ratios, totals, corrects, Math.exp(a), lapse);
+            } else {
+                low = a;
+                a = b;
+                likelihoodA = likelihoodB;
+                b = low + GOLDEN_RATIO * (high - low);
+                likelihoodB = logLikelihood(ratios, totals, corrects, Math.exp(b), lapse);
+            }
+        }
+        double refinedLogW = (low + high) / 2;
+        if (logLikelihood(ratios, totals, corrects, Math.exp(refinedLogW), lapse) < gridLikelihood) {
+            refinedLogW = bestLogW;
+        }
+        return new double[] {Math.exp(refinedLogW), lapse};
+    }
+    
+    /** Step between Weber fractions of the grid, in log units. */
+    private static double gridLogStep() {
+        return (Math.log(MAX_WEBER_FRACTION) - Math.log(MIN_WEBER_FRACTION)) / (NUM_WEBER_FRACTIONS - 1);
+    }
+    
+    /** Weber fraction of a grid index. */
+    private static double gridWeberFraction(int i) {
+        return Math.exp(Math.log(MIN_WEBER_FRACTION) + gridLogStep() * i);
+    }
+    
+    /** Lapse rate of a grid index. */
+    private static double gridLapseRate(int j) {
+        return MAX_LAPSE_RATE * j / (NUM_LAPSE_RATES - 1);
+    }
+    
+    /**
+     * Log likelihood of rounds grouped by ratio.
+     */
+    static double logLikelihood(double[] ratios, int[] totals, int[] corrects, 
+            double weberFraction, double lapseRate) {
+        double sum = 0;
+        for (int i = 0; i < ratios.length; i++) {
+            if (totals[i] == 0) {
+                continue;
+            }
+            double p = WeberModel.probabilityCorrect(ratios[i], weberFraction, lapseRate);
+            p = Math.min(Math.max(p, EPSILON), 1 - EPSILON);
+            sum += corrects[i] * Math.log(p) + (totals[i] - corrects[i]) * Math.log(1 - p);
+        }
+        return sum;
+    }
+}
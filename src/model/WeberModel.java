@@ -0,0 +1,47 @@
+package model;
+
+/**
+ * Psychometric function of the Weber model for comparing numbers of dots.
+ * 
+ * The subject's internal estimate of a number n is taken to be normally
+ * distributed around n with standard deviation w * n, where w is the Weber fraction.
+ * For a pair with numbers of dots in the ratio r (greater to smaller), the
+ * probability of picking the greater one is then
+ * 
+ *      P(correct) = lapse / 2 + (1 - lapse) * Phi((r - 1) / (w * sqrt(1 + r^2)))
+ * 
+ * where the lapse rate is the chance of a response that ignores the stimulus.
+ */
+public final class WeberModel {
+    
+    /** Disable constructing of an object. */
+    private WeberModel() {
+        
+    }
+    
+    /**
+     * Probability of a correct response.
+     * @param ratio Ratio of the numbers of dots, greater to smaller.
+     * @param weberFraction The Weber fraction w.
+     * @param lapseRate The lapse rate.
+     * @return The probability of a correct response.
+     */
+    public static double probabilityCorrect(double ratio, double weberFraction, double lapseRate) {
+        double z = (ratio - 1) / (weberFraction * Math.sqrt(1 + ratio * ratio));
+        return lapseRate / 2 + (1 - lapseRate) * normalCdf(z);
+    }
+    
+    /**
+     * Cumulative distribution function of the standard normal distribution,
+     * accurate to about 1e-7 (Abramowitz and Stegun 7.1.26).
+     * @param z The value.
+     * @return Phi(z).
+     */
+    public static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double erf = 1 - (((((1.061405429 * t - 1.453152027) * t) + 1.421413741) * t 
+                - 0.284496736) * t + 0.254829592) * t * Math.exp(-x * x);
+        return z >= 0 ? (1 + erf) / 2 : (1 - erf) / 2;
+    }
+}
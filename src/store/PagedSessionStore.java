@@ -0,0 +1,441 @@
+package store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A SessionStore kept in a single file of fixed-size pages, with no server.
+ * 
+ * The first page is a file header. Every other page holds a page header and
+ * up to RECORDS_PER_PAGE records; records are only ever added at the end of
+ * the last page, and a page is never changed once it is full. Each append
+ * writes the record, forces it to the disk, and only then writes the page's
+ * record count, so even after a power loss the count never covers a record that
+ * isn't on the disk and at most the round being written is lost. The count is
+ * forced with the next record, or when the store is closed. Every record carries a CRC32C; a last page whose
+ * last records don't match their checksums (e.g. after a power loss) is cut back
+ * to its intact records, and any other mismatch stops the store from opening.
+ * verify() finds the first bad offset of a store without opening it.
+ * 
+ * On opening, the pages are scanned once to rebuild a hash index on
+ * (subject, session, round), the list of rounds of every subject, and the
+ * earliest and latest time of every page. Reading a subject then reads only
+ * its records, and reading a range of time reads only the pages that overlap it.
+ */
+public class PagedSessionStore implements SessionStore {
+    
+    /** Size of a page in bytes. */
+    public static final int PAGE_SIZE = 4096;
+    
+    /** Size of the header of a data page: magic number, record count, reserved. */
+    static final int PAGE_HEADER_SIZE = 16;
+    
+    /** Number of records in a full page. */
+    public static final int RECORDS_PER_PAGE = (PAGE_SIZE - PAGE_HEADER_SIZE) / TrialRecord.SIZE;
+    
+    /** "DOTSSTOR", at the start of the file. */
+    static final long FILE_MAGIC = 0x444F545353544F52L;
+    
+    /** "DPG1", at the start of every data page. */
+    static final int PAGE_MAGIC = 0x44504731;
+    
+    /** Version of the file layout. */
+    static final int VERSION = 1;
+    
+    /** Key of the hash index. */
+    private static final class Key {
+        private final int subjectId;
+        private final long sessionId;
+        private final int trial;
+        
+        Key(int subjectId, long sessionId, int trial) {
+            this.subjectId = subjectId;
+            this.sessionId = sessionId;
+            this.trial = trial;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return this.subjectId == key.subjectId && this.sessionId == key.sessionId && this.trial == key.trial;
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * (31 * this.subjectId + Long.hashCode(this.sessionId)) + this.trial;
+        }
+    }
+    
+    private final File file;
+    private final FileChannel channel;
+    
+    /** Copy of the last page, which is still being filled. */
+    private final ByteBuffer tailPage = ByteBuffer.allocate(PAGE_SIZE);
+    
+    /** Number of data pages, including the last. */
+    private int numPages;
+    
+    /** Number of records. */
+    private int numRecords;
+    
+    /** Record number of every round. */
+    private final Map<Key, Integer> index = new HashMap<Key, Integer>();
+    
+    /** Record numbers of every subject's rounds, in order. */
+    private final Map<Integer, List<Integer>> subjectRecords = new HashMap<Integer, List<Integer>>();
+    
+    /** Earliest and latest time of the rounds of every page. */
+    private long[] pageMinTime = new long[16];
+    private long[] pageMaxTime = new long[16];
+    
+    /**
+     * Open a store, creating it if it doesn't exist.
+     * @param file The store's file.
+     * @throws IOException If the file can't be opened or isn't a store.
+     */
+    public PagedSessionStore(File file) throws IOException {
+        this.file = file;
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (this.channel.size() == 0) {
+                this.writeFileHeader();
+            } else {
+                this.load();
+            }
+        } catch (IOException ex) {
+            this.channel.close();
+            throw ex;
+        }
+    }
+    
+    private void writeFileHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        header.putLong(FILE_MAGIC);
+        header.putInt(VERSION);
+        header.putInt(PAGE_SIZE);
+        header.putInt(TrialRecord.SIZE);
+        header.clear();
+        this.writeFully(header, 0);
+        this.channel.force(true);
+    }
+    
+    /**
+     * Check the file header and scan every page to rebuild the indexes.
+     * Scanning stops at the first page that isn't complete.
+     */
+    private void load() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        readFully(this.channel, header, 0);
+        checkFileHeader(header, this.file);
+        
+        long numPagesInFile = this.channel.size() / PAGE_SIZE - 1;
+        ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        for (int p = 0; p < numPagesInFile; p++) {
+            page.clear();
+            readFully(this.channel, page, pageOffset(p));
+            int count = page.getInt(4);
+            boolean lastPage = p == numPagesInFile - 1;
+            int intact = intactRecords(page);
+            if (intact < 0) {
+                if (lastPage) {
+                    break;
+                }
+                throw new IOException(this.file + " has a corrupt page at offset " + pageOffset(p));
+            }
+            if (intact < count) {
+                if (!lastPage) {
+                    throw new IOException(this.file + " has a corrupt record at offset " 
+                            + (pageOffset(p) + PAGE_HEADER_SIZE + intact * TrialRecord.SIZE));
+                }
+                count = intact;
+                page.putInt(4, count);
+            }
+            if (count == 0) {
+                /** A new page whose first record was never made visible; the next append writes it again. */
+                break;
+            }
+            this.numPages = p + 1;
+            for (int slot = 0; slot < count; slot++) {
+                page.position(PAGE_HEADER_SIZE + slot * TrialRecord.SIZE);
+                this.addToIndex(TrialRecord.readFrom(page));
+            }
+            this.tailPage.clear();
+            this.tailPage.put(page.array());
+            if (count < RECORDS_PER_PAGE) {
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Check the file header of a store.
+     * @param header The first page, read from the start.
+     * @param file The store, for error messages.
+     * @throws IOException If the header isn't that of a store this version can read.
+     */
+    private static void checkFileHeader(ByteBuffer header, File file) throws IOException {
+        if (header.getLong(0) != FILE_MAGIC) {
+            throw new IOException(file + " is not a session store");
+        }
+        int version = header.getInt(8);
+        if (version != VERSION || header.getInt(12) != PAGE_SIZE || header.getInt(16) != TrialRecord.SIZE) {
+            throw new IOException(file + " has unsupported layout version " + version);
+        }
+    }
+    
+    /**
+     * Number of records at the start of a data page that match their checksums.
+     * @param page The page.
+     * @return The number of intact records, or -1 if the page header is corrupt.
+     */
+    private static int intactRecords(ByteBuffer page) {
+        int count = page.getInt(4);
+        if (page.getInt(0) != PAGE_MAGIC || count < 0 || count > RECORDS_PER_PAGE) {
+            return -1;
+        }
+        for (int slot = 0; slot < count; slot++) {
+            if (!TrialRecord.checksumMatches(page, PAGE_HEADER_SIZE + slot * TrialRecord.SIZE)) {
+                return slot;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Find the first corrupt byte of a store: a bad file or page header, a record
+     * that doesn't match its checksum, or a partly written page.
+     * @param file The store.
+     * @return Offset of the first corrupt page or record, or -1 if the store is intact.
+     * @throws IOException If the file can't be read.
+     */
+    public static long verify(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+            if (size < PAGE_SIZE) {
+                return 0;
+            }
+            readFully(channel, page, 0);
+            try {
+                checkFileHeader(page, file);
+            } catch (IOException ex) {
+                return 0;
+            }
+            long numPagesInFile = size / PAGE_SIZE - 1;
+            for (int p = 0; p < numPagesInFile; p++) {
+                page.clear();
+                readFully(channel, page, pageOffset(p));
+                int intact = intactRecords(page);
+                if (intact < 0) {
+                    return pageOffset(p);
+                }
+                if (intact < page.getInt(4)) {
+                    return pageOffset(p) + PAGE_HEADER_SIZE + intact * TrialRecord.SIZE;
+                }
+            }
+            if (size % PAGE_SIZE != 0) {
+                return pageOffset((int) numPagesInFile);
+            }
+            return -1;
+        }
+    }
+    
+    /** Offset in the file of a data page. */
+    private static long pageOffset(int page) {
+        return (long) (page + 1) * PAGE_SIZE;
+    }
+    
+    private void addToIndex(TrialRecord record) {
+        int recordNumber = this.numRecords++;
+        int page = recordNumber / RECORDS_PER_PAGE;
+        this.index.put(new Key(record.getSubjectId(), record.getSessionId(), record.getTrial()), recordNumber);
+        List<Integer> records = this.subjectRecords.get(record.getSubjectId());
+        if (records == null) {
+            records = new ArrayList<Integer>();
+            this.subjectRecords.put(record.getSubjectId(), records);
+        }
+        records.add(recordNumber);
+        if (page >= this.pageMinTime.length) {
+            this.pageMinTime = Arrays.copyOf(this.pageMinTime, this.pageMinTime.length * 2);
+            this.pageMaxTime = Arrays.copyOf(this.pageMaxTime, this.pageMaxTime.length * 2);
+        }
+        if (recordNumber % RECORDS_PER_PAGE == 0) {
+            this.pageMinTime[page] = record.getTimestamp();
+            this.pageMaxTime[page] = record.getTimestamp();
+        } else {
+            this.pageMinTime[page] = Math.min(this.pageMinTime[page], record.getTimestamp());
+            this.pageMaxTime[page] = Math.max(this.pageMaxTime[page], record.getTimestamp());
+        }
+    }
+    
+    @Override
+    public synchronized void append(TrialRecord record) throws IOException {
+        int slot = this.numRecords % RECORDS_PER_PAGE;
+        if (slot == 0) {
+            this.tailPage.clear();
+            Arrays.fill(this.tailPage.array(), (byte) 0);
+            this.tailPage.putInt(0, PAGE_MAGIC);
+            this.numPages++;
+        }
+        int page = this.numPages - 1;
+        int recordOffset = PAGE_HEADER_SIZE + slot * TrialRecord.SIZE;
+        this.tailPage.clear();
+        this.tailPage.position(recordOffset);
+        record.writeTo(this.tailPage);
+        
+        /** Record first, forced to the disk, then the count that makes it visible. 
+         * A new page is written whole with a count of 0. */
+        if (slot == 0) {
+            this.tailPage.putInt(4, 0);
+            ByteBuffer whole = this.tailPage.duplicate();
+            whole.clear();
+            this.writeFully(whole, pageOffset(page));
+        } else {
+            ByteBuffer recordBytes = this.tailPage.duplicate();
+            recordBytes.limit(recordOffset + TrialRecord.SIZE);
+            recordBytes.position(recordOffset);
+            this.writeFully(recordBytes, pageOffset(page) + recordOffset);
+        }
+        this.channel.force(false);
+        this.tailPage.putInt(4, slot + 1);
+        ByteBuffer header = this.tailPage.duplicate();
+        header.limit(PAGE_HEADER_SIZE);
+        header.position(0);
+        this.writeFully(header, pageOffset(page));
+        this.addToIndex(record);
+    }
+    
+    /**
+     * Read a record by number.
+     */
+    private TrialRecord read(int recordNumber) throws IOException {
+        int page = recordNumber / RECORDS_PER_PAGE;
+        int recordOffset = PAGE_HEADER_SIZE + (recordNumber % RECORDS_PER_PAGE) * TrialRecord.SIZE;
+        if (page == this.numPages - 1) {
+            ByteBuffer tail = this.tailPage.duplicate();
+            tail.clear();
+            tail.position(recordOffset);
+            return TrialRecord.readFrom(tail);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(TrialRecord.SIZE);
+        readFully(this.channel, buffer, pageOffset(page) + recordOffset);
+        buffer.flip();
+        return TrialRecord.readFrom(buffer);
+    }
+    
+    /**
+     * Read every record of a page into a list.
+     */
+    private void readPage(int page, ByteBuffer buffer, List<TrialRecord> records, long from, long to) throws IOException {
+        int count = Math.min(RECORDS_PER_PAGE, this.numRecords - page * RECORDS_PER_PAGE);
+        buffer.clear();
+        if (page == this.numPages - 1) {
+            buffer.put(this.tailPage.array());
+        } else {
+            readFully(this.channel, buffer, pageOffset(page));
+        }
+        for (int slot = 0; slot < count; slot++) {
+            buffer.position(PAGE_HEADER_SIZE + slot * TrialRecord.SIZE);
+            TrialRecord record = TrialRecord.readFrom(buffer);
+            if (record.getTimestamp() >= from && record.getTimestamp() < to) {
+                records.add(record);
+            }
+        }
+    }
+    
+    @Override
+    public synchronized TrialRecord get(int subjectId, long sessionId, int trial) throws IOException {
+        Integer recordNumber = this.index.get(new Key(subjectId, sessionId, trial));
+        return recordNumber == null ? null : this.read(recordNumber);
+    }
+    
+    @Override
+    public synchronized List<TrialRecord> readSubject(int subjectId) throws IOException {
+        List<Integer> recordNumbers = this.subjectRecords.get(subjectId);
+        List<TrialRecord> records = new ArrayList<TrialRecord>();
+        if (recordNumbers != null) {
+            for (int recordNumber : recordNumbers) {
+                records.add(this.read(recordNumber));
+            }
+        }
+        return records;
+    }
+    
+    @Override
+    public synchronized List<TrialRecord> readTimeRange(long from, long to) throws IOException {
+        List<TrialRecord> records = new ArrayList<TrialRecord>();
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        for (int page = 0; page < this.numPages; page++) {
+            if (this.pageMaxTime[page] >= from && this.pageMinTime[page] < to) {
+                this.readPage(page, buffer, records, from, to);
+            }
+        }
+        return records;
+    }
+    
+    @Override
+    public synchronized void exportCsv(Writer writer) throws IOException {
+        writer.write(TrialRecord.COLUMN_NAMES + "\n");
+        List<TrialRecord> records = new ArrayList<TrialRecord>(RECORDS_PER_PAGE);
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        for (int page = 0; page < this.numPages; page++) {
+            records.clear();
+            this.readPage(page, buffer, records, Long.MIN_VALUE, Long.MAX_VALUE);
+            for (TrialRecord record : records) {
+                writer.write(record.toCsvRow());
+                writer.write("\n");
+            }
+        }
+        writer.flush();
+    }
+    
+    @Override
+    public synchronized int size() {
+        return this.numRecords;
+    }
+    
+    public File getFile() {
+        return this.file;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.channel.isOpen()) {
+            this.channel.force(false);
+        }
+        this.channel.close();
+    }
+    
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += this.channel.write(buffer, position);
+        }
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file at offset " + position);
+            }
+            position += read;
+        }
+    }
+}
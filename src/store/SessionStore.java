@@ -0,0 +1,59 @@
+package store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Storage for the rounds of every session of every subject, as an alternative
+ * to one CSV file per subject.
+ */
+public interface SessionStore extends Closeable {
+    
+    /**
+     * Add a round. Rounds are never changed once added.
+     * @param record The round.
+     * @throws IOException If the round can't be written.
+     */
+    void append(TrialRecord record) throws IOException;
+    
+    /**
+     * Look up one round.
+     * @param subjectId The subject's ID.
+     * @param sessionId The session.
+     * @param trial Number of the round in the session.
+     * @return The round, or null if there is none.
+     * @throws IOException If the store can't be read.
+     */
+    TrialRecord get(int subjectId, long sessionId, int trial) throws IOException;
+    
+    /**
+     * Every round of a subject, in the order they were added.
+     * @param subjectId The subject's ID.
+     * @return The rounds.
+     * @throws IOException If the store can't be read.
+     */
+    List<TrialRecord> readSubject(int subjectId) throws IOException;
+    
+    /**
+     * Every round answered in a range of time, in the order they were added.
+     * @param from Start of the range in milliseconds since the epoch, inclusive.
+     * @param to End of the range in milliseconds since the epoch, exclusive.
+     * @return The rounds.
+     * @throws IOException If the store can't be read.
+     */
+    List<TrialRecord> readTimeRange(long from, long to) throws IOException;
+    
+    /**
+     * Write every round as CSV, with column names, in the order they were added.
+     * @param writer Where to write.
+     * @throws IOException If the store can't be read or the CSV can't be written.
+     */
+    void exportCsv(Writer writer) throws IOException;
+    
+    /**
+     * @return Number of rounds in the store.
+     */
+    int size();
+}
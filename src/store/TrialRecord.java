@@ -0,0 +1,277 @@
+package store;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.zip.CRC32C;
+
+import controller.DataWriter;
+import model.ControlType;
+import model.Player;
+
+/**
+ * One round of one session, as kept in a SessionStore.
+ * 
+ * Records have a fixed binary layout of SIZE bytes so that a page holds a
+ * whole number of them and any record can be read from its offset alone.
+ * The last four bytes are the CRC32C of the rest of the record.
+ */
+public final class TrialRecord {
+    
+    /** Size of a record in bytes. */
+    public static final int SIZE = 64;
+    
+    /** Offset of the CRC32C within a record. */
+    static final int CRC_OFFSET = SIZE - 4;
+    
+    private static final ControlType[] CONTROL_TYPES = ControlType.values();
+    private static final Player.Gender[] GENDERS = Player.Gender.values();
+    
+    /** Names of the difficulties, indexed as in TrialHistory. */
+    private static final String[] DIFFICULTY_NAMES = {"EASY", "MEDIUM", "HARD", ""};
+    
+    /** Column names of the CSV export. */
+    public static final String COLUMN_NAMES = DataWriter.SUBJECT_ID + DataWriter.DELIMITER
+            + "Session" + DataWriter.DELIMITER
+            + "Round" + DataWriter.DELIMITER
+            + DataWriter.DATE_TIME + DataWriter.DELIMITER
+            + DataWriter.SUBJECT_AGE + DataWriter.DELIMITER
+            + DataWriter.SUBJECT_GENDER + DataWriter.DELIMITER
+            + DataWriter.LEFT_CHOICE + DataWriter.DELIMITER
+            + DataWriter.RIGHT_CHOICE + DataWriter.DELIMITER
+            + DataWriter.WHICH_SIDE_CORRECT + DataWriter.DELIMITER
+            + DataWriter.IS_CORRECT + DataWriter.DELIMITER
+            + DataWriter.DIFFICULTY + DataWriter.DELIMITER
+            + DataWriter.DISTANCE + DataWriter.DELIMITER
+            + DataWriter.CONTROL_TYPE + DataWriter.DELIMITER
+            + DataWriter.NUMBER_DOTS_RATIO + DataWriter.DELIMITER
+            + DataWriter.AREA_RATIO + DataWriter.DELIMITER
+            + DataWriter.RESPONSE_TIME;
+    
+    private final int subjectId;
+    private final long sessionId;
+    private final int trial;
+    private final long timestamp;
+    private final long responseTime;
+    private final int subjectAge;
+    private final Player.Gender subjectGender;
+    private final boolean leftCorrect;
+    private final boolean correct;
+    private final int leftDots;
+    private final int rightDots;
+    private final ControlType controlType;
+    private final int difficulty;
+    private final int distance;
+    private final double numDotsRatio;
+    private final double areaRatio;
+    
+    /**
+     * Constructor.
+     * @param subjectId The subject's ID.
+     * @param sessionId The session, as the time in milliseconds since the epoch it started.
+     * @param trial Number of the round in the session, from 1.
+     * @param timestamp Time in milliseconds since the epoch the round was answered.
+     * @param responseTime Response time in nanoseconds.
+     * @param subjectAge The subject's age.
+     * @param subjectGender The subject's gender, or null.
+     * @param leftCorrect Whether the left side was correct.
+     * @param correct Whether the subject answered correctly.
+     * @param leftDots Number of dots on the left.
+     * @param rightDots Number of dots on the right.
+     * @param controlType The control type.
+     * @param difficulty Difficulty index, see TrialHistory.difficultyIndex.
+     * @param distance Difference in numbers of dots.
+     * @param numDotsRatio Ratio of numbers of dots, greater to smaller.
+     * @param areaRatio Ratio of areas, greater to smaller.
+     */
+    public TrialRecord(int subjectId, long sessionId, int trial, long timestamp, long responseTime,
+            int subjectAge, Player.Gender subjectGender, boolean leftCorrect, boolean correct,
+            int leftDots, int rightDots, ControlType controlType, int difficulty, int distance,
+            double numDotsRatio, double areaRatio) {
+        this.subjectId = subjectId;
+        this.sessionId = sessionId;
+        this.trial = trial;
+        this.timestamp = timestamp;
+        this.responseTime = responseTime;
+        this.subjectAge = subjectAge;
+        this.subjectGender = subjectGender;
+        this.leftCorrect = leftCorrect;
+        this.correct = correct;
+        this.leftDots = leftDots;
+        this.rightDots = rightDots;
+        this.controlType = controlType;
+        this.difficulty = difficulty;
+        this.distance = distance;
+        this.numDotsRatio = numDotsRatio;
+        this.areaRatio = areaRatio;
+    }
+    
+    /**
+     * Write the record at the buffer's position, advancing it by SIZE.
+     * @param buffer Buffer with at least SIZE bytes remaining.
+     */
+    void writeTo(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putInt(this.subjectId);
+        buffer.putLong(this.sessionId);
+        buffer.putInt(this.trial);
+        buffer.putLong(this.timestamp);
+        buffer.putLong(this.responseTime);
+        buffer.putShort((short) this.subjectAge);
+        buffer.put((byte) (this.subjectGender == null ? -1 : this.subjectGender.ordinal()));
+        buffer.put((byte) ((this.leftCorrect ? 1 : 0) | (this.correct ? 2 : 0)));
+        buffer.putShort((short) this.leftDots);
+        buffer.putShort((short) this.rightDots);
+        buffer.put((byte) this.controlType.ordinal());
+        buffer.put((byte) this.difficulty);
+        buffer.putShort((short) this.distance);
+        buffer.putDouble(this.numDotsRatio);
+        buffer.putDouble(this.areaRatio);
+        while (buffer.position() < start + CRC_OFFSET) {
+            buffer.put((byte) 0);
+        }
+        buffer.putInt(checksum(buffer, start));
+    }
+    
+    /**
+     * CRC32C of a record, excluding its own checksum.
+     * @param buffer Buffer holding the record.
+     * @param start Index of the record in the buffer.
+     * @return The checksum.
+     */
+    static int checksum(ByteBuffer buffer, int start) {
+        ByteBuffer record = buffer.duplicate();
+        record.limit(start + CRC_OFFSET);
+        record.position(start);
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * Whether a record's checksum matches its contents.
+     * @param buffer Buffer holding the record.
+     * @param start Index of the record in the buffer.
+     * @return True if the record is intact.
+     */
+    static boolean checksumMatches(ByteBuffer buffer, int start) {
+        return buffer.getInt(start + CRC_OFFSET) == checksum(buffer, start);
+    }
+    
+    /**
+     * Read a record at the buffer's position, advancing it by SIZE.
+     * @param buffer Buffer with at least SIZE bytes remaining.
+     * @return The record.
+     */
+    static TrialRecord readFrom(ByteBuffer buffer) {
+        int start = buffer.position();
+        int subjectId = buffer.getInt();
+        long sessionId = buffer.getLong();
+        int trial = buffer.getInt();
+        long timestamp = buffer.getLong();
+        long responseTime = buffer.getLong();
+        int subjectAge = buffer.getShort();
+        byte gender = buffer.get();
+        byte flags = buffer.get();
+        int leftDots = buffer.getShort();
+        int rightDots = buffer.getShort();
+        byte controlType = buffer.get();
+        int difficulty = buffer.get();
+        int distance = buffer.getShort();
+        double numDotsRatio = buffer.getDouble();
+        double areaRatio = buffer.getDouble();
+        buffer.position(start + SIZE);
+        return new TrialRecord(subjectId, sessionId, trial, timestamp, responseTime,
+                subjectAge, gender < 0 ? null : GENDERS[gender], (flags & 1) != 0, (flags & 2) != 0,
+                leftDots, rightDots, CONTROL_TYPES[controlType], difficulty, distance,
+                numDotsRatio, areaRatio);
+    }
+    
+    /**
+     * The record as a row of the CSV export, without a line break.
+     * @return The row.
+     */
+    public String toCsvRow() {
+        return this.subjectId + DataWriter.DELIMITER
+                + this.sessionId + DataWriter.DELIMITER
+                + this.trial + DataWriter.DELIMITER
+                + Instant.ofEpochMilli(this.timestamp).atZone(ZoneId.systemDefault()).toLocalDateTime() + DataWriter.DELIMITER
+                + this.subjectAge + DataWriter.DELIMITER
+                + (this.subjectGender == null ? "" : this.subjectGender) + DataWriter.DELIMITER
+                + this.leftDots + DataWriter.DELIMITER
+                + this.rightDots + DataWriter.DELIMITER
+                + (this.leftCorrect ? "left" : "right") + DataWriter.DELIMITER
+                + (this.correct ? "yes" : "no") + DataWriter.DELIMITER
+                + (this.difficulty >= 0 && this.difficulty < DIFFICULTY_NAMES.length 
+                        ? DIFFICULTY_NAMES[this.difficulty] : "") + DataWriter.DELIMITER
+                + this.distance + DataWriter.DELIMITER
+                + DataWriter.controlTypeText(this.controlType) + DataWriter.DELIMITER
+                + this.numDotsRatio + DataWriter.DELIMITER
+                + this.areaRatio + DataWriter.DELIMITER
+                + this.responseTime / 1000000000.0;
+    }
+    
+    public int getSubjectId() {
+        return this.subjectId;
+    }
+    
+    public long getSessionId() {
+        return this.sessionId;
+    }
+    
+    public int getTrial() {
+        return this.trial;
+    }
+    
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+    
+    public long getResponseTime() {
+        return this.responseTime;
+    }
+    
+    public int getSubjectAge() {
+        return this.subjectAge;
+    }
+    
+    public Player.Gender getSubjectGender() {
+        return this.subjectGender;
+    }
+    
+    public boolean isLeftCorrect() {
+        return this.leftCorrect;
+    }
+    
+    public boolean isCorrect() {
+        return this.correct;
+    }
+    
+    public int getLeftDots() {
+        return this.leftDots;
+    }
+    
+    public int getRightDots() {
+        return this.rightDots;
+    }
+    
+    public ControlType getControlType() {
+        return this.controlType;
+    }
+    
+    public int getDifficulty() {
+        return this.difficulty;
+    }
+    
+    public int getDistance() {
+        return this.distance;
+    }
+    
+    public double getNumDotsRatio() {
+        return this.numDotsRatio;
+    }
+    
+    public double getAreaRatio() {
+        return this.areaRatio;
+    }
+}
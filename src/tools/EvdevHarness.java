@@ -0,0 +1,172 @@
+package tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import controller.EvdevResponseSource;
+import controller.ResponseSource;
+import util.LatencyHistogram;
+
+/**
+ * Feeds EvdevResponseSource with input_event records written to a temporary
+ * plain file or FIFO, the way the kernel writes them to /dev/input/event*, so
+ * the reader can be checked without a keyboard or the JavaFX toolkit.
+ *
+ * Every press of F or J is written between records the source has to skip:
+ * synchronization events, releases, auto repeats and other keys. Each press
+ * must come out once, on the right side, with a press time close to when it
+ * was written, and nothing else may come out. Prints the percentiles of how
+ * far the press time was from the time the record was written, and how long
+ * the press took to reach the listener.
+ *
+ * Usage: EvdevHarness [file|fifo] [presses]
+ * A plain file (the default) is polled at its end, so its delivery takes up to
+ * EvdevResponseSource.POLL_INTERVAL; a FIFO wakes the reader up at once.
+ */
+public final class EvdevHarness {
+
+    /** Event type of synchronization events, written after every key event. */
+    static final int EV_SYN = 0;
+
+    /** A key that is not a response. */
+    static final int KEY_SPACE = 57;
+
+    /** Value of an EV_KEY event for a release and for an auto repeat. */
+    static final int KEY_RELEASE = 0;
+    static final int KEY_REPEAT = 2;
+
+    /** Time in milliseconds to wait for each press to come out. */
+    static final int TIMEOUT = 1000;
+
+    /** Time in milliseconds to wait after the last press for anything that should not come out. */
+    static final int SETTLE_TIME = 100;
+
+    /** A response taken from the source, and when the listener got it. */
+    private static final class Response {
+        final boolean leftPicked;
+        final long pressTime;
+        final long receiveTime;
+
+        Response(boolean leftPicked, long pressTime, long receiveTime) {
+            this.leftPicked = leftPicked;
+            this.pressTime = pressTime;
+            this.receiveTime = receiveTime;
+        }
+    }
+
+    private final BlockingQueue<Response> responses = new ArrayBlockingQueue<Response>(16);
+    private final ByteBuffer record = ByteBuffer.allocate(EvdevResponseSource.RECORD_SIZE)
+            .order(ByteOrder.nativeOrder());
+
+    /** Distance of the press time from the time the record was written. */
+    private final LatencyHistogram timestampError = new LatencyHistogram();
+
+    /** Time from writing the record to the listener getting the press. */
+    private final LatencyHistogram delivery = new LatencyHistogram();
+
+    private EvdevHarness() {
+
+    }
+
+    /**
+     * Run the harness.
+     * @param args Kind of file and number of presses.
+     * @throws IOException if the file can't be made or written.
+     * @throws InterruptedException if interrupted while waiting for a press.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean fifo = args.length > 0 && "fifo".equals(args[0]);
+        int presses = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        File device = File.createTempFile("dots-evdev", ".events");
+        device.deleteOnExit();
+        if (fifo) {
+            Files.delete(device.toPath());
+            if (new ProcessBuilder("mkfifo", device.getPath()).inheritIO().start().waitFor() != 0) {
+                System.err.println("Cannot make a FIFO at " + device);
+                System.exit(1);
+            }
+        }
+        EvdevHarness harness = new EvdevHarness();
+        EvdevResponseSource source = new EvdevResponseSource(device, Runnable::run);
+        source.start(harness::respond);
+        try (OutputStream out = new FileOutputStream(device)) {
+            harness.run(out, presses, new Random(42L));
+        } finally {
+            source.stop();
+        }
+        System.out.println(presses + " presses through a " + (fifo ? "FIFO" : "plain file"));
+        printHistogram("Press time error", harness.timestampError);
+        printHistogram("Delivery", harness.delivery);
+    }
+
+    /**
+     * Take a response from the source; called on its reader thread.
+     */
+    private void respond(boolean leftPicked, long pressTime) {
+        this.responses.add(new Response(leftPicked, pressTime, System.nanoTime()));
+    }
+
+    /**
+     * Write the presses one at a time, each among records to skip, and check each
+     * comes out before writing the next.
+     */
+    private void run(OutputStream out, int presses, Random random) throws IOException, InterruptedException {
+        for (int i = 0; i < presses; i++) {
+            int code = random.nextBoolean() ? EvdevResponseSource.KEY_F : EvdevResponseSource.KEY_J;
+            this.write(out, EvdevResponseSource.EV_KEY, KEY_SPACE, EvdevResponseSource.KEY_PRESS);
+            this.write(out, EV_SYN, 0, 0);
+            long writeTime = System.nanoTime();
+            this.write(out, EvdevResponseSource.EV_KEY, code, EvdevResponseSource.KEY_PRESS);
+            this.write(out, EV_SYN, 0, 0);
+            this.write(out, EvdevResponseSource.EV_KEY, code, KEY_REPEAT);
+            this.write(out, EvdevResponseSource.EV_KEY, code, KEY_RELEASE);
+            this.write(out, EvdevResponseSource.EV_KEY, KEY_SPACE, KEY_RELEASE);
+            this.write(out, EV_SYN, 0, 0);
+
+            Response response = this.responses.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+            if (response == null) {
+                throw new IllegalStateException("Press " + i + " did not come out");
+            }
+            if (response.leftPicked != (code == EvdevResponseSource.KEY_F)) {
+                throw new IllegalStateException("Press " + i + " came out on the wrong side");
+            }
+            this.timestampError.record(Math.abs(response.pressTime - writeTime));
+            this.delivery.record(response.receiveTime - writeTime);
+        }
+        Response extra = this.responses.poll(SETTLE_TIME, TimeUnit.MILLISECONDS);
+        if (extra != null) {
+            throw new IllegalStateException("A record that is not a press came out as one");
+        }
+    }
+
+    /**
+     * Write one input_event record stamped with the wall clock, as the kernel does.
+     */
+    private void write(OutputStream out, int type, int code, int value) throws IOException {
+        Instant now = Instant.now();
+        this.record.putLong(0, now.getEpochSecond());
+        this.record.putLong(8, now.getNano() / 1000);
+        this.record.putShort(16, (short) type);
+        this.record.putShort(18, (short) code);
+        this.record.putInt(20, value);
+        out.write(this.record.array());
+        out.flush();
+    }
+
+    private static void printHistogram(String name, LatencyHistogram histogram) {
+        System.out.printf("%s: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", name,
+                histogram.getValueAtPercentile(50) / 1000000.0,
+                histogram.getValueAtPercentile(99) / 1000000.0,
+                histogram.getMaxValue() / 1000000.0);
+    }
+}
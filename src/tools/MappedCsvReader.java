@@ -0,0 +1,293 @@
+package tools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a CSV file written by DataWriter row by row straight from a memory map.
+ * 
+ * Rows are split on commas into field boundaries; nothing is copied and no
+ * strings are made unless asked for with getString(). Numbers are parsed from
+ * the mapped bytes directly. DataWriter never quotes fields, so neither does this.
+ */
+public class MappedCsvReader {
+    
+    /** Powers of ten that are exact as doubles. */
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    
+    /** The mapped file. */
+    private final ByteBuffer buffer;
+    
+    /** Position of the next row. */
+    private int position;
+    
+    /** Start of the current row, and end including its line break. */
+    private int rowStart;
+    private int rowEnd;
+    
+    /** Start and end (exclusive) of every field of the current row. */
+    private int[] fieldStarts = new int[32];
+    private int[] fieldEnds = new int[32];
+    private int numFields;
+    
+    /**
+     * Constructor.
+     * @param buffer The contents of a CSV file, from position 0 to its limit.
+     */
+    public MappedCsvReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+    
+    /**
+     * Map a file and read it.
+     * @param path The CSV file.
+     * @return A reader at the start of the file.
+     * @throws IOException If the file can't be mapped, e.g. it is over 2 GB.
+     */
+    public static MappedCsvReader open(Path path) throws IOException {
+        return new MappedCsvReader(map(path));
+    }
+    
+    /**
+     * Map a whole file read only. The mapping stays valid after this returns.
+     * @param path The file.
+     * @return The mapping.
+     * @throws IOException If the file can't be mapped, e.g. it is over 2 GB.
+     */
+    public static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to map");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+    
+    /**
+     * Move to the next non-empty row.
+     * @return False at the end of the file.
+     */
+    public boolean nextRow() {
+        int limit = this.buffer.limit();
+        while (this.position < limit) {
+            this.rowStart = this.position;
+            this.numFields = 0;
+            int fieldStart = this.position;
+            int i = this.position;
+            byte b = 0;
+            while (i < limit && (b = this.buffer.get(i)) != '\n') {
+                if (b == ',') {
+                    this.addField(fieldStart, i);
+                    fieldStart = i + 1;
+                }
+                i++;
+            }
+            int lineEnd = i;
+            if (lineEnd > fieldStart && this.buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            this.rowEnd = i < limit ? i + 1 : i;
+            this.position = this.rowEnd;
+            if (lineEnd == this.rowStart) {
+                continue;
+            }
+            this.addField(fieldStart, lineEnd);
+            return true;
+        }
+        return false;
+    }
+    
+    private void addField(int start, int end) {
+        if (this.numFields == this.fieldStarts.length) {
+            this.fieldStarts = Arrays.copyOf(this.fieldStarts, this.numFields * 2);
+            this.fieldEnds = Arrays.copyOf(this.fieldEnds, this.numFields * 2);
+        }
+        this.fieldStarts[this.numFields] = start;
+        this.fieldEnds[this.numFields] = end;
+        this.numFields++;
+    }
+    
+    public int getNumFields() {
+        return this.numFields;
+    }
+    
+    public int getRowStart() {
+        return this.rowStart;
+    }
+    
+    /** End of the current row, including its line break. */
+    public int getRowEnd() {
+        return this.rowEnd;
+    }
+    
+    public int getFieldStart(int field) {
+        return this.fieldStarts[field];
+    }
+    
+    public int getFieldEnd(int field) {
+        return this.fieldEnds[field];
+    }
+    
+    public ByteBuffer getBuffer() {
+        return this.buffer;
+    }
+    
+    /**
+     * A field as a string. Allocates, so meant for headers rather than every row.
+     * @param field Index of the field.
+     * @return The field.
+     */
+    public String getString(int field) {
+        int start = this.fieldStarts[field];
+        byte[] bytes = new byte[this.fieldEnds[field] - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = this.buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+    
+    /**
+     * Whether a field is exactly some ASCII text.
+     * @param field Index of the field, or -1 for a missing column.
+     * @param text The text as bytes.
+     * @return True if they match.
+     */
+    public boolean fieldEquals(int field, byte[] text) {
+        if (field < 0 || field >= this.numFields) {
+            return false;
+        }
+        int start = this.fieldStarts[field];
+        if (this.fieldEnds[field] - start != text.length) {
+            return false;
+        }
+        for (int i = 0; i < text.length; i++) {
+            if (this.buffer.get(start + i) != text[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Parse a field as an integer.
+     * @param field Index of the field.
+     * @param missing Value to return if the field is missing, empty or not a number.
+     * @return The number.
+     */
+    public long parseLong(int field, long missing) {
+        if (field < 0 || field >= this.numFields) {
+            return missing;
+        }
+        int i = this.fieldStarts[field];
+        int end = this.fieldEnds[field];
+        boolean negative = i < end && this.buffer.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end) {
+            return missing;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = this.buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return missing;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+    
+    /**
+     * Parse a field as a decimal number, as written by Double.toString.
+     * @param field Index of the field.
+     * @return The number, or NaN if the field is missing, empty or not a number.
+     */
+    public double parseDouble(int field) {
+        if (field < 0 || field >= this.numFields) {
+            return Double.NaN;
+        }
+        int i = this.fieldStarts[field];
+        int end = this.fieldEnds[field];
+        boolean negative = i < end && this.buffer.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int numDigits = 0;
+        int decimalExponent = 0;
+        boolean seenPoint = false;
+        for (; i < end; i++) {
+            byte b = this.buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                if (numDigits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    numDigits++;
+                    if (seenPoint) {
+                        decimalExponent--;
+                    }
+                } else if (!seenPoint) {
+                    decimalExponent++;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else if (b == 'E' || b == 'e') {
+                long exponent = this.parseExponent(i + 1, end);
+                if (exponent == Long.MIN_VALUE) {
+                    return Double.NaN;
+                }
+                decimalExponent += exponent;
+                break;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (numDigits == 0) {
+            return Double.NaN;
+        }
+        double value;
+        if (decimalExponent == 0) {
+            value = mantissa;
+        } else if (decimalExponent < 0 && -decimalExponent < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[-decimalExponent];
+        } else if (decimalExponent > 0 && decimalExponent < POWERS_OF_TEN.length) {
+            value = mantissa * POWERS_OF_TEN[decimalExponent];
+        } else {
+            value = Double.parseDouble(this.getString(field));
+            return value;
+        }
+        return negative ? -value : value;
+    }
+    
+    /** Parse the exponent of a number, or return Long.MIN_VALUE if there is none. */
+    private long parseExponent(int i, int end) {
+        boolean negative = i < end && this.buffer.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end) {
+            return Long.MIN_VALUE;
+        }
+        long exponent = 0;
+        for (; i < end; i++) {
+            int digit = this.buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            exponent = exponent * 10 + digit;
+        }
+        return negative ? -exponent : exponent;
+    }
+}
@@ -0,0 +1,172 @@
+package tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.VarHandle;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import markers.MappedRingMarkerSink;
+import markers.Marker;
+import markers.MarkerSink;
+import util.LatencyHistogram;
+
+/**
+ * Stand-in for the EEG recording computer: receives the markers of the game
+ * and prints how long each took to arrive after it was published and after it
+ * was sent. Both times are System.nanoTime() readings, which on Linux share
+ * one clock across processes, so this has to run on the same computer as the game.
+ *
+ * Usage: MarkerReceiver udp [port] [count]
+ *        MarkerReceiver pipe [named pipe] [count]
+ *        MarkerReceiver ring [ring file] [count]
+ *
+ * Stops after count markers, or never if count is 0 (the default), and prints
+ * the percentiles of the latencies.
+ */
+public class MarkerReceiver {
+
+    /** Latencies from publishing and from sending to receiving. */
+    private final LatencyHistogram fromPublish = new LatencyHistogram();
+    private final LatencyHistogram fromSend = new LatencyHistogram();
+
+    private final long count;
+
+    private MarkerReceiver(long count) {
+        this.count = count;
+    }
+
+    /**
+     * Run the receiver.
+     * @param args Kind of sink, where to receive from and number of markers.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: MarkerReceiver udp|pipe|ring <port or file> [count]");
+            System.exit(2);
+        }
+        MarkerReceiver receiver = new MarkerReceiver(args.length > 2 ? Long.parseLong(args[2]) : 0);
+        try {
+            switch (args[0]) {
+                case "udp":
+                    receiver.receiveUdp(Integer.parseInt(args[1]));
+                    break;
+                case "pipe":
+                    receiver.receivePipe(new File(args[1]));
+                    break;
+                case "ring":
+                    receiver.receiveRing(new File(args[1]));
+                    break;
+                default:
+                    System.err.println("Unknown sink " + args[0]);
+                    System.exit(2);
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            System.exit(1);
+        }
+        receiver.printSummary();
+    }
+
+    private void receiveUdp(int port) throws IOException {
+        ByteBuffer message = ByteBuffer.allocateDirect(MarkerSink.MESSAGE_SIZE);
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.bind(new InetSocketAddress("127.0.0.1", port));
+            System.out.println("Listening on udp port " + port);
+            while (!this.isDone()) {
+                message.clear();
+                channel.receive(message);
+                this.received(message, System.nanoTime());
+            }
+        }
+    }
+
+    private void receivePipe(File pipe) throws IOException {
+        byte[] bytes = new byte[MarkerSink.MESSAGE_SIZE];
+        ByteBuffer message = ByteBuffer.wrap(bytes);
+        System.out.println("Reading " + pipe);
+        try (InputStream in = Files.newInputStream(pipe.toPath())) {
+            while (!this.isDone()) {
+                int read = in.readNBytes(bytes, 0, bytes.length);
+                if (read < bytes.length) {
+                    break;
+                }
+                this.received(message, System.nanoTime());
+            }
+        }
+    }
+
+    private void receiveRing(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer ring = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int capacity = ring.getInt(MappedRingMarkerSink.CAPACITY_OFFSET);
+            ByteBuffer message = ByteBuffer.allocate(MarkerSink.MESSAGE_SIZE);
+            long seen = ring.getLong(MappedRingMarkerSink.SEQUENCE_OFFSET);
+            System.out.println("Polling " + file + " from marker " + seen);
+            while (!this.isDone()) {
+                long sequence = ring.getLong(MappedRingMarkerSink.SEQUENCE_OFFSET);
+                if (sequence == seen) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                long now = System.nanoTime();
+                VarHandle.acquireFence();
+                if (sequence < seen) {
+                    System.out.println("The game started the ring over");
+                    seen = 0;
+                }
+                if (sequence - seen > capacity) {
+                    System.out.println("Fell behind, skipped " + (sequence - seen - capacity) + " markers");
+                    seen = sequence - capacity;
+                }
+                for (; seen < sequence; seen++) {
+                    int slot = (int) (seen % capacity);
+                    for (int i = 0; i < MarkerSink.MESSAGE_SIZE; i++) {
+                        message.put(i, ring.get(MappedRingMarkerSink.HEADER_SIZE + slot * MarkerSink.MESSAGE_SIZE + i));
+                    }
+                    this.received(message, now);
+                }
+            }
+        }
+    }
+
+    /**
+     * Print one marker and count its latencies.
+     * @param message The message.
+     * @param receiveTime Time in nanoseconds it was received.
+     */
+    private void received(ByteBuffer message, long receiveTime) {
+        int code = message.getInt(MarkerSink.CODE_OFFSET);
+        int round = message.getInt(MarkerSink.ROUND_OFFSET);
+        long publishTime = message.getLong(MarkerSink.PUBLISH_TIME_OFFSET);
+        long sendTime = message.getLong(MarkerSink.SEND_TIME_OFFSET);
+        this.fromPublish.record(receiveTime - publishTime);
+        this.fromSend.record(receiveTime - sendTime);
+        System.out.printf("%s round %d: %.3f ms after publish, %.3f ms after send%n",
+                Marker.fromCode(code), round,
+                (receiveTime - publishTime) / 1000000.0, (receiveTime - sendTime) / 1000000.0);
+    }
+
+    private boolean isDone() {
+        return this.count > 0 && this.fromSend.getTotalCount() >= this.count;
+    }
+
+    private void printSummary() {
+        System.out.println("Received " + this.fromSend.getTotalCount() + " markers");
+        printHistogram("After publish", this.fromPublish);
+        printHistogram("After send", this.fromSend);
+    }
+
+    private static void printHistogram(String name, LatencyHistogram histogram) {
+        System.out.printf("%s: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n", name,
+                histogram.getValueAtPercentile(50) / 1000000.0,
+                histogram.getValueAtPercentile(99) / 1000000.0,
+                histogram.getMaxValue() / 1000000.0);
+    }
+}
@@ -0,0 +1,363 @@
+package tools;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import controller.DataWriter;
+
+/**
+ * Merges every subject's results in a results_dots folder into one CSV file,
+ * and summarizes every subject.
+ * 
+ * Usage: ResultsAggregator [results folder] [output folder]
+ * 
+ * Both default to results_dots. Every results_<id>.csv under the results folder
+ * is memory mapped and parsed in parallel with MappedCsvReader. Columns are found
+ * by name, so files written by older versions of DataWriter are merged too, with
+ * their missing columns left empty. Files whose columns match the merged columns
+ * are copied into merged_results.csv with FileChannel.transferTo without being
+ * read again. Writes merged_results.csv and subject_summaries.csv and reports
+ * the number of rows per second.
+ */
+public class ResultsAggregator {
+    
+    /** Names of the files written. */
+    public static final String MERGED_FILE = "merged_results.csv";
+    public static final String SUMMARY_FILE = "subject_summaries.csv";
+    
+    /** Results files written by DataWriter. */
+    private static final Pattern RESULTS_FILE = Pattern.compile("results_\\d+\\.csv");
+    
+    /** Difficulties summarized, as written by DataWriter. */
+    private static final String[] DIFFICULTIES = {"EASY", "MEDIUM", "HARD"};
+    private static final byte[][] DIFFICULTY_BYTES = new byte[DIFFICULTIES.length][];
+    static {
+        for (int i = 0; i < DIFFICULTIES.length; i++) {
+            DIFFICULTY_BYTES[i] = DIFFICULTIES[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+    private static final byte[] YES = "yes".getBytes(StandardCharsets.US_ASCII);
+    
+    /** Size of the buffer for rows that have to be rearranged. */
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    
+    /** Totals of one subject. */
+    static final class SubjectSummary {
+        int numFiles;
+        long numRounds;
+        long numCorrect;
+        long numResponseTimes;
+        double totalResponseTime;
+        final long[] roundsByDifficulty = new long[DIFFICULTIES.length];
+        final long[] correctByDifficulty = new long[DIFFICULTIES.length];
+        
+        void add(SubjectSummary other) {
+            this.numFiles += other.numFiles;
+            this.numRounds += other.numRounds;
+            this.numCorrect += other.numCorrect;
+            this.numResponseTimes += other.numResponseTimes;
+            this.totalResponseTime += other.totalResponseTime;
+            for (int i = 0; i < DIFFICULTIES.length; i++) {
+                this.roundsByDifficulty[i] += other.roundsByDifficulty[i];
+                this.correctByDifficulty[i] += other.correctByDifficulty[i];
+            }
+        }
+    }
+    
+    /** What was read from one results file. */
+    static final class FileResult {
+        final Path path;
+        List<String> columns;
+        int headerEnd;
+        long numRows;
+        final Map<Long, SubjectSummary> subjects = new HashMap<Long, SubjectSummary>();
+        
+        FileResult(Path path) {
+            this.path = path;
+        }
+    }
+    
+    private final Path resultsFolder;
+    private final Path outputFolder;
+    
+    /**
+     * Constructor.
+     * @param resultsFolder Folder to look for results files in.
+     * @param outputFolder Folder to write the merged results and summaries to.
+     */
+    public ResultsAggregator(Path resultsFolder, Path outputFolder) {
+        this.resultsFolder = resultsFolder;
+        this.outputFolder = outputFolder;
+    }
+    
+    /**
+     * Aggregate the results.
+     * @return Number of rows merged.
+     * @throws IOException If the results folder can't be walked or the outputs can't be written.
+     */
+    public long run() throws IOException {
+        long start = System.nanoTime();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(this.resultsFolder)) {
+            files = walk.filter(path -> RESULTS_FILE.matcher(path.getFileName().toString()).matches())
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        List<FileResult> results = files.parallelStream()
+                .map(ResultsAggregator::readFile)
+                .filter(result -> result != null)
+                .collect(Collectors.toList());
+        
+        /** Merged columns are every column seen, in order of first appearance. */
+        List<String> columns = new ArrayList<String>();
+        for (FileResult result : results) {
+            for (String column : result.columns) {
+                if (!columns.contains(column)) {
+                    columns.add(column);
+                }
+            }
+        }
+        
+        Files.createDirectories(this.outputFolder);
+        long numRows = this.writeMerged(results, columns);
+        TreeMap<Long, SubjectSummary> subjects = new TreeMap<Long, SubjectSummary>();
+        for (FileResult result : results) {
+            for (Map.Entry<Long, SubjectSummary> entry : result.subjects.entrySet()) {
+                SubjectSummary summary = subjects.get(entry.getKey());
+                if (summary == null) {
+                    summary = new SubjectSummary();
+                    subjects.put(entry.getKey(), summary);
+                }
+                summary.add(entry.getValue());
+            }
+        }
+        this.writeSummaries(subjects);
+        
+        double seconds = (System.nanoTime() - start) / 1000000000.0;
+        System.out.println(String.format("Merged %d rows from %d files (%d subjects) in %.2f s: %.0f rows/s",
+                numRows, results.size(), subjects.size(), seconds, numRows / seconds));
+        return numRows;
+    }
+    
+    /**
+     * Read the header of a results file and total its rows by subject.
+     * @param path The results file.
+     * @return What was read, or null if the file couldn't be read.
+     */
+    static FileResult readFile(Path path) {
+        FileResult result = new FileResult(path);
+        try {
+            MappedCsvReader reader = MappedCsvReader.open(path);
+            if (!reader.nextRow()) {
+                result.columns = new ArrayList<String>();
+                return result;
+            }
+            List<String> columns = new ArrayList<String>(reader.getNumFields());
+            for (int i = 0; i < reader.getNumFields(); i++) {
+                columns.add(reader.getString(i));
+            }
+            result.columns = columns;
+            result.headerEnd = reader.getRowEnd();
+            
+            int subjectColumn = columns.indexOf(DataWriter.SUBJECT_ID);
+            int correctColumn = columns.indexOf(DataWriter.IS_CORRECT);
+            int difficultyColumn = columns.indexOf(DataWriter.DIFFICULTY);
+            int responseTimeColumn = columns.indexOf(DataWriter.RESPONSE_TIME);
+            
+            long currentSubject = Long.MIN_VALUE;
+            SubjectSummary summary = null;
+            while (reader.nextRow()) {
+                result.numRows++;
+                long subject = reader.parseLong(subjectColumn, -1);
+                if (summary == null || subject != currentSubject) {
+                    currentSubject = subject;
+                    summary = result.subjects.get(subject);
+                    if (summary == null) {
+                        summary = new SubjectSummary();
+                        summary.numFiles = 1;
+                        result.subjects.put(subject, summary);
+                    }
+                }
+                boolean correct = reader.fieldEquals(correctColumn, YES);
+                summary.numRounds++;
+                if (correct) {
+                    summary.numCorrect++;
+                }
+                double responseTime = reader.parseDouble(responseTimeColumn);
+                if (!Double.isNaN(responseTime)) {
+                    summary.numResponseTimes++;
+                    summary.totalResponseTime += responseTime;
+                }
+                for (int i = 0; i < DIFFICULTIES.length; i++) {
+                    if (reader.fieldEquals(difficultyColumn, DIFFICULTY_BYTES[i])) {
+                        summary.roundsByDifficulty[i]++;
+                        if (correct) {
+                            summary.correctByDifficulty[i]++;
+                        }
+                        break;
+                    }
+                }
+            }
+            return result;
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Write every row of every file to the merged file.
+     * @return Number of rows written.
+     */
+    private long writeMerged(List<FileResult> results, List<String> columns) throws IOException {
+        Path mergedPath = this.outputFolder.resolve(MERGED_FILE);
+        long numRows = 0;
+        try (FileChannel out = FileChannel.open(mergedPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.wrap((String.join(DataWriter.DELIMITER, columns) + "\n")
+                    .getBytes(StandardCharsets.ISO_8859_1)));
+            ByteBuffer rowBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            for (FileResult result : results) {
+                if (result.numRows == 0) {
+                    continue;
+                }
+                if (result.columns.equals(columns)) {
+                    try (FileChannel in = FileChannel.open(result.path, StandardOpenOption.READ)) {
+                        long position = result.headerEnd;
+                        long size = in.size();
+                        while (position < size) {
+                            position += in.transferTo(position, size - position, out);
+                        }
+                        if (size > result.headerEnd && !endsWithNewline(in, size)) {
+                            out.write(ByteBuffer.wrap(new byte[] {'\n'}));
+                        }
+                    }
+                } else {
+                    this.writeRearranged(result, columns, out, rowBuffer);
+                }
+                numRows += result.numRows;
+            }
+        }
+        return numRows;
+    }
+    
+    private static boolean endsWithNewline(FileChannel channel, long size) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, size - 1);
+        return last.get(0) == '\n';
+    }
+    
+    /**
+     * Write the rows of a file whose columns differ from the merged columns,
+     * moving every field to its merged column.
+     */
+    private void writeRearranged(FileResult result, List<String> columns, 
+            FileChannel out, ByteBuffer rowBuffer) throws IOException {
+        int[] sourceColumns = new int[columns.size()];
+        for (int i = 0; i < sourceColumns.length; i++) {
+            sourceColumns[i] = result.columns.indexOf(columns.get(i));
+        }
+        MappedByteBuffer mapped = MappedCsvReader.map(result.path);
+        MappedCsvReader reader = new MappedCsvReader(mapped);
+        reader.nextRow();
+        while (reader.nextRow()) {
+            int rowLength = reader.getRowEnd() - reader.getRowStart() + sourceColumns.length + 1;
+            if (rowBuffer.remaining() < rowLength) {
+                flush(rowBuffer, out);
+            }
+            if (rowBuffer.remaining() < rowLength) {
+                throw new IOException("Row too long in " + result.path);
+            }
+            for (int i = 0; i < sourceColumns.length; i++) {
+                if (i > 0) {
+                    rowBuffer.put((byte) ',');
+                }
+                int source = sourceColumns[i];
+                if (source >= 0 && source < reader.getNumFields()) {
+                    for (int b = reader.getFieldStart(source); b < reader.getFieldEnd(source); b++) {
+                        rowBuffer.put(mapped.get(b));
+                    }
+                }
+            }
+            rowBuffer.put((byte) '\n');
+        }
+        flush(rowBuffer, out);
+    }
+    
+    private static void flush(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    /**
+     * Write one row per subject.
+     */
+    private void writeSummaries(TreeMap<Long, SubjectSummary> subjects) throws IOException {
+        Path summaryPath = this.outputFolder.resolve(SUMMARY_FILE);
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(summaryPath, StandardCharsets.ISO_8859_1))) {
+            StringBuilder header = new StringBuilder();
+            header.append(DataWriter.SUBJECT_ID).append(DataWriter.DELIMITER)
+                .append("Files").append(DataWriter.DELIMITER)
+                .append("Rounds").append(DataWriter.DELIMITER)
+                .append(DataWriter.ACCURACY).append(DataWriter.DELIMITER)
+                .append("Mean Response Time");
+            for (String difficulty : DIFFICULTIES) {
+                header.append(DataWriter.DELIMITER).append(difficulty).append(" Rounds")
+                    .append(DataWriter.DELIMITER).append(difficulty).append(" Accuracy");
+            }
+            writer.println(header);
+            for (Map.Entry<Long, SubjectSummary> entry : subjects.entrySet()) {
+                SubjectSummary summary = entry.getValue();
+                StringBuilder row = new StringBuilder();
+                row.append(entry.getKey()).append(DataWriter.DELIMITER)
+                    .append(summary.numFiles).append(DataWriter.DELIMITER)
+                    .append(summary.numRounds).append(DataWriter.DELIMITER)
+                    .append(ratio(summary.numCorrect, summary.numRounds)).append(DataWriter.DELIMITER)
+                    .append(summary.totalResponseTime / summary.numResponseTimes);
+                for (int i = 0; i < DIFFICULTIES.length; i++) {
+                    row.append(DataWriter.DELIMITER).append(summary.roundsByDifficulty[i])
+                        .append(DataWriter.DELIMITER)
+                        .append(ratio(summary.correctByDifficulty[i], summary.roundsByDifficulty[i]));
+                }
+                writer.println(row);
+            }
+        }
+    }
+    
+    private static double ratio(long numerator, long denominator) {
+        return denominator == 0 ? Double.NaN : (double) numerator / denominator;
+    }
+    
+    /**
+     * Run the aggregator.
+     * @param args Results folder and output folder, both results_dots by default.
+     */
+    public static void main(String[] args) {
+        Path resultsFolder = Paths.get(args.length > 0 ? args[0] : DataWriter.RESULTS_FOLDER);
+        Path outputFolder = args.length > 1 ? Paths.get(args[1]) : resultsFolder;
+        try {
+            new ResultsAggregator(resultsFolder, outputFolder).run();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package tools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import controller.DataWriter;
+import store.PagedSessionStore;
+import util.Checksums;
+
+/**
+ * Checks every results file and session store under a results folder for corruption.
+ * 
+ * Usage: ResultsVerifier [results folder]
+ * 
+ * The folder defaults to results_dots. Files are memory mapped and checked in
+ * parallel. Every row of a results_<id>.csv must have as many fields as the
+ * header, end in a line break, match its CRC32C and continue its session's
+ * hash chain (see Checksums). Rows written before checksums were added, which
+ * have two fields fewer, are skipped. Session stores are checked with
+ * PagedSessionStore.verify(). For every file the first bad offset is reported,
+ * and the exit status is 1 if any file is bad.
+ */
+public class ResultsVerifier {
+    
+    /** Results files written by DataWriter. */
+    private static final Pattern RESULTS_FILE = Pattern.compile("results_\\d+\\.csv");
+    
+    /** Outcome of checking one file. */
+    static final class Report {
+        final Path path;
+        final long size;
+        long numRows;
+        long numUnchecked;
+        long badOffset = -1;
+        String reason;
+        
+        Report(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+        
+        void fail(long offset, String reason) {
+            this.badOffset = offset;
+            this.reason = reason;
+        }
+        
+        @Override
+        public String toString() {
+            if (this.badOffset < 0) {
+                return "OK   " + this.path + " (" + this.numRows + " rows"
+                        + (this.numUnchecked > 0 ? ", " + this.numUnchecked + " without checksums" : "") + ")";
+            }
+            return "BAD  " + this.path + " at offset " + this.badOffset + ": " + this.reason;
+        }
+    }
+    
+    /** Disable constructing of an object. */
+    private ResultsVerifier() {
+        
+    }
+    
+    /**
+     * Check a results file.
+     * @param path The file.
+     * @return The outcome.
+     */
+    static Report verifyResults(Path path) {
+        Report report;
+        try {
+            MappedByteBuffer mapped = MappedCsvReader.map(path);
+            report = new Report(path, mapped.limit());
+            MappedCsvReader reader = new MappedCsvReader(mapped);
+            if (!reader.nextRow()) {
+                return report;
+            }
+            int headerFields = reader.getNumFields();
+            boolean checksummedHeader = headerFields >= 2
+                    && reader.getString(headerFields - 2).equals(DataWriter.CRC32C)
+                    && reader.getString(headerFields - 1).equals(DataWriter.SESSION_HASH);
+            int checksummedFields = checksummedHeader ? headerFields : headerFields + 2;
+            
+            ByteBuffer row = mapped.duplicate();
+            CRC32C crc = new CRC32C();
+            int previousHash = Checksums.SESSION_SEED;
+            while (reader.nextRow()) {
+                int rowStart = reader.getRowStart();
+                if (mapped.get(reader.getRowEnd() - 1) != '\n') {
+                    report.fail(rowStart, "row " + (report.numRows + 1) + " is not terminated (torn write)");
+                    return report;
+                }
+                int numFields = reader.getNumFields();
+                if (numFields != checksummedFields) {
+                    if (!checksummedHeader && numFields == headerFields) {
+                        report.numRows++;
+                        report.numUnchecked++;
+                        continue;
+                    }
+                    report.fail(rowStart, "row " + (report.numRows + 1) + " has " + numFields 
+                            + " fields instead of " + checksummedFields);
+                    return report;
+                }
+                int crcField = numFields - 2;
+                row.limit(reader.getFieldStart(crcField) - 1);
+                row.position(rowStart);
+                int actualCrc = Checksums.crc(crc, row);
+                long writtenCrc = Checksums.parseHex(mapped, reader.getFieldStart(crcField), reader.getFieldEnd(crcField));
+                long writtenHash = Checksums.parseHex(mapped, reader.getFieldStart(crcField + 1), reader.getFieldEnd(crcField + 1));
+                if (writtenCrc != (actualCrc & 0xffffffffL)) {
+                    report.fail(rowStart, "row " + (report.numRows + 1) + " does not match its CRC32C");
+                    return report;
+                }
+                if (writtenHash == (Checksums.chain(previousHash, actualCrc) & 0xffffffffL)) {
+                    previousHash = (int) writtenHash;
+                } else if (writtenHash == (Checksums.chain(Checksums.SESSION_SEED, actualCrc) & 0xffffffffL)) {
+                    previousHash = (int) writtenHash;
+                } else {
+                    report.fail(rowStart, "row " + (report.numRows + 1) 
+                            + " breaks the session hash chain (a row is missing, repeated or out of order)");
+                    return report;
+                }
+                report.numRows++;
+            }
+        } catch (IOException ex) {
+            report = new Report(path, 0);
+            report.fail(0, ex.toString());
+        }
+        return report;
+    }
+    
+    /**
+     * Check a session store.
+     * @param path The store.
+     * @return The outcome.
+     */
+    static Report verifyStore(Path path) {
+        Report report;
+        try {
+            report = new Report(path, Files.size(path));
+            long badOffset = PagedSessionStore.verify(path.toFile());
+            if (badOffset >= 0) {
+                report.fail(badOffset, "corrupt page or record");
+            }
+        } catch (IOException ex) {
+            report = new Report(path, 0);
+            report.fail(0, ex.toString());
+        }
+        return report;
+    }
+    
+    /**
+     * Check every file under a results folder.
+     * @param resultsFolder The folder.
+     * @return The outcome of every file, in path order.
+     * @throws IOException If the folder can't be walked.
+     */
+    public static List<Report> verify(Path resultsFolder) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(resultsFolder)) {
+            files = walk.filter(path -> {
+                String name = path.getFileName().toString();
+                return RESULTS_FILE.matcher(name).matches() || name.equals(DataWriter.STORE_FILE);
+            }).sorted().collect(Collectors.toList());
+        }
+        return files.parallelStream()
+                .map(path -> path.getFileName().toString().equals(DataWriter.STORE_FILE) 
+                        ? verifyStore(path) : verifyResults(path))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Run the verifier.
+     * @param args The results folder, results_dots by default.
+     */
+    public static void main(String[] args) {
+        Path resultsFolder = Paths.get(args.length > 0 ? args[0] : DataWriter.RESULTS_FOLDER);
+        long start = System.nanoTime();
+        List<Report> reports;
+        try {
+            reports = verify(resultsFolder);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            System.exit(2);
+            return;
+        }
+        long numBad = 0;
+        long numBytes = 0;
+        for (Report report : reports) {
+            if (report.badOffset >= 0) {
+                numBad++;
+                System.out.println(report);
+            }
+            numBytes += report.size;
+        }
+        double seconds = (System.nanoTime() - start) / 1000000000.0;
+        System.out.println(String.format("Checked %d files (%.1f MB) in %.2f s: %.0f MB/s, %d bad",
+                reports.size(), numBytes / 1e6, seconds, numBytes / 1e6 / seconds, numBad));
+        if (numBad > 0) {
+            System.exit(1);
+        }
+    }
+}
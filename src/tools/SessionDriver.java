@@ -0,0 +1,240 @@
+package tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import controller.Clock;
+import controller.DotsGameController;
+import controller.GameController;
+import controller.ResponseSource;
+import controller.VirtualClock;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.media.AudioClip;
+import model.GameLogic;
+import model.Player;
+import view.GameView;
+import view.GameViewModel;
+
+/**
+ * Runs whole sessions (practice plus NUM_ROUNDS rounds) through the real
+ * DotsGameController without a screen, on a VirtualClock, so a session that
+ * takes a subject minutes runs in milliseconds. Every round goes through pair
+ * generation, painting on canvases that are never shown, scoring and the
+ * results file.
+ *
+ * A simulated subject clicks through the screens and answers every round after
+ * a random response time, picking the side with more dots most of the time.
+ * Time only moves through VirtualClock.advance, either to the subject's next
+ * response or to the next thing the controller scheduled.
+ *
+ * Sessions are written to one results folder under the system temporary
+ * folder, a subject ID each. Prints the rounds and real time of every session.
+ * The number of sessions and the seed can be set with -Dsession.count and
+ * -Dsession.seed. Config properties can be overridden the same way, e.g.
+ * -Dsession.store.on=True. The warm up and the experimenter console need a
+ * screen and are always off, and the responses always come from the simulated subject.
+ * Run with: java -cp bin tools.SessionDriver
+ */
+public final class SessionDriver {
+
+    static final int SESSIONS = Integer.getInteger("session.count", 20);
+    static final long SEED = Long.getLong("session.seed", 42L);
+
+    /** Shortest and longest response time of the simulated subject, in milliseconds. */
+    static final int MIN_RESPONSE_TIME = 350;
+    static final int MAX_RESPONSE_TIME = 1200;
+
+    /** Chance that the simulated subject picks the side with more dots. */
+    static final double ACCURACY = 0.8;
+
+    /** Time in milliseconds the simulated subject takes to click through a screen. */
+    static final int CLICK_TIME = 1500;
+
+    /** Size of the canvases, the same as the default canvas of DotSet. */
+    static final int CANVAS_WIDTH = 576;
+    static final int CANVAS_HEIGHT = 756;
+
+    /** First subject ID; each session takes the next one. */
+    static final int FIRST_SUBJECT_ID = 1000;
+
+    private final VirtualClock clock = new VirtualClock();
+    private final HeadlessView view = new HeadlessView(this.clock);
+    private final DotsGameController controller;
+    private final Random random;
+
+    private SessionDriver(File resultsRoot, Random random) {
+        this.random = random;
+        this.controller = new DotsGameController(this.view, this.clock, resultsRoot);
+        this.view.controller = this.controller;
+    }
+
+    /**
+     * Run the sessions.
+     * @param args Not used.
+     * @throws IOException if the results folder can't be made.
+     */
+    public static void main(String[] args) throws IOException {
+        Logger.getLogger("mylog").setLevel(Level.WARNING);
+        System.setProperty("warm.up.on", "False");
+        System.setProperty("experimenter.console.on", "False");
+        System.setProperty("response.source", "keyboard");
+        File resultsRoot = Files.createTempDirectory("dots-sessions").toFile();
+        Random random = new Random(SEED);
+
+        long total = 0;
+        long slowest = 0;
+        for (int i = 0; i < SESSIONS; i++) {
+            long start = System.nanoTime();
+            SessionDriver session = new SessionDriver(resultsRoot, random);
+            int rounds = session.run(FIRST_SUBJECT_ID + i);
+            long elapsed = System.nanoTime() - start;
+            total += elapsed;
+            slowest = Math.max(slowest, elapsed);
+            System.out.println(String.format(Locale.ROOT, "Session %3d: %3d rounds, %8.1f ms (%.1f min of session time)",
+                    i + 1, rounds, elapsed / 1000000.0, session.clock.nanoTime() / 60000000000.0));
+        }
+        System.out.println(String.format(Locale.ROOT, "%d sessions: mean %.1f ms, slowest %.1f ms",
+                SESSIONS, total / 1000000.0 / SESSIONS, slowest / 1000000.0));
+        System.out.println("Results in " + resultsRoot);
+    }
+
+    /**
+     * Log in and answer every round until the finish screen is set.
+     * @param subjectId ID of the simulated subject, which must not have results yet.
+     * @return Number of responses given, practice included.
+     */
+    private int run(int subjectId) {
+        if (!this.controller.logIn(subjectId, Player.Gender.FEMALE, 18 + this.random.nextInt(50))) {
+            throw new IllegalStateException("Subject " + subjectId + " already has results");
+        }
+        int responses = 0;
+        while (!this.view.finished) {
+            if (this.view.listener != null && this.controller.isWaitingForResponse()) {
+                this.clock.advance(MIN_RESPONSE_TIME
+                        + this.random.nextInt(MAX_RESPONSE_TIME - MIN_RESPONSE_TIME + 1));
+                boolean leftCorrect = GameLogic.checkAnswerCorrect(true, this.controller.getCurrentDotsPair());
+                boolean leftPicked = this.random.nextDouble() < ACCURACY ? leftCorrect : !leftCorrect;
+                this.view.listener.respond(leftPicked, this.clock.nanoTime());
+                responses++;
+            } else if (!this.clock.runNext()) {
+                throw new IllegalStateException("Nothing left to run after " + responses + " responses");
+            }
+        }
+        int expected = GameController.NUM_PRACTICE_ROUNDS + GameController.NUM_ROUNDS;
+        if (responses != expected) {
+            throw new IllegalStateException("Session took " + responses + " responses, not " + expected);
+        }
+        return responses;
+    }
+
+    /**
+     * A view without a screen. The dots are painted on canvases that are never
+     * shown, nothing is played, and the subject's clicks on the instructions and
+     * practice complete screens are scheduled on the clock.
+     */
+    static final class HeadlessView implements GameView, ResponseSource {
+
+        private final VirtualClock clock;
+        private final Canvas leftOption = new Canvas(CANVAS_WIDTH, CANVAS_HEIGHT);
+        private final Canvas rightOption = new Canvas(CANVAS_WIDTH, CANVAS_HEIGHT);
+        private final GameViewModel viewModel = new GameViewModel();
+
+        private DotsGameController controller;
+
+        /** Where the simulated key presses go, or null while responses are not taken. */
+        private ResponseSource.Listener listener;
+
+        /** Whether the finish screen has been set. */
+        private boolean finished;
+
+        HeadlessView(VirtualClock clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public void setInstructionsScreen() {
+            this.clock.schedule(CLICK_TIME, () -> this.controller.startPractice());
+        }
+
+        @Override
+        public void setGameScreen() {
+            this.controller.prepareFirstRound();
+            this.controller.setGameHandlers();
+        }
+
+        @Override
+        public void setPracticeCompleteScreen() {
+            this.clock.schedule(CLICK_TIME, () -> this.controller.startAssessment());
+        }
+
+        @Override
+        public void setFinishScreen(int points, int level) {
+            this.finished = true;
+        }
+
+        @Override
+        public Canvas getLeftOption() {
+            return this.leftOption;
+        }
+
+        @Override
+        public Canvas getRightOption() {
+            return this.rightOption;
+        }
+
+        @Override
+        public void setGetReadyProgress(double progress) {
+
+        }
+
+        @Override
+        public void hideGetReady() {
+
+        }
+
+        @Override
+        public void hidePractice() {
+
+        }
+
+        @Override
+        public GameViewModel getViewModel() {
+            return this.viewModel;
+        }
+
+        @Override
+        public ResponseSource makeKeyResponseSource(Clock clock) {
+            return this;
+        }
+
+        @Override
+        public void playSound(String soundFile, double rate) {
+
+        }
+
+        @Override
+        public void playClip(AudioClip clip) {
+
+        }
+
+        @Override
+        public void preloadImages() {
+
+        }
+
+        @Override
+        public void start(ResponseSource.Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void stop() {
+            this.listener = null;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package tools;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import controller.DataWriter;
+import store.PagedSessionStore;
+import store.TrialRecord;
+
+/**
+ * Exports a session store to CSV, either every round or one subject's.
+ * 
+ * Usage: StoreExport [store file] [output file] [subject ID]
+ * 
+ * The store defaults to results_dots/sessions.store and the output to
+ * results_dots/sessions_export.csv.
+ */
+public class StoreExport {
+    
+    /** Disable constructing of an object. */
+    private StoreExport() {
+        
+    }
+    
+    /**
+     * Run the export.
+     * @param args Store file, output file and subject ID, all optional.
+     */
+    public static void main(String[] args) {
+        File storeFile = new File(args.length > 0 ? args[0] 
+                : DataWriter.RESULTS_FOLDER + File.separator + DataWriter.STORE_FILE);
+        File outputFile = new File(args.length > 1 ? args[1] 
+                : DataWriter.RESULTS_FOLDER + File.separator + "sessions_export.csv");
+        long start = System.nanoTime();
+        try (PagedSessionStore store = new PagedSessionStore(storeFile);
+                Writer writer = new BufferedWriter(Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.ISO_8859_1))) {
+            int numRows;
+            if (args.length > 2) {
+                numRows = 0;
+                writer.write(TrialRecord.COLUMN_NAMES + "\n");
+                for (TrialRecord record : store.readSubject(Integer.parseInt(args[2]))) {
+                    writer.write(record.toCsvRow());
+                    writer.write("\n");
+                    numRows++;
+                }
+            } else {
+                store.exportCsv(writer);
+                numRows = store.size();
+            }
+            System.out.println(String.format("Exported %d rows to %s in %.2f s",
+                    numRows, outputFile, (System.nanoTime() - start) / 1000000000.0));
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Checksums of the rows DataWriter writes, shared with the tools that verify them.
+ * 
+ * Every row carries the CRC32C of its text and a session hash. The session hash
+ * of a session's first row is chain(SESSION_SEED, crc); every following row's is
+ * chain(previous session hash, crc), so a missing, repeated or reordered row
+ * breaks the chain even if the rows themselves are intact. Both are written as
+ * eight lowercase hex digits.
+ * 
+ * CRC32C is computed with the JDK's intrinsic, which uses the CPU's CRC
+ * instructions where there are any.
+ */
+public final class Checksums {
+    
+    /** Session hash before a session's first row. */
+    public static final int SESSION_SEED = 0;
+    
+    /** Number of hex digits of a checksum. */
+    public static final int HEX_LENGTH = 8;
+    
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    
+    /** Disable constructing of an object. */
+    private Checksums() {
+        
+    }
+    
+    /**
+     * CRC32C of text, as ISO-8859-1 bytes.
+     * @param text The text.
+     * @return The checksum.
+     */
+    public static int crc(String text) {
+        CRC32C crc = new CRC32C();
+        crc.update(text.getBytes(StandardCharsets.ISO_8859_1));
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * CRC32C of the bytes between a buffer's position and limit. The position is moved to the limit.
+     * @param crc A checksum to reuse; it is reset first.
+     * @param buffer The bytes.
+     * @return The checksum.
+     */
+    public static int crc(CRC32C crc, ByteBuffer buffer) {
+        crc.reset();
+        crc.update(buffer);
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * Next session hash.
+     * @param previousHash Session hash of the previous row, or SESSION_SEED.
+     * @param rowCrc CRC32C of the row.
+     * @return The row's session hash.
+     */
+    public static int chain(int previousHash, int rowCrc) {
+        CRC32C crc = new CRC32C();
+        crc.update(previousHash >>> 24);
+        crc.update(previousHash >>> 16);
+        crc.update(previousHash >>> 8);
+        crc.update(previousHash);
+        crc.update(rowCrc >>> 24);
+        crc.update(rowCrc >>> 16);
+        crc.update(rowCrc >>> 8);
+        crc.update(rowCrc);
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * @param value A checksum.
+     * @return The checksum as eight lowercase hex digits.
+     */
+    public static String toHex(int value) {
+        char[] digits = new char[HEX_LENGTH];
+        for (int i = HEX_LENGTH - 1; i >= 0; i--) {
+            digits[i] = HEX_DIGITS[value & 0xf];
+            value >>>= 4;
+        }
+        return new String(digits);
+    }
+    
+    /**
+     * Parse eight hex digits from a buffer.
+     * @param buffer The buffer.
+     * @param start Index of the first digit.
+     * @param end Index just past the last digit.
+     * @return The value, or -1L if the digits aren't eight hex digits.
+     */
+    public static long parseHex(ByteBuffer buffer, int start, int end) {
+        if (end - start != HEX_LENGTH) {
+            return -1L;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int b = buffer.get(i);
+            int digit;
+            if (b >= '0' && b <= '9') {
+                digit = b - '0';
+            } else if (b >= 'a' && b <= 'f') {
+                digit = b - 'a' + 10;
+            } else {
+                return -1L;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,267 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured log of what happens in every round, cheap enough for the JavaFX
+ * Application Thread.
+ *
+ * Every event has the same fixed layout: a Type, a System.nanoTime() time, two
+ * ints and two longs. log() only copies those into a preallocated ring, so it
+ * takes a few nanoseconds and never allocates, formats or does I/O. A drainer
+ * thread formats the events and appends them to a log file, which is rotated
+ * once it reaches MAX_FILE_SIZE, keeping MAX_FILES old files.
+ *
+ * Only one thread may log to an EventLog. If the ring fills up, new events are
+ * dropped and counted, and the count is written to the file.
+ */
+public class EventLog {
+
+    /**
+     * Kinds of event, with the names of their fields. Fields without a name are not written.
+     */
+    public enum Type {
+        /** A response was recorded: round, -, response time (ns), onset (ns). */
+        RESPONSE_TIME("round", null, "responseTime", "onset"),
+        /** A row was written to a results file: subject ID, round, bytes, write time (ns). */
+        TRIAL_WRITTEN("subject", "round", "bytes", "writeTime"),
+        /** A response time was an outlier for its condition: round, -, response time (ns), -. */
+        OUTLIER("round", null, "responseTime", null),
+        /** Events dropped because the ring was full: -, -, number dropped, -. */
+        DROPPED(null, null, "dropped", null);
+
+        private final String[] fieldNames;
+
+        private Type(String int0, String int1, String long0, String long1) {
+            this.fieldNames = new String[] {int0, int1, long0, long1};
+        }
+    }
+
+    /** Number of events the ring holds. Must be a power of two. */
+    static final int RING_SIZE = 8192;
+
+    /** Time in nanoseconds the drainer waits between drains. */
+    static final long DRAIN_INTERVAL = 100000000L;
+
+    /** Size in bytes at which the log file is rotated. */
+    static final long MAX_FILE_SIZE = 4L * 1024 * 1024;
+
+    /** Number of rotated files kept. */
+    static final int MAX_FILES = 5;
+
+    public static final String LOG_FOLDER = "logs";
+    public static final String LOG_FILE = "events.log";
+
+    private static EventLog defaultLog;
+
+    private static final Type[] TYPES = Type.values();
+
+    /** Number of longs each event takes in the ring: time, both ints, and the two longs. */
+    static final int EVENT_LONGS = 4;
+
+    /** Types of the events, indexed by sequence & (RING_SIZE - 1). */
+    private final byte[] types = new byte[RING_SIZE];
+    /** The rest of every event, EVENT_LONGS longs each, so one event shares a cache line with the next. */
+    private final long[] events = new long[RING_SIZE * EVENT_LONGS];
+
+    /** Number of events logged, written only by the logging thread. */
+    private final AtomicLong head = new AtomicLong();
+    /** Number of events drained, written only by the drainer. */
+    private final AtomicLong tail = new AtomicLong();
+    /** Last value of tail seen by the logging thread, so it rarely reads tail itself. */
+    private long cachedTail;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final File file;
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor. Starts the drainer.
+     * @param file The log file; rotated files get .1, .2 and so on added to the name.
+     */
+    public EventLog(File file) {
+        this.file = file;
+        this.drainer = new Thread(this::drain, "dots-event-log");
+        this.drainer.setDaemon(true);
+        this.drainer.setPriority(Thread.MIN_PRIORITY);
+        this.drainer.start();
+    }
+
+    /**
+     * The log shared by the whole game, in results_dots/logs, started on first use.
+     * @param resultsFolder Folder the logs folder goes in.
+     * @return The log.
+     */
+    public static synchronized EventLog getDefault(File resultsFolder) {
+        if (defaultLog == null) {
+            defaultLog = new EventLog(new File(new File(resultsFolder, LOG_FOLDER), LOG_FILE));
+        }
+        return defaultLog;
+    }
+
+    /**
+     * Log an event. Never blocks.
+     * @param type The kind of event.
+     * @param time Time in System.nanoTime() nanoseconds.
+     * @param int0 First int field.
+     * @param int1 Second int field.
+     * @param long0 First long field.
+     * @param long1 Second long field.
+     */
+    public void log(Type type, long time, int int0, int int1, long long0, long long1) {
+        long sequence = this.head.get();
+        if (sequence - this.cachedTail >= RING_SIZE) {
+            this.cachedTail = this.tail.get();
+            if (sequence - this.cachedTail >= RING_SIZE) {
+                this.dropped.incrementAndGet();
+                return;
+            }
+        }
+        int index = (int) (sequence & (RING_SIZE - 1));
+        int offset = index * EVENT_LONGS;
+        this.types[index] = (byte) type.ordinal();
+        this.events[offset] = time;
+        this.events[offset + 1] = ((long) int0 << 32) | (int1 & 0xFFFFFFFFL);
+        this.events[offset + 2] = long0;
+        this.events[offset + 3] = long1;
+        this.head.lazySet(sequence + 1);
+    }
+
+    /**
+     * Write every event as it comes in, until closed.
+     */
+    private void drain() {
+        Writer writer = null;
+        StringBuilder line = new StringBuilder(128);
+        long reportedDropped = 0;
+        try {
+            writer = this.open();
+            while (true) {
+                boolean stopping = !this.running;
+                long available = this.head.get();
+                long sequence = this.tail.get();
+                for (; sequence < available; sequence++) {
+                    int index = (int) (sequence & (RING_SIZE - 1));
+                    int offset = index * EVENT_LONGS;
+                    long ints = this.events[offset + 1];
+                    format(line, TYPES[this.types[index]], this.events[offset], (int) (ints >> 32),
+                            (int) ints, this.events[offset + 2], this.events[offset + 3]);
+                    writer.write(line.toString());
+                    this.tail.lazySet(sequence + 1);
+                }
+                long numDropped = this.dropped.get();
+                if (numDropped != reportedDropped) {
+                    format(line, Type.DROPPED, System.nanoTime(), 0, 0, numDropped - reportedDropped, 0);
+                    writer.write(line.toString());
+                    reportedDropped = numDropped;
+                }
+                writer.flush();
+                if (this.file.length() >= MAX_FILE_SIZE) {
+                    writer.close();
+                    this.rotate();
+                    writer = this.open();
+                }
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(DRAIN_INTERVAL);
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static void format(StringBuilder line, Type type, long time, int int0, int int1,
+            long long0, long long1) {
+        line.setLength(0);
+        line.append(time).append(',').append(type.name());
+        String[] names = type.fieldNames;
+        appendField(line, names[0], int0);
+        appendField(line, names[1], int1);
+        appendField(line, names[2], long0);
+        appendField(line, names[3], long1);
+        line.append('\n');
+    }
+
+    private static void appendField(StringBuilder line, String name, long value) {
+        if (name != null) {
+            line.append(',').append(name).append('=').append(value);
+        }
+    }
+
+    private Writer open() throws IOException {
+        if (this.file.getParentFile() != null) {
+            this.file.getParentFile().mkdirs();
+        }
+        return new BufferedWriter(Files.newBufferedWriter(this.file.toPath(), StandardCharsets.ISO_8859_1,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    /**
+     * Move events.log to events.log.1, events.log.1 to events.log.2 and so on,
+     * replacing the oldest.
+     */
+    private void rotate() throws IOException {
+        for (int i = MAX_FILES - 1; i >= 1; i--) {
+            File older = new File(this.file.getPath() + "." + i);
+            if (older.exists()) {
+                Files.move(older.toPath(), new File(this.file.getPath() + "." + (i + 1)).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(this.file.toPath(), new File(this.file.getPath() + ".1").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Write the events still in the ring and stop the drainer. If this is the
+     * shared log, the next getDefault() starts a new one.
+     */
+    public void close() {
+        synchronized (EventLog.class) {
+            if (defaultLog == this) {
+                defaultLog = null;
+            }
+        }
+        this.running = false;
+        LockSupport.unpark(this.drainer);
+        try {
+            this.drainer.join(1000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return True once close() was called; events logged after that are never written.
+     */
+    public boolean isClosed() {
+        return !this.running;
+    }
+
+    /**
+     * @return Number of events dropped because the ring was full.
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+}
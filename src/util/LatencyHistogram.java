@@ -0,0 +1,141 @@
+package util;
+
+/**
+ * Fixed-bucket histogram of durations in nanoseconds, in the style of HdrHistogram.
+ * 
+ * Values below SUB_BUCKET_COUNT are counted exactly. Above that, every power of two
+ * is split into SUB_BUCKET_COUNT / 2 linear buckets, so any recorded value is off by
+ * at most about 6%. All buckets are allocated up front; recording never allocates.
+ * 
+ * Not thread safe; meant to be recorded into from one thread.
+ */
+public class LatencyHistogram {
+    
+    /** Number of bits of precision kept for each value. */
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    
+    /** Largest value that gets its own bucket (about 18 minutes). Larger values share the last bucket. */
+    public static final long MAX_TRACKABLE_VALUE = (1L << 40) - 1;
+    
+    /** Counts for every bucket. */
+    private final long[] counts;
+    
+    /** Total number of values recorded. */
+    private long totalCount;
+    
+    /** Largest value recorded. */
+    private long maxValue;
+    
+    /** Smallest value recorded. */
+    private long minValue = Long.MAX_VALUE;
+    
+    /** Sum of every value recorded, for the mean. */
+    private long totalValue;
+    
+    public LatencyHistogram() {
+        this.counts = new long[bucketIndex(MAX_TRACKABLE_VALUE) + 1];
+    }
+    
+    /**
+     * Count one value.
+     * @param value duration in nanoseconds. Negative values are counted as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.counts[bucketIndex(Math.min(value, MAX_TRACKABLE_VALUE))]++;
+        this.totalCount++;
+        this.totalValue += value;
+        if (value > this.maxValue) {
+            this.maxValue = value;
+        }
+        if (value < this.minValue) {
+            this.minValue = value;
+        }
+    }
+    
+    /**
+     * Value at a given percentile, reported as the highest value of its bucket.
+     * @param percentile between 0 and 100.
+     * @return the value, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (this.totalCount == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(percentile / 100.0 * this.totalCount);
+        if (target < 1) {
+            target = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), this.maxValue);
+            }
+        }
+        return this.maxValue;
+    }
+    
+    /**
+     * Clear every count.
+     */
+    public void reset() {
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] = 0;
+        }
+        this.totalCount = 0;
+        this.totalValue = 0;
+        this.maxValue = 0;
+        this.minValue = Long.MAX_VALUE;
+    }
+    
+    /**
+     * Index of the bucket a value falls into.
+     * @param value a value between 0 and MAX_TRACKABLE_VALUE.
+     * @return the bucket index.
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - (SUB_BUCKET_BITS - 1);
+        int top = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (top - SUB_BUCKET_HALF_COUNT);
+    }
+    
+    /**
+     * Highest value that falls into a bucket.
+     * @param index the bucket index.
+     * @return the value.
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int shift = offset / SUB_BUCKET_HALF_COUNT + 1;
+        long top = offset % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+    
+    public long getTotalCount() {
+        return this.totalCount;
+    }
+    
+    public long getMaxValue() {
+        return this.maxValue;
+    }
+    
+    public long getMinValue() {
+        return this.totalCount == 0 ? 0 : this.minValue;
+    }
+    
+    public double getMean() {
+        return this.totalCount == 0 ? 0 : (double) this.totalValue / this.totalCount;
+    }
+}
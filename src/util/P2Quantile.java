@@ -0,0 +1,223 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Streaming estimate of a single quantile with the P-square algorithm
+ * (Jain and Chlamtac, 1985).
+ * 
+ * Until EXACT_LIMIT values have been seen they are all kept, sorted, and the
+ * quantile is interpolated exactly from them; with few values the markers
+ * have not moved far from where they started and would give the middle of
+ * the values whatever the quantile. After that only five markers are kept,
+ * placed on the kept values, and they are moved toward their ideal positions
+ * by piecewise-parabolic interpolation as values arrive.
+ * 
+ * Not thread safe; meant to be recorded into from one thread.
+ */
+public class P2Quantile {
+    
+    /** Number of markers. */
+    private static final int NUM_MARKERS = 5;
+    
+    /** Number of values kept and used exactly before switching to the markers. */
+    public static final int EXACT_LIMIT = 64;
+    
+    /** The quantile estimated, between 0 and 1. */
+    private final double quantile;
+    
+    /** Heights of the markers. */
+    private final double[] heights = new double[NUM_MARKERS];
+    
+    /** Actual positions of the markers (1-based). */
+    private final double[] positions = new double[NUM_MARKERS];
+    
+    /** Desired positions of the markers. */
+    private final double[] desired = new double[NUM_MARKERS];
+    
+    /** Increments of the desired positions for every new value. */
+    private final double[] increments = new double[NUM_MARKERS];
+    
+    /** The first EXACT_LIMIT values, sorted. */
+    private final double[] sorted = new double[EXACT_LIMIT];
+    
+    /** Room for the absolute deviations of the sorted values. */
+    private final double[] deviations = new double[EXACT_LIMIT];
+    
+    /** Number of values recorded. */
+    private long count;
+    
+    /**
+     * Constructor.
+     * @param quantile The quantile to estimate, between 0 and 1, e.g. 0.5 for the median.
+     */
+    public P2Quantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+        }
+        this.quantile = quantile;
+        this.increments[0] = 0;
+        this.increments[1] = quantile / 2;
+        this.increments[2] = quantile;
+        this.increments[3] = (1 + quantile) / 2;
+        this.increments[4] = 1;
+        this.reset();
+    }
+    
+    /**
+     * Forget every value.
+     */
+    public void reset() {
+        this.count = 0;
+    }
+    
+    /**
+     * Add a value.
+     * @param value The value.
+     */
+    public void record(double value) {
+        if (this.count < EXACT_LIMIT) {
+            int i = (int) this.count;
+            while (i > 0 && this.sorted[i - 1] > value) {
+                this.sorted[i] = this.sorted[i - 1];
+                i--;
+            }
+            this.sorted[i] = value;
+            this.count++;
+            return;
+        }
+        if (this.count == EXACT_LIMIT) {
+            this.placeMarkers();
+        }
+        this.count++;
+        
+        /** Find the cell of the value, extending the extremes if needed. */
+        int cell;
+        if (value < this.heights[0]) {
+            this.heights[0] = value;
+            cell = 0;
+        } else if (value >= this.heights[NUM_MARKERS - 1]) {
+            this.heights[NUM_MARKERS - 1] = value;
+            cell = NUM_MARKERS - 2;
+        } else {
+            cell = 0;
+            while (value >= this.heights[cell + 1]) {
+                cell++;
+            }
+        }
+        for (int i = cell + 1; i < NUM_MARKERS; i++) {
+            this.positions[i]++;
+        }
+        for (int i = 0; i < NUM_MARKERS; i++) {
+            this.desired[i] += this.increments[i];
+        }
+        
+        /** Move the middle markers toward their desired positions. */
+        for (int i = 1; i < NUM_MARKERS - 1; i++) {
+            double offset = this.desired[i] - this.positions[i];
+            if ((offset >= 1 && this.positions[i + 1] - this.positions[i] > 1)
+                    || (offset <= -1 && this.positions[i - 1] - this.positions[i] < -1)) {
+                int step = offset > 0 ? 1 : -1;
+                double height = this.parabolic(i, step);
+                if (this.heights[i - 1] < height && height < this.heights[i + 1]) {
+                    this.heights[i] = height;
+                } else {
+                    this.heights[i] = this.linear(i, step);
+                }
+                this.positions[i] += step;
+            }
+        }
+    }
+    
+    /**
+     * Place the markers on the kept values, each as close to its desired
+     * position as it can be while staying between its neighbours.
+     */
+    private void placeMarkers() {
+        int n = (int) this.count;
+        for (int i = 0; i < NUM_MARKERS; i++) {
+            this.desired[i] = 1 + (n - 1) * this.increments[i];
+            int position = (int) Math.round(this.desired[i]);
+            if (i > 0) {
+                position = Math.max(position, (int) this.positions[i - 1] + 1);
+            }
+            position = Math.min(position, n - (NUM_MARKERS - 1 - i));
+            this.positions[i] = position;
+            this.heights[i] = this.sorted[position - 1];
+        }
+    }
+    
+    /** Linearly interpolated quantile of the first n values of a sorted array. */
+    private static double interpolate(double[] values, int n, double quantile) {
+        double index = quantile * (n - 1);
+        int below = (int) index;
+        if (below >= n - 1) {
+            return values[n - 1];
+        }
+        return values[below] + (index - below) * (values[below + 1] - values[below]);
+    }
+    
+    /** Piecewise-parabolic prediction of a marker's height after moving it one step. */
+    private double parabolic(int i, int step) {
+        double n = this.positions[i];
+        double nBelow = this.positions[i - 1];
+        double nAbove = this.positions[i + 1];
+        return this.heights[i] + step / (nAbove - nBelow)
+                * ((n - nBelow + step) * (this.heights[i + 1] - this.heights[i]) / (nAbove - n)
+                + (nAbove - n - step) * (this.heights[i] - this.heights[i - 1]) / (n - nBelow));
+    }
+    
+    /** Linear prediction of a marker's height after moving it one step. */
+    private double linear(int i, int step) {
+        return this.heights[i] + step * (this.heights[i + step] - this.heights[i])
+                / (this.positions[i + step] - this.positions[i]);
+    }
+    
+    /**
+     * The current estimate.
+     * @return The estimated quantile, or NaN if nothing was recorded.
+     */
+    public double getValue() {
+        if (this.count == 0) {
+            return Double.NaN;
+        }
+        if (this.isExact()) {
+            return interpolate(this.sorted, (int) this.count, this.quantile);
+        }
+        return this.heights[2];
+    }
+    
+    /**
+     * The exact median absolute deviation of the values from their median,
+     * while the values are still kept.
+     * @return The median absolute deviation, or NaN if nothing was recorded
+     * or there are more than EXACT_LIMIT values.
+     */
+    public double getMedianAbsoluteDeviation() {
+        if (this.count == 0 || !this.isExact()) {
+            return Double.NaN;
+        }
+        int n = (int) this.count;
+        double median = interpolate(this.sorted, n, 0.5);
+        for (int i = 0; i < n; i++) {
+            this.deviations[i] = Math.abs(this.sorted[i] - median);
+        }
+        Arrays.sort(this.deviations, 0, n);
+        return interpolate(this.deviations, n, 0.5);
+    }
+    
+    /**
+     * @return True while every value is kept and the quantile is exact.
+     */
+    public boolean isExact() {
+        return this.count <= EXACT_LIMIT;
+    }
+    
+    public double getQuantile() {
+        return this.quantile;
+    }
+    
+    public long getCount() {
+        return this.count;
+    }
+}
@@ -0,0 +1,97 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Times the phases of starting up, from the launch of the JVM to the login
+ * screen accepting input, and logs them once the login screen is interactive.
+ *
+ * Phases are marked in order as they end; each is reported with its own
+ * duration and the time since the JVM was launched. Work that runs in the
+ * background while the subject types is marked as well, with the time it
+ * finished, so it can be seen whether it finished before the login.
+ */
+public final class StartupTimer {
+
+    private static Logger logger = Logger.getLogger("mylog");
+
+    /** Time in nanoseconds of the first use of this class, taken as the start of main. */
+    private static final long MAIN_START = System.nanoTime();
+
+    /** Time in milliseconds from the launch of the JVM to the start of main. */
+    private static final long JVM_UPTIME_AT_MAIN = ManagementFactory.getRuntimeMXBean().getUptime();
+
+    private static final List<String> names = new ArrayList<String>();
+    private static final List<Long> ends = new ArrayList<Long>();
+
+    /** Time in nanoseconds the last phase ended. */
+    private static long lastEnd = MAIN_START;
+
+    /** Whether the phases have been reported already. */
+    private static boolean reported;
+
+    /** Disable constructing of an object. */
+    private StartupTimer() {
+
+    }
+
+    /**
+     * End the phase from the launch of the JVM to main. Call first thing in main.
+     */
+    public static void start() {
+        mark("JVM launch to main");
+    }
+
+    /**
+     * End a phase. May be called from any thread.
+     * @param name Name of the phase that ended.
+     */
+    public static synchronized void mark(String name) {
+        names.add(name);
+        ends.add(System.nanoTime());
+    }
+
+    /**
+     * Log every phase so far, once. The last phase marked is taken as the
+     * moment the login screen became interactive.
+     */
+    public static synchronized void report() {
+        if (reported) {
+            return;
+        }
+        reported = true;
+        StringBuilder text = new StringBuilder("Startup phases:");
+        for (int i = 0; i < names.size(); i++) {
+            long end = ends.get(i);
+            long duration = i == 0 ? JVM_UPTIME_AT_MAIN : (end - lastEnd) / 1000000;
+            text.append("\n  ").append(names.get(i)).append(": ").append(duration)
+                .append(" ms (at ").append(sinceLaunch(end)).append(" ms)");
+            lastEnd = end;
+        }
+        logger.info(text.toString());
+    }
+
+    /**
+     * Log a phase that ran in the background and has just finished.
+     * @param name Name of the phase.
+     * @param startNanos Time in nanoseconds the phase started.
+     */
+    public static synchronized void reportBackground(String name, long startNanos) {
+        long end = System.nanoTime();
+        logger.info("Startup background phase " + name + ": " + (end - startNanos) / 1000000
+                + " ms (done at " + sinceLaunch(end) + " ms"
+                + (reported ? ", after the login screen was interactive)" : ")"));
+    }
+
+    /**
+     * Time in milliseconds from the launch of the JVM.
+     * @param nanos A time in nanoseconds.
+     * @return the time since launch.
+     */
+    private static long sinceLaunch(long nanos) {
+        return JVM_UPTIME_AT_MAIN + (nanos - MAIN_START) / 1000000;
+    }
+}
@@ -13,6 +13,7 @@ public class Strings {
     public static final String SUB_ID_FEEDBACK_SP = "Tienes que entrar un numero.";
     public static final String GENDER_FEEDBACK_SP = "Este es necesaria";
     public static final String AGE_FEEDBACK_SP = "Tienes que entrar un numero.";
+    public static final String DUPLICATE_ID_FEEDBACK_SP = "Este identificador ya tiene resultados.\nPresiona \"Inicio\" otra vez para continuar.";
     public static final String MALE_SP = "Masculino";
     public static final String FEMALE_SP = "Femenino";
     
@@ -0,0 +1,215 @@
+package view;
+
+import java.util.List;
+import java.util.logging.Logger;
+
+import controller.DotsGameController;
+import controller.GameState;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.stage.Screen;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import model.DotSet;
+import model.DotsPair;
+import model.TrialHistory;
+
+/**
+ * Window for the experimenter on a second screen, showing the round, accuracy by
+ * difficulty, a sparkline of recent response times, timing violations and a
+ * thumbnail of the current pair.
+ *
+ * The console polls the controller at a fixed rate rather than being told about
+ * every round, and only redraws what changed. It never redraws while the dots are
+ * on the participant's screen, so its rendering never lands in a stimulus frame.
+ *
+ * Classes Related to:
+ *  -DotsGameController.java
+ *      -Creates the console and is where it reads the session from.
+ *  -TrialHistory.java (model)
+ *      -Source of the accuracy by difficulty and the response times.
+ */
+public class ExperimenterConsole {
+
+    private static Logger logger = Logger.getLogger("mylog");
+
+    /** Time in milliseconds between updates. */
+    static final int UPDATE_INTERVAL = 250;
+
+    /** Number of rounds in the sparkline. */
+    static final int SPARKLINE_ROUNDS = 50;
+
+    static final int SPARKLINE_WIDTH = 400;
+    static final int SPARKLINE_HEIGHT = 80;
+    static final double THUMBNAIL_SCALE = 0.2;
+
+    static final String[] DIFFICULTY_NAMES = {"Easy", "Medium", "Hard", "Other"};
+
+    private final DotsGameController controller;
+    private final Stage stage;
+    private final Timeline updater;
+
+    private final Label round = new Label();
+    private final Label[] accuracies = new Label[TrialHistory.NUM_DIFFICULTIES];
+    private final Label violations = new Label();
+    private final Canvas sparkline = new Canvas(SPARKLINE_WIDTH, SPARKLINE_HEIGHT);
+    private final Canvas leftThumbnail;
+    private final Canvas rightThumbnail;
+
+    /** What was last drawn, to skip updates when nothing changed. */
+    private TrialHistory shownHistory;
+    private int shownRecorded = -1;
+    private DotsPair shownPair;
+    private int shownGeneration;
+    private long shownViolations = -1;
+
+    /**
+     * Make the console on the first screen that is not the primary one.
+     * @param controller Controller of the session to show.
+     * @return The console, or null if there is only one screen.
+     */
+    public static ExperimenterConsole openOnSecondScreen(DotsGameController controller) {
+        List<Screen> screens = Screen.getScreens();
+        for (Screen screen : screens) {
+            if (!screen.equals(Screen.getPrimary())) {
+                ExperimenterConsole console = new ExperimenterConsole(controller, screen.getVisualBounds());
+                console.show();
+                return console;
+            }
+        }
+        logger.warning("No second screen for the experimenter console");
+        return null;
+    }
+
+    private ExperimenterConsole(DotsGameController controller, Rectangle2D bounds) {
+        this.controller = controller;
+        this.leftThumbnail = new Canvas(SetUp.OPTION_WIDTH * THUMBNAIL_SCALE, SetUp.OPTION_HEIGHT * THUMBNAIL_SCALE);
+        this.rightThumbnail = new Canvas(SetUp.OPTION_WIDTH * THUMBNAIL_SCALE, SetUp.OPTION_HEIGHT * THUMBNAIL_SCALE);
+
+        this.round.setFont(new Font("Tahoma", 28));
+        HBox accuracyBox = new HBox(20);
+        for (int i = 0; i < this.accuracies.length; i++) {
+            this.accuracies[i] = new Label();
+            this.accuracies[i].setFont(new Font("Tahoma", 16));
+            accuracyBox.getChildren().add(this.accuracies[i]);
+        }
+        this.violations.setFont(new Font("Tahoma", 16));
+        HBox thumbnails = new HBox(10, this.leftThumbnail, this.rightThumbnail);
+        VBox layout = new VBox(12, this.round, accuracyBox, new Label("Response times"),
+                this.sparkline, this.violations, thumbnails);
+        layout.setPadding(new Insets(20));
+
+        this.stage = new Stage();
+        this.stage.setTitle("Experimenter Console");
+        this.stage.setScene(new Scene(layout));
+        this.stage.setX(bounds.getMinX() + 40);
+        this.stage.setY(bounds.getMinY() + 40);
+
+        this.updater = new Timeline(new KeyFrame(Duration.millis(UPDATE_INTERVAL), e -> this.update()));
+        this.updater.setCycleCount(Animation.INDEFINITE);
+    }
+
+    /**
+     * Show the console and start updating it.
+     */
+    public void show() {
+        this.update();
+        this.stage.show();
+        this.updater.play();
+    }
+
+    /**
+     * Stop updating and close the console.
+     */
+    public void close() {
+        this.updater.stop();
+        this.stage.close();
+    }
+
+    /**
+     * Redraw whatever changed since the last update, unless the dots are showing.
+     */
+    private void update() {
+        if (this.controller.getStateMachine().get().getGameState() == GameState.WAITING_FOR_RESPONSE_VISIBLE) {
+            return;
+        }
+        TrialHistory history = this.controller.getThePlayer().getHistory();
+        if (history != this.shownHistory || history.getNumRecorded() != this.shownRecorded) {
+            this.shownHistory = history;
+            this.shownRecorded = history.getNumRecorded();
+            this.updateHistory(history);
+        }
+        long numViolations = this.controller.getMonitor().getTimingViolations();
+        if (numViolations != this.shownViolations) {
+            this.shownViolations = numViolations;
+            this.violations.setText("Timing violations: " + numViolations);
+        }
+        DotsPair pair = this.controller.getCurrentDotsPair();
+        if (pair != this.shownPair || (pair != null && pair.getGeneration() != this.shownGeneration)) {
+            this.shownPair = pair;
+            this.shownGeneration = pair == null ? 0 : pair.getGeneration();
+            drawThumbnail(this.leftThumbnail, pair == null ? null : pair.getDotSetOne());
+            drawThumbnail(this.rightThumbnail, pair == null ? null : pair.getDotSetTwo());
+        }
+    }
+
+    private void updateHistory(TrialHistory history) {
+        this.round.setText("Round " + history.getNumRecorded());
+        for (int i = 0; i < this.accuracies.length; i++) {
+            int count = history.getCount(i);
+            this.accuracies[i].setText(DIFFICULTY_NAMES[i] + ": "
+                    + (count == 0 ? "-" : Math.round(history.getAccuracy(i) * 100) + "% of " + count));
+        }
+
+        GraphicsContext gc = this.sparkline.getGraphicsContext2D();
+        gc.clearRect(0, 0, SPARKLINE_WIDTH, SPARKLINE_HEIGHT);
+        int size = history.size();
+        int first = Math.max(0, size - SPARKLINE_ROUNDS);
+        long max = 1;
+        for (int i = first; i < size; i++) {
+            max = Math.max(max, history.getResponseTime(i));
+        }
+        double step = (double) SPARKLINE_WIDTH / (SPARKLINE_ROUNDS - 1);
+        gc.setStroke(Color.STEELBLUE);
+        gc.setLineWidth(1.5);
+        gc.beginPath();
+        for (int i = first; i < size; i++) {
+            double x = (i - first) * step;
+            double y = SPARKLINE_HEIGHT - 4 - (SPARKLINE_HEIGHT - 8) * (double) history.getResponseTime(i) / max;
+            if (i == first) {
+                gc.moveTo(x, y);
+            } else {
+                gc.lineTo(x, y);
+            }
+        }
+        gc.stroke();
+        gc.setFill(Color.GRAY);
+        gc.fillText(String.format("%.2f s", max / 1000000000.0), 2, 12);
+    }
+
+    private static void drawThumbnail(Canvas canvas, DotSet dotSet) {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setFill(Color.BEIGE);
+        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        if (dotSet == null) {
+            return;
+        }
+        gc.setFill(Color.BLACK);
+        for (int i = 0; i < dotSet.getTotalNumDots(); i++) {
+            double diameter = dotSet.getDiameter(i) * THUMBNAIL_SCALE;
+            gc.fillOval(dotSet.getX(i) * THUMBNAIL_SCALE,
+                    dotSet.getY(i) * THUMBNAIL_SCALE, diameter, diameter);
+        }
+    }
+}
@@ -1,6 +1,13 @@
 package view;
 
+import java.net.URL;
+
+import controller.Clock;
 import controller.DotsGameController;
+import controller.KeyEventResponseSource;
+import controller.ResponseSource;
+import model.DotSet;
+import util.StartupTimer;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Button;
@@ -13,6 +20,10 @@ import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.VBox;
+import javafx.scene.media.AudioClip;
+import javafx.scene.media.Media;
+import javafx.scene.media.MediaPlayer;
+import javafx.scene.media.MediaView;
 import javafx.scene.text.Text;
 import javafx.stage.Popup;
 import javafx.stage.Stage;
@@ -26,18 +37,23 @@ import javafx.stage.Stage;
  *  -DotsGameController.java
  *      -The controller is created in this class. As the game progresses, the controller 
  *      adopts to the scenes of the GameGUI and sets their event handlers appropriately.
+ *  -GameView.java
+ *      -What the controller needs from the screen during a session, implemented here.
  *  
  * @author Tony Jiang
  * 6-25-2015
  * 
  */
-public class GameGUI {
+public class GameGUI implements GameView {
     
     /** Whether or not to slowly drain the progress bar as time pressure. */
     static final boolean PROGRESS_DRAIN = false;
     
     /** Controller for setting event handlers */
     private DotsGameController DGC;
+    
+    /** Progress bar, stars and background of the game screen, applied once per pulse. */
+    private final GameViewModel viewModel = new GameViewModel(this);
 
     /** The JavaFX stage for the game. */
     private Stage primaryStage;
@@ -66,6 +82,8 @@ public class GameGUI {
     private Label feedbackGender;
     /** Login Screen - feedback to tell if user needs to correctly input their age. */
     private Label feedbackAge;
+    /** Login Screen - warning that the subject ID already has results. */
+    private Label feedbackDuplicateId;
     /** Login Box to contain start button, feedback label, and enterId TextField. */
     private VBox loginBox;
     
@@ -110,7 +128,10 @@ public class GameGUI {
      * @throws IOException 
      */
     public GameGUI(Stage stage) {
+        DotSet.setCanvasSize(SetUp.OPTION_WIDTH, SetUp.OPTION_HEIGHT);
+        StartupTimer.mark("Screen bounds");
         DGC = new DotsGameController(this);
+        StartupTimer.mark("Controller");
         this.setPrimaryStage(stage);
         this.layout = new AnchorPane();
         this.scene = new Scene(this.layout, SetUp.SCREEN_WIDTH, SetUp.SCREEN_HEIGHT);
@@ -122,6 +143,24 @@ public class GameGUI {
         this.primaryStage.setFullScreen(true);
         this.primaryStage.sizeToScene();
         SetUp.setExitPopup(this);
+        StartupTimer.mark("Login screen");
+        this.reportWhenInteractive();
+    }
+    
+    /**
+     * Report the startup phases once the login screen has been laid out 
+     * for the first time, which is when it starts taking input.
+     */
+    private void reportWhenInteractive() {
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                scene.removePostLayoutPulseListener(this);
+                StartupTimer.mark("First layout of the login screen");
+                StartupTimer.report();
+            }
+        };
+        this.scene.addPostLayoutPulseListener(listener);
     }
     
     /**
@@ -131,23 +170,25 @@ public class GameGUI {
      */
     private void setLoginScreen() {
         SetUp.setUpLoginScreen(this);
-        DGC.setLoginHandlers(); 
+        DGC.setLoginHandlers(this); 
     }
 
     /**
      * Sets the screen where instructions are shown.
      */
+    @Override
     public void setInstructionsScreen() {
         SetUp.setUpInstructionsScreen(this);
-        this.DGC.setInstructionsHandlers();
+        this.DGC.setInstructionsHandlers(this);
     }
     
     /**
      * Sets the screen where user has finished practice trials and is about to begin assessment.
      */
+    @Override
     public void setPracticeCompleteScreen() {
         SetUp.setUpPracticeCompleteScreen(this);
-        this.DGC.setPracticeCompleteHandlers();
+        this.DGC.setPracticeCompleteHandlers(this);
     }
 
     /**
@@ -155,8 +196,10 @@ public class GameGUI {
      * @param stage The user interface stage.
      * @param subjectID The subject's ID number.
      */
+    @Override
     public void setGameScreen() {
         SetUp.setUpGameScreen(this);          
+        this.scene.setOnKeyPressed(null);
         this.DGC.prepareFirstRound();
         this.DGC.setGameHandlers();
     }
@@ -165,10 +208,67 @@ public class GameGUI {
      * Sets the ending screen informing the subject of their completion.
      * @param stage The user interface stage.
      */
+    @Override
     public void setFinishScreen(int points, int level) {
         SetUp.setUpFinishScreen(this, points, level);
     }
     
+    @Override
+    public void setGetReadyProgress(double progress) {
+        this.getReadyBar.setProgress(progress);
+    }
+    
+    @Override
+    public void hideGetReady() {
+        this.getReadyBox.setVisible(false);
+    }
+    
+    @Override
+    public void hidePractice() {
+        this.practice.setVisible(false);
+    }
+    
+    @Override
+    public GameViewModel getViewModel() {
+        return this.viewModel;
+    }
+    
+    /**
+     * Responses taken from the key events of the scene.
+     * @param clock Clock to time the presses with.
+     * @return The response source.
+     */
+    @Override
+    public ResponseSource makeKeyResponseSource(Clock clock) {
+        return new KeyEventResponseSource(this.scene, clock);
+    }
+    
+    /** 
+     * Play a sound once, in a media view added to the layout.
+     * @param soundFile Name of the sound file in the sounds folder.
+     * @param rate Playback rate.
+     */
+    @Override
+    public void playSound(String soundFile, double rate) {
+        URL sound = getClass().getResource("/res/sounds/" + soundFile);
+        Media media = new Media(sound.toString());
+        MediaPlayer player = new MediaPlayer(media);
+        player.setAutoPlay(true);
+        player.setRate(rate);
+        MediaView mediaView = new MediaView(player);
+        this.layout.getChildren().add(mediaView);
+    }
+    
+    @Override
+    public void playClip(AudioClip clip) {
+        clip.play();
+    }
+    
+    @Override
+    public void preloadImages() {
+        SetUp.preloadImages();
+    }
+    
     /**
      * Change the background in real time.
      */
@@ -192,6 +292,7 @@ public class GameGUI {
         this.scene = s;
     }
     
+    @Override
     public Canvas getLeftOption() {
         return this.leftOption;
     }
@@ -204,6 +305,7 @@ public class GameGUI {
         this.rightOption = c;
     }
     
+    @Override
     public Canvas getRightOption() {
         return this.rightOption;
     }
@@ -393,6 +495,14 @@ public class GameGUI {
         this.feedbackAge = feedbackAge;
     }
 
+    public Label getFeedbackDuplicateId() {
+        return feedbackDuplicateId;
+    }
+
+    public void setFeedbackDuplicateId(Label feedbackDuplicateId) {
+        this.feedbackDuplicateId = feedbackDuplicateId;
+    }
+
     public Popup getExitPopup() {
         return exitPopup;
     }
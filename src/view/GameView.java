@@ -0,0 +1,107 @@
+package view;
+
+import controller.Clock;
+import controller.ResponseSource;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.media.AudioClip;
+
+/**
+ * What the controller shows a session on: the screens it moves through, the
+ * two canvases the dots are painted on, the get ready bar, the state of the
+ * game screen and the sounds.
+ *
+ * The controller only goes through this interface once the subject has logged
+ * in, so a session can be driven without a screen, e.g. with a VirtualClock.
+ * Every method is called on the thread the controller runs on (the JavaFX
+ * Application Thread for GameGUI), except preloadImages.
+ *
+ * Classes Related to:
+ *  -GameGUI.java
+ *      -The JavaFX implementation the game runs with.
+ *  -DotsGameController.java
+ *      -Drives the view through the rounds.
+ *  -GameViewModel.java
+ *      -State of the game screen, which each view provides.
+ */
+public interface GameView {
+
+    /**
+     * Show the instructions. The controller's startPractice() is called once the subject is ready.
+     */
+    void setInstructionsScreen();
+
+    /**
+     * Show the game screen and have the controller prepare the first round
+     * (prepareFirstRound()) and take responses (setGameHandlers()).
+     */
+    void setGameScreen();
+
+    /**
+     * Show that the practice rounds are done. The controller's startAssessment() is
+     * called once the subject is ready.
+     */
+    void setPracticeCompleteScreen();
+
+    /**
+     * Show that the session is finished.
+     * @param points Number of correct responses.
+     * @param level Background level reached.
+     */
+    void setFinishScreen(int points, int level);
+
+    /**
+     * @return The canvas of the left choice.
+     */
+    Canvas getLeftOption();
+
+    /**
+     * @return The canvas of the right choice.
+     */
+    Canvas getRightOption();
+
+    /**
+     * Fill the get ready bar shown before the first round.
+     * @param progress How full the bar is, from 0 to 1.
+     */
+    void setGetReadyProgress(double progress);
+
+    /**
+     * Hide the get ready bar, once the first round starts.
+     */
+    void hideGetReady();
+
+    /**
+     * Hide the label telling the subject the rounds are practice.
+     */
+    void hidePractice();
+
+    /**
+     * @return State of the game screen: progress bar, stars and background.
+     */
+    GameViewModel getViewModel();
+
+    /**
+     * Responses taken from the keys pressed on this view.
+     * @param clock Clock to time the presses with.
+     * @return The response source.
+     */
+    ResponseSource makeKeyResponseSource(Clock clock);
+
+    /**
+     * Play a sound from the sounds folder once.
+     * @param soundFile Name of the sound file.
+     * @param rate Playback rate.
+     */
+    void playSound(String soundFile, double rate);
+
+    /**
+     * Play a sound loaded ahead of time.
+     * @param clip The sound.
+     */
+    void playClip(AudioClip clip);
+
+    /**
+     * Load the images of the screens ahead of time. Called on the controller's preload thread.
+     */
+    void preloadImages();
+}
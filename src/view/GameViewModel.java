@@ -0,0 +1,242 @@
+package view;
+
+import javafx.animation.AnimationTimer;
+import javafx.css.PseudoClass;
+import javafx.scene.Scene;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.image.ImageView;
+
+/**
+ * State of the game screen that changes during rounds: the progress bar's value
+ * and accent, which stars are shown, and the background level.
+ * 
+ * The controller sets the state here as often as it likes; the changes are
+ * applied to the nodes of GameGUI at most once per pulse, in one batch just
+ * before the pulse's CSS and layout passes, and only where a node's value
+ * actually differs. The accent is switched with pseudo-classes defined in
+ * res/styles/game.css rather than inline styles, so changing it never parses CSS.
+ * 
+ * Counts of requested and applied writes, and the time spent in the scene's
+ * CSS and layout passes, are kept to measure the cost of updating the screen.
+ * 
+ * Made without a GameGUI, the state is kept and the writes are counted, but
+ * nothing is applied, so a session can run without a screen.
+ * 
+ * Classes Related to:
+ *  -DotsGameController.java
+ *      -Sets the state after every response and while the progress bar drains.
+ *  -GameGUI.java
+ *      -Holds the nodes the state is applied to.
+ */
+public class GameViewModel {
+    
+    /** Stylesheet with the accents of the progress bar. */
+    public static final String STYLESHEET = "/res/styles/game.css";
+    
+    /** Accents of the progress bar. */
+    public enum Accent {
+        NORMAL,
+        FULL,
+        EMPTY
+    }
+    
+    private static final PseudoClass ACCENT_FULL = PseudoClass.getPseudoClass("accent-full");
+    private static final PseudoClass ACCENT_EMPTY = PseudoClass.getPseudoClass("accent-empty");
+    
+    /** The graphical user interface, or null if there is no screen. */
+    private final GameGUI view;
+    
+    /** State to apply. */
+    private double progress;
+    private Accent accent = Accent.NORMAL;
+    private boolean[] starsVisible = new boolean[0];
+    private int backgroundLevel;
+    
+    /** Background level last applied. Backgrounds are images, so they are compared here rather than on the node. */
+    private int appliedBackgroundLevel;
+    
+    /** Whether anything was set since the last pulse. */
+    private boolean dirty;
+    
+    /** Number of values set, and number actually written to a node. */
+    private long requestedWrites;
+    private long appliedWrites;
+    
+    /** Scene the CSS and layout passes are timed on. */
+    private Scene timedScene;
+    private long passStart;
+    private long cssLayoutPasses;
+    private long cssLayoutTime;
+    
+    /** Applies the state once per pulse while there is something to apply. */
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            apply();
+        }
+    };
+    
+    /**
+     * Constructor.
+     * @param view The graphical user interface.
+     */
+    public GameViewModel(GameGUI view) {
+        this.view = view;
+    }
+    
+    /**
+     * Constructor for running without a screen.
+     */
+    public GameViewModel() {
+        this(null);
+    }
+    
+    /**
+     * Take the state from a freshly set up game screen: empty progress bar,
+     * normal accent, no stars and the first background. Starts timing the
+     * CSS and layout passes of the screen's scene.
+     */
+    public void reset() {
+        this.accent = Accent.NORMAL;
+        this.backgroundLevel = 0;
+        this.appliedBackgroundLevel = 0;
+        this.cssLayoutTime = 0;
+        if (this.view == null) {
+            this.progress = 0.0;
+            this.starsVisible = new boolean[SetUp.NUM_STARS];
+            return;
+        }
+        ProgressBar bar = this.view.getProgressBar();
+        this.progress = bar.getProgress();
+        ImageView[] stars = this.view.getStarNodes();
+        this.starsVisible = new boolean[stars.length];
+        for (int i = 0; i < stars.length; i++) {
+            this.starsVisible[i] = stars[i].isVisible();
+        }
+        this.dirty = true;
+        this.pulse.start();
+        
+        Scene scene = this.view.getScene();
+        if (scene != this.timedScene) {
+            this.timedScene = scene;
+            scene.addPreLayoutPulseListener(() -> this.passStart = System.nanoTime());
+            scene.addPostLayoutPulseListener(() -> {
+                this.cssLayoutPasses++;
+                this.cssLayoutTime += System.nanoTime() - this.passStart;
+            });
+        }
+    }
+    
+    /** Ask for the state to be applied on the next pulse. */
+    private void changed() {
+        this.requestedWrites++;
+        if (!this.dirty && this.view != null) {
+            this.dirty = true;
+            this.pulse.start();
+        }
+    }
+    
+    /**
+     * Write the state to the nodes that differ from it.
+     */
+    private void apply() {
+        this.dirty = false;
+        this.pulse.stop();
+        
+        ProgressBar bar = this.view.getProgressBar();
+        if (bar.getProgress() != this.progress) {
+            bar.setProgress(this.progress);
+            this.appliedWrites++;
+        }
+        boolean full = this.accent == Accent.FULL;
+        if (bar.getPseudoClassStates().contains(ACCENT_FULL) != full) {
+            bar.pseudoClassStateChanged(ACCENT_FULL, full);
+            this.appliedWrites++;
+        }
+        boolean empty = this.accent == Accent.EMPTY;
+        if (bar.getPseudoClassStates().contains(ACCENT_EMPTY) != empty) {
+            bar.pseudoClassStateChanged(ACCENT_EMPTY, empty);
+            this.appliedWrites++;
+        }
+        
+        ImageView[] stars = this.view.getStarNodes();
+        for (int i = 0; i < stars.length && i < this.starsVisible.length; i++) {
+            if (stars[i].isVisible() != this.starsVisible[i]) {
+                stars[i].setVisible(this.starsVisible[i]);
+                this.appliedWrites++;
+            }
+        }
+        
+        if (this.appliedBackgroundLevel != this.backgroundLevel) {
+            this.view.changeBackground(this.backgroundLevel);
+            this.appliedBackgroundLevel = this.backgroundLevel;
+            this.appliedWrites++;
+        }
+    }
+    
+    /**
+     * Value of the progress bar, negative if indeterminate, as last set.
+     * @return The progress.
+     */
+    public double getProgress() {
+        return this.progress;
+    }
+    
+    public void setProgress(double progress) {
+        this.progress = progress;
+        this.changed();
+    }
+    
+    /** Whether the progress bar is indeterminate (progress below 0), as last set. */
+    public boolean isIndeterminate() {
+        return this.progress < 0;
+    }
+    
+    public Accent getAccent() {
+        return this.accent;
+    }
+    
+    public void setAccent(Accent accent) {
+        this.accent = accent;
+        this.changed();
+    }
+    
+    public void setStarVisible(int star, boolean visible) {
+        this.starsVisible[star] = visible;
+        this.changed();
+    }
+    
+    public int getBackgroundLevel() {
+        return this.backgroundLevel;
+    }
+    
+    public void setBackgroundLevel(int backgroundLevel) {
+        this.backgroundLevel = backgroundLevel;
+        this.changed();
+    }
+    
+    /** Number of values set. */
+    public long getRequestedWrites() {
+        return this.requestedWrites;
+    }
+    
+    /** Number of values written to a node; the rest were coalesced or unchanged. */
+    public long getAppliedWrites() {
+        return this.appliedWrites;
+    }
+    
+    /** Number of CSS and layout passes of the game screen's scene. */
+    public long getCssLayoutPasses() {
+        return this.cssLayoutPasses;
+    }
+    
+    /**
+     * Time spent in CSS and layout passes since the last call, e.g. during the last round.
+     * @return The time in nanoseconds.
+     */
+    public long takeCssLayoutTime() {
+        long time = this.cssLayoutTime;
+        this.cssLayoutTime = 0;
+        return time;
+    }
+}
@@ -73,6 +73,12 @@ public final class SetUp {
     static final double STAR_SCALE = .28;
     /** Font size of the letter options. */
     static final int LETTER_SIZE = 100;
+    
+    /** Image shared by every star, loaded once. */
+    private static Image starImage;
+    
+    /** Backgrounds scaled to the screen, indexed by level, loaded once each. */
+    private static final Image backgroundImages[] = new Image[BACKGROUNDS.length];
   
     /** Disable constructing of an object. */
     private SetUp() {
@@ -95,12 +101,15 @@ public final class SetUp {
         view.setFeedback(new Label(Strings.SUB_ID_FEEDBACK_SP));
         view.setFeedbackGender(new Label(Strings.GENDER_FEEDBACK_SP));
         view.setFeedbackAge(new Label(Strings.AGE_FEEDBACK_SP));
+        view.setFeedbackDuplicateId(new Label(Strings.DUPLICATE_ID_FEEDBACK_SP));
         view.getFeedback().setTextFill(Color.RED);
         view.getFeedbackGender().setTextFill(Color.RED);
         view.getFeedbackAge().setTextFill(Color.RED);
+        view.getFeedbackDuplicateId().setTextFill(Color.RED);
         view.getFeedback().setVisible(false);
         view.getFeedbackGender().setVisible(false);
         view.getFeedbackAge().setVisible(false);
+        view.getFeedbackDuplicateId().setVisible(false);
         view.getEnterId().setAlignment(Pos.CENTER);
 
         view.setLoginBox(new VBox(5));
@@ -122,7 +131,7 @@ public final class SetUp {
         view.getLoginBox().getChildren().addAll(labelID, view.getEnterId(), view.getFeedback(), 
                 labelGender, pickGenderBox, view.getFeedbackGender(), 
                 labelAge, view.getEnterAge(), view.getFeedbackAge(), 
-                view.getStart());
+                view.getFeedbackDuplicateId(), view.getStart());
         view.getLayout().getChildren().setAll(view.getLoginBox());
         view.getEnterId().requestFocus();
         view.getPrimaryStage().show(); 
@@ -203,6 +212,8 @@ public final class SetUp {
         view.getProgressBar().getTransforms().setAll(
                 new Rotate(-90, 0, 0),
                 new Translate(-100, 0));
+        view.getProgressBar().getStylesheets().add(
+                SetUp.class.getResource(GameViewModel.STYLESHEET).toExternalForm());
         
         view.setGetReadyBar(new ProgressBar(0.0));
         view.getGetReadyBar().setPrefWidth(300.0);
@@ -240,12 +251,11 @@ public final class SetUp {
     
     private static void setStars(GameGUI view) {
         
-        Image stars[] = new Image[NUM_STARS];
+        Image star = getStarImage();
         view.setStarNodes(new ImageView[NUM_STARS]);
         
         for (int i = 0; i < NUM_STARS; i++) {
-            stars[i] = new Image("/res/images/star2.png");
-            view.getStarNodes()[i] = new ImageView(stars[i]);
+            view.getStarNodes()[i] = new ImageView(star);
             view.getStarNodes()[i].setScaleX(STAR_SCALE);
             view.getStarNodes()[i].setScaleY(STAR_SCALE);
             view.getStarNodes()[i].setLayoutY(STAR_Y);
@@ -302,14 +312,8 @@ public final class SetUp {
         if (level >= BACKGROUNDS.length) {
             level = BACKGROUNDS.length - 1;
         }
-        String backgroundName = BACKGROUNDS[level];
-        
         BackgroundImage bg = new BackgroundImage(
-                new Image(
-                        "/res/images/" + backgroundName, 
-                        SCREEN_WIDTH,
-                        SCREEN_HEIGHT, 
-                        false, true),
+                getBackgroundImage(level),
                 BackgroundRepeat.NO_REPEAT, 
                 BackgroundRepeat.NO_REPEAT, 
                 BackgroundPosition.CENTER,
@@ -317,6 +321,44 @@ public final class SetUp {
         layout.setBackground(new Background(bg));
     }  
     
+    /**
+     * Get the star image, loading it if not loaded yet.
+     * @return The star image.
+     */
+    static synchronized Image getStarImage() {
+        if (starImage == null) {
+            starImage = new Image("/res/images/star2.png");
+        }
+        return starImage;
+    }
+    
+    /**
+     * Get a background scaled to the screen, loading it if not loaded yet.
+     * @param level The level of the background.
+     * @return The background image.
+     */
+    static synchronized Image getBackgroundImage(int level) {
+        if (backgroundImages[level] == null) {
+            backgroundImages[level] = new Image(
+                    "/res/images/" + BACKGROUNDS[level], 
+                    SCREEN_WIDTH,
+                    SCREEN_HEIGHT, 
+                    false, true);
+        }
+        return backgroundImages[level];
+    }
+    
+    /**
+     * Load the star and every background ahead of time, so the game screen does not 
+     * wait for them. May be called from any thread.
+     */
+    public static void preloadImages() {
+        getStarImage();
+        for (int level = 0; level < BACKGROUNDS.length; level++) {
+            getBackgroundImage(level);
+        }
+    }
+    
     /**
      * Create the exit pop up asking if user wants to quit.
      * @param view